@@ -1,15 +1,17 @@
 package teams;
 
+import freemarker.cache.StrongCacheStorage;
 import freemarker.template.TemplateException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.actuate.autoconfigure.ManagementWebSecurityAutoConfiguration;
 import org.springframework.boot.actuate.autoconfigure.MetricFilterAutoConfiguration;
 import org.springframework.boot.actuate.autoconfigure.TraceWebFilterAutoConfiguration;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.freemarker.FreeMarkerAutoConfiguration;
@@ -29,6 +31,7 @@ import org.springframework.ldap.core.LdapTemplate;
 import org.springframework.ldap.core.support.LdapContextSource;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.ui.freemarker.FreeMarkerConfigurationFactoryBean;
 import org.springframework.util.StringUtils;
 import org.springframework.web.servlet.HandlerInterceptor;
@@ -40,21 +43,28 @@ import org.springframework.web.servlet.view.InternalResourceViewResolver;
 import teams.interceptor.FeatureInterceptor;
 import teams.interceptor.LoginInterceptor;
 import teams.interceptor.MockLoginInterceptor;
+import teams.interceptor.PersonProfileCache;
 import teams.interceptor.VootApiSecurityFilter;
 import teams.provision.LdapUserDetailsManager;
 import teams.provision.UserDetailsManager;
 import teams.repository.PersonRepository;
 import teams.service.MemberAttributeService;
 import teams.service.VootClient;
+import teams.service.impl.CachingVootClient;
 import teams.service.impl.VootClientImpl;
 import teams.service.impl.VootClientMock;
 import teams.service.mail.MailService;
 import teams.service.mail.MailServiceImpl;
+import teams.session.FileSessionStateStore;
+import teams.session.InMemorySessionStateStore;
+import teams.session.SessionStateInterceptor;
+import teams.session.SessionStateStore;
 import teams.util.LetterOpener;
 import teams.util.SpringMvcConfiguration;
 
 import javax.sql.DataSource;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
@@ -99,15 +109,20 @@ public class Application extends SpringBootServletInitializer {
   public UserDetailsManager userDetailsManager(@Value("${ldap.url}") String url,
                                                @Value("${ldap.base}") String base,
                                                @Value("${ldap.userDn}") String userDn,
-                                               @Value("${ldap.password}") String password) {
+                                               @Value("${ldap.password}") String password,
+                                               @Value("${ldap.batchSize}") int batchSize,
+                                               @Value("${ldap.pageSize}") int pageSize,
+                                               @Value("${ldap.parallelSearches}") int parallelSearches) {
     LdapContextSource contextSource = new LdapContextSource();
     contextSource.setUrl(url);
     contextSource.setBase(base);
     contextSource.setUserDn(userDn);
     contextSource.setPassword(password);
+    //the JNDI connection pool, so parallel searches don't each open and bind a new connection
+    contextSource.setPooled(true);
     contextSource.afterPropertiesSet();
 
-    return new LdapUserDetailsManager(new LdapTemplate(contextSource));
+    return new LdapUserDetailsManager(new LdapTemplate(contextSource), batchSize, pageSize, parallelSearches);
   }
 
   @Bean
@@ -116,12 +131,29 @@ public class Application extends SpringBootServletInitializer {
                                @Value("${voot.clientId}") String clientId,
                                @Value("${voot.clientSecret}") String clientSecret,
                                @Value("${voot.scopes}") String scopes,
-                               @Value("${voot.serviceUrl}") String serviceUrl) {
+                               @Value("${voot.serviceUrl}") String serviceUrl,
+                               @Value("${voot.cache.maximumSize}") long cacheMaximumSize,
+                               @Value("${voot.cache.refreshAfterSeconds}") long cacheRefreshAfterSeconds,
+                               @Value("${voot.cache.expireAfterSeconds}") long cacheExpireAfterSeconds,
+                               @Value("${voot.cache.refreshThreads}") int cacheRefreshThreads) {
     if (environment.acceptsProfiles(DEV_PROFILE_NAME)) {
       LOG.debug("Using mock vootclient");
       return new VootClientMock();
     }
-    return new VootClientImpl(accessTokenUri, clientId, clientSecret, scopes, serviceUrl);
+    return new CachingVootClient(new VootClientImpl(accessTokenUri, clientId, clientSecret, scopes, serviceUrl),
+      cacheMaximumSize, cacheRefreshAfterSeconds, cacheExpireAfterSeconds, cacheRefreshThreads);
+  }
+
+  /**
+   * Used by the scheduled methods and the {@link teams.scheduling.ScheduledJob}'s, so a long running job doesn't delay
+   * the others
+   */
+  @Bean
+  public ThreadPoolTaskScheduler taskScheduler(@Value("${scheduledJobs.poolSize}") int poolSize) {
+    ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
+    taskScheduler.setPoolSize(poolSize);
+    taskScheduler.setThreadNamePrefix("scheduled-");
+    return taskScheduler;
   }
 
   @Bean
@@ -132,13 +164,19 @@ public class Application extends SpringBootServletInitializer {
   }
 
   @Bean
-  public MailService mailService(Environment environment, JavaMailSender mailSender) {
+  public MailService mailService(Environment environment, JavaMailSender mailSender,
+                                 GaugeService gaugeService, CounterService counterService,
+                                 @Value("${mail.queue.capacity}") int queueCapacity,
+                                 @Value("${mail.workers}") int workers,
+                                 @Value("${mail.batchSize}") int batchSize,
+                                 @Value("${mail.maxAttempts}") int maxAttempts,
+                                 @Value("${mail.initialBackoffMillis}") long initialBackoffMillis,
+                                 @Value("${mail.queue.offerTimeoutMillis}") long offerTimeoutMillis) {
     if (environment.acceptsProfiles(DEV_PROFILE_NAME)) {
       return new LetterOpener();
     } else {
-      MailServiceImpl mailService = new MailServiceImpl();
-      mailService.setMailSender(mailSender);
-      return mailService;
+      return new MailServiceImpl(mailSender, gaugeService, counterService, queueCapacity, workers, batchSize,
+        maxAttempts, initialBackoffMillis, offerTimeoutMillis);
     }
   }
 
@@ -149,15 +187,39 @@ public class Application extends SpringBootServletInitializer {
 
     freemarker.template.Configuration configuration = fmConfigurationFactory.createConfiguration();
     configuration.setIncompatibleImprovements(freemarker.template.Configuration.VERSION_2_3_23);
+    // the mail templates are on the classpath, so keep them parsed for the lifetime of the application
+    configuration.setCacheStorage(new StrongCacheStorage());
+    configuration.setTemplateUpdateDelayMilliseconds(Long.MAX_VALUE);
 
     return configuration;
   }
 
-  @Autowired
+  @Bean
+  public PersonProfileCache personProfileCache(PersonRepository personRepository,
+                                               @Value("${personProfiles.maximumSize}") long maximumSize,
+                                               @Value("${personProfiles.expireAfterAccessSeconds}") long expireAfterAccessSeconds,
+                                               @Value("${personProfiles.flushMillis}") long flushMillis,
+                                               @Value("${personProfiles.batchSize}") int batchSize) {
+    return new PersonProfileCache(personRepository, maximumSize, expireAfterAccessSeconds, flushMillis, batchSize);
+  }
+
+  @Bean
+  public SessionStateStore sessionStateStore(@Value("${sessionState.store}") String store,
+                                             @Value("${sessionState.directory}") String directory,
+                                             @Value("${session-timeout}") long timeoutSeconds) {
+    if ("file".equals(store)) {
+      return new FileSessionStateStore(Paths.get(directory), timeoutSeconds);
+    }
+    return new InMemorySessionStateStore(timeoutSeconds);
+  }
+
   @Bean
   public WebMvcConfigurerAdapter webMvcConfigurerAdapter(
     Environment environment,
-    PersonRepository personRepository,
+    PersonProfileCache personProfileCache,
+    SessionStateStore sessionStateStore,
+    @Value("${session-timeout}") long sessionTimeoutSeconds,
+    @Value("${sessionState.cacheMaximumSize}") long sessionStateCacheMaximumSize,
     @Value("${teamsURL}") String teamsURL,
     @Value("${displayExternalTeams}") Boolean displayExternalTeams,
     @Value("${displayExternalTeamMembers}") Boolean displayExternalTeamMembers,
@@ -168,6 +230,7 @@ public class Application extends SpringBootServletInitializer {
     ResourceLoader resourceLoader) throws Exception {
 
     List<HandlerInterceptor> interceptors = new ArrayList<>();
+    interceptors.add(new SessionStateInterceptor(sessionStateStore, sessionTimeoutSeconds, sessionStateCacheMaximumSize));
 
     String commitId = gitCommitId(resourceLoader, environment);
     interceptors.add(new FeatureInterceptor(displayExternalTeams, displayExternalTeamMembers, displayAddExternalGroupToTeam, commitId, applicationVersion));
@@ -178,9 +241,9 @@ public class Application extends SpringBootServletInitializer {
 
     if (environment.acceptsProfiles(DEV_PROFILE_NAME)) {
       LOG.debug("Using mock shibboleth");
-      interceptors.add(new MockLoginInterceptor(teamsURL, personRepository));
+      interceptors.add(new MockLoginInterceptor(teamsURL, personProfileCache));
     } else {
-      interceptors.add(new LoginInterceptor(teamsURL, personRepository));
+      interceptors.add(new LoginInterceptor(teamsURL, personProfileCache));
     }
     interceptors.add(new VootApiSecurityFilter(vootApiUser, vootApiPassword));
     return new SpringMvcConfiguration(interceptors);
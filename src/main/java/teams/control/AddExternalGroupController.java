@@ -21,7 +21,6 @@ import org.springframework.ui.Model;
 import org.springframework.ui.ModelMap;
 import org.springframework.util.CollectionUtils;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.bind.support.SessionStatus;
 import org.springframework.web.servlet.view.RedirectView;
 import teams.domain.ExternalGroup;
 import teams.domain.Person;
@@ -33,7 +32,7 @@ import teams.service.TeamExternalGroupDao;
 import teams.service.VootClient;
 import teams.util.AuditLog;
 import teams.util.ControllerUtil;
-import teams.util.TokenUtil;
+import teams.util.CsrfTokenService;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpSession;
@@ -44,12 +43,10 @@ import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static java.util.stream.Collectors.toList;
-import static teams.util.TokenUtil.TOKENCHECK;
-import static teams.util.TokenUtil.checkTokens;
+import static teams.util.CsrfTokenService.TOKENCHECK;
 import static teams.util.ViewUtil.escapeViewParameters;
 
 @Controller
-@SessionAttributes(TOKENCHECK)
 public class AddExternalGroupController {
 
   protected static final String EXTERNAL_GROUPS_SESSION_KEY = "externalGroups";
@@ -66,9 +63,12 @@ public class AddExternalGroupController {
   @Autowired
   private ControllerUtil controllerUtil;
 
+  @Autowired
+  private CsrfTokenService csrfTokenService;
+
   @RequestMapping(value = "/addexternalgroup.shtml")
   public String showAddExternalGroupsForm(@RequestParam String teamId, Model model, HttpServletRequest request) {
-    Person person = (Person) request.getSession().getAttribute(LoginInterceptor.PERSON_SESSION_KEY);
+    Person person = (Person) request.getAttribute(LoginInterceptor.PERSON_SESSION_KEY);
 
     Team team = teamService.findTeamById(teamId);
 
@@ -77,7 +77,7 @@ public class AddExternalGroupController {
     List<ExternalGroup> myExternalGroups = filterLinkedExternalGroups(team, getExternalGroups(person.getId(), request.getSession()));
     request.getSession().setAttribute(EXTERNAL_GROUPS_SESSION_KEY, myExternalGroups);
 
-    model.addAttribute(TOKENCHECK, TokenUtil.generateSessionToken());
+    model.addAttribute(TOKENCHECK, csrfTokenService.generateToken(request));
     model.addAttribute("teamId", team.getId());
     model.addAttribute("team", team);
 
@@ -86,15 +86,14 @@ public class AddExternalGroupController {
 
   @RequestMapping(value = "/deleteexternalgroup.shtml")
   public RedirectView deleteTeamExternalGroupLink(
-    @ModelAttribute(TOKENCHECK) String sessionToken,
     @RequestParam String teamId,
     @RequestParam String groupIdentifier,
     @RequestParam String token,
-    ModelMap modelMap, SessionStatus status, HttpServletRequest request) {
+    ModelMap modelMap, HttpServletRequest request) {
 
-    Person person = (Person) request.getSession().getAttribute(LoginInterceptor.PERSON_SESSION_KEY);
+    Person person = (Person) request.getAttribute(LoginInterceptor.PERSON_SESSION_KEY);
 
-    checkTokens(sessionToken, token, status);
+    csrfTokenService.checkToken(request, token);
     Team team = controllerUtil.getTeamById(teamId);
     checkUserIsAdmin(person, team);
 
@@ -104,7 +103,6 @@ public class AddExternalGroupController {
       AuditLog.log("User {} deleted external group from team {}: {}", person.getId(), teamId, teamExternalGroup.getExternalGroup());
     }
 
-    status.setComplete();
     modelMap.clear();
 
     return new RedirectView(escapeViewParameters("detailteam.shtml?team=%s", teamId), false, true, false);
@@ -138,14 +136,13 @@ public class AddExternalGroupController {
   }
 
   @RequestMapping(value = "/doaddexternalgroup.shtml", method = RequestMethod.POST)
-  public RedirectView addExternalGroups(@ModelAttribute(TOKENCHECK) String sessionToken,
-                                        @ModelAttribute("teamId") String teamId,
+  public RedirectView addExternalGroups(@ModelAttribute("teamId") String teamId,
                                         @RequestParam String token,
-                                        ModelMap modelMap, SessionStatus status, HttpServletRequest request) {
+                                        ModelMap modelMap, HttpServletRequest request) {
 
-    Person person = (Person) request.getSession().getAttribute(LoginInterceptor.PERSON_SESSION_KEY);
+    Person person = (Person) request.getAttribute(LoginInterceptor.PERSON_SESSION_KEY);
 
-    checkTokens(sessionToken, token, status);
+    csrfTokenService.checkToken(request, token);
     Team team = controllerUtil.getTeamById(teamId);
     checkUserHasAdministrativePrivileges(person, team);
 
@@ -166,7 +163,6 @@ public class AddExternalGroupController {
     teamExternalGroups.forEach(eg -> AuditLog.log("User {} added external group to team {}: {}", personId, teamId, eg));
 
     request.getSession().removeAttribute(EXTERNAL_GROUPS_SESSION_KEY);
-    status.setComplete();
     modelMap.clear();
 
     return new RedirectView(escapeViewParameters("detailteam.shtml?team=%s", teamId), false, true, false);
@@ -26,38 +26,41 @@ import org.springframework.ui.Model;
 import org.springframework.util.StringUtils;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.bind.support.SessionStatus;
 import org.springframework.web.servlet.LocaleResolver;
 import org.springframework.web.servlet.view.RedirectView;
 import teams.domain.*;
 import teams.interceptor.LoginInterceptor;
 import teams.service.GrouperTeamService;
+import teams.service.InvitationJobService;
 import teams.service.TeamInviteService;
 import teams.util.AuditLog;
 import teams.util.ControllerUtil;
-import teams.util.TokenUtil;
+import teams.util.CsrfTokenService;
 
 import javax.mail.internet.AddressException;
 import javax.mail.internet.InternetAddress;
 import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 
+import static java.util.stream.Collectors.toList;
 import static org.springframework.web.bind.annotation.RequestMethod.GET;
 import static org.springframework.web.bind.annotation.RequestMethod.POST;
 import static teams.interceptor.LoginInterceptor.PERSON_SESSION_KEY;
-import static teams.util.TokenUtil.TOKENCHECK;
-import static teams.util.TokenUtil.checkTokens;
+import static teams.util.CsrfTokenService.TOKENCHECK;
 import static teams.util.ViewUtil.escapeViewParameters;
 
 /**
  * {@link Controller} that handles the add member page of a logged in user.
  */
 @Controller
-@SessionAttributes(TokenUtil.TOKENCHECK)
 public class AddMemberController {
   private static final Logger LOG = LoggerFactory.getLogger(AddMemberController.class);
 
@@ -67,30 +70,38 @@ public class AddMemberController {
   protected static final String INVITATION_FORM_PARAM = "invitationForm";
   protected static final String RESEND_INVITATION_COMMAND_PARAM = "resendInvitationCommand";
 
+  protected static final int MAX_INVITATION_MAILS_IN_REQUEST = 10;
+
   @Autowired
   private TeamInviteService teamInviteService;
 
+  @Autowired
+  private InvitationJobService invitationJobService;
+
   @Autowired
   private MessageSource messageSource;
 
   @Autowired
   private ControllerUtil controllerUtil;
 
+  @Autowired
+  private CsrfTokenService csrfTokenService;
+
   /**
    * Shows form to invite others to your {@link Team}
    */
   @RequestMapping(value = "/addmember.shtml", method = GET)
   public String addMembersToTeam(Model model, Locale locale, HttpServletRequest request) {
-    Person person = (Person) request.getSession().getAttribute(LoginInterceptor.PERSON_SESSION_KEY);
+    Person person = (Person) request.getAttribute(LoginInterceptor.PERSON_SESSION_KEY);
     Team team = controllerUtil.getTeam(request);
 
-    checkUserHasAdministrativePrivileges(person, team, Optional.empty());
+    checkUserHasAdministrativePrivileges(person, team);
 
     InvitationForm form = new InvitationForm();
     form.setTeamId(team.getId());
     form.setLanguage(Language.find(locale).orElse(Language.English));
 
-    model.addAttribute(TOKENCHECK, TokenUtil.generateSessionToken());
+    model.addAttribute(TOKENCHECK, csrfTokenService.generateToken(request));
     model.addAttribute(INVITATION_FORM_PARAM, form);
     model.addAttribute(ROLES_PARAM, newMemberRoles(person, team));
 
@@ -112,25 +123,22 @@ public class AddMemberController {
    */
   @RequestMapping(value = "/doaddmember.shtml", method = POST, params = "cancelAddMember")
   public RedirectView cancelAddMembers(@ModelAttribute InvitationForm form,
-                                       HttpServletRequest request,
-                                       SessionStatus status) {
-    status.setComplete();
-
+                                       HttpServletRequest request) {
     return new RedirectView(escapeViewParameters("detailteam.shtml?team=%s", form.getTeamId()), false, true, false);
   }
 
   @RequestMapping(value = "/doaddmember.shtml", method = POST)
-  public String doAddMembersToTeam(@ModelAttribute(TOKENCHECK) String sessionToken, @RequestParam String token,
+  public String doAddMembersToTeam(@RequestParam String token,
                                  @ModelAttribute InvitationForm form, BindingResult result,
-                                 HttpServletRequest request, SessionStatus status,
+                                 HttpServletRequest request,
                                  Model model) throws IOException {
-    Person person = (Person) request.getSession().getAttribute(PERSON_SESSION_KEY);
+    Person person = (Person) request.getAttribute(PERSON_SESSION_KEY);
 
-    checkTokens(sessionToken, token, status);
+    csrfTokenService.checkToken(request, token);
     String teamId = form.getTeamId();
     Team team = controllerUtil.getTeamById(teamId);
 
-    checkUserHasAdministrativePrivileges(person, team, Optional.of(status));
+    checkUserHasAdministrativePrivileges(person, team);
     correctRoleIfNeeded(person, form, team);
 
     new InvitationFormValidator().validate(form, result);
@@ -143,14 +151,17 @@ public class AddMemberController {
     }
 
     if (result.hasErrors()) {
+      model.addAttribute(TOKENCHECK, csrfTokenService.generateToken(request));
       model.addAttribute(ROLES_PARAM, newMemberRoles(person, team));
 
       return "addmember";
     }
-    doInviteMembers(team, person, emails, form);
+    Optional<InvitationJob> job = doInviteMembers(team, person, emails, form);
     AuditLog.log("User {} sent invitations for team {}, with role {} to addresses: {}", person.getId(), teamId, form.getIntendedRole(), emails);
 
-    status.setComplete();
+    if (job.isPresent()) {
+      return escapeViewParameters("redirect:detailteam.shtml?team=%s&invitationJob=%s", teamId, job.get().getId());
+    }
     return escapeViewParameters("redirect:detailteam.shtml?team=%s", teamId);
   }
 
@@ -164,7 +175,7 @@ public class AddMemberController {
 
   @RequestMapping(value = "/resendInvitation.shtml", method = GET)
   public String resendInvitation(@RequestParam("id") String invitationId, Model model, HttpServletRequest request) {
-    Person person = (Person) request.getSession().getAttribute(PERSON_SESSION_KEY);
+    Person person = (Person) request.getAttribute(PERSON_SESSION_KEY);
 
     Invitation invitation = teamInviteService.findInvitationByInviteId(invitationId)
         .orElseThrow(() -> new IllegalArgumentException("Cannot find the invitation. Invitations expire after 14 days."));
@@ -172,6 +183,7 @@ public class AddMemberController {
     ResendInvitationCommand command = new ResendInvitationCommand(invitation);
     invitation.getLatestInvitationMessage().ifPresent(msg -> command.setMessageText(msg.getMessage()));
 
+    model.addAttribute(TOKENCHECK, csrfTokenService.generateToken(request));
     model.addAttribute(RESEND_INVITATION_COMMAND_PARAM, command);
     model.addAttribute(ROLES_PARAM, new Role[] {Role.Member, Role.Manager, Role.Admin});
 
@@ -181,15 +193,16 @@ public class AddMemberController {
   @RequestMapping(value = "/doResendInvitation.shtml", method = RequestMethod.POST)
   public String doResendInvitation(Model model,
                                    @Valid @ModelAttribute ResendInvitationCommand command, BindingResult result,
-                                   @ModelAttribute(TOKENCHECK) String sessionToken, @RequestParam String token,
-                                   HttpServletRequest request, SessionStatus status) {
+                                   @RequestParam String token,
+                                   HttpServletRequest request) {
     if (result.hasErrors()) {
+      model.addAttribute(TOKENCHECK, csrfTokenService.generateToken(request));
       model.addAttribute(ROLES_PARAM, new Role[] {Role.Member, Role.Manager, Role.Admin});
       return "resendinvitation";
     }
 
-    Person person = (Person) request.getSession().getAttribute(PERSON_SESSION_KEY);
-    checkTokens(sessionToken, token, status);
+    Person person = (Person) request.getAttribute(PERSON_SESSION_KEY);
+    csrfTokenService.checkToken(request, token);
 
     InvitationMessage invitationMessage = new InvitationMessage(command.getMessageText(), person.getId());
 
@@ -202,13 +215,11 @@ public class AddMemberController {
     invitation.setTimestamp(new Date().getTime());
     teamInviteService.saveOrUpdate(invitation);
 
-    checkUserHasAdministrativePrivileges(person, team, Optional.of(status));
+    checkUserHasAdministrativePrivileges(person, team);
 
     String subject = messageSource.getMessage(INVITE_SEND_INVITE_SUBJECT, new Object[] {team.getName()}, invitation.getLanguage().locale());
     controllerUtil.sendInvitationMail(team, invitation, subject, person);
 
-    status.setComplete();
-
     return escapeViewParameters("redirect:detailteam.shtml?team=%s", invitation.getTeamId());
   }
 
@@ -233,13 +244,19 @@ public class AddMemberController {
     return InternetAddress.parse(sb.toString());
   }
 
-  private void doInviteMembers(Team team, Person inviter, InternetAddress[] emails, InvitationForm form) {
+  private Optional<InvitationJob> doInviteMembers(Team team, Person inviter, InternetAddress[] emails, InvitationForm form) {
     String subject = messageSource.getMessage(INVITE_SEND_INVITE_SUBJECT, new Object[] {team.getName()}, form.getLanguage().locale());
 
-    for (InternetAddress email : emails) {
-      String emailAddress = email.getAddress();
+    // open invitations are matched case insensitive, so addresses differing in case only are one invitee
+    List<String> emailAddresses = Arrays.stream(emails)
+      .map(email -> email.getAddress().toLowerCase(Locale.ROOT))
+      .distinct()
+      .collect(toList());
+    Map<String, Invitation> openInvitations = teamInviteService.findOpenInvitations(emailAddresses, team);
 
-      Invitation invitation = teamInviteService.findOpenInvitation(emailAddress, team)
+    List<Invitation> invitations = new ArrayList<>(emailAddresses.size());
+    for (String emailAddress : emailAddresses) {
+      Invitation invitation = Optional.ofNullable(openInvitations.get(emailAddress))
           .orElse(new Invitation(emailAddress, team.getId()));
 
       if (invitation.isDeclined()) {
@@ -251,19 +268,37 @@ public class AddMemberController {
       invitation.setTimestamp(new Date().getTime());
       invitation.setIntendedRole(form.getIntendedRole());
       invitation.setLanguage(form.getLanguage());
+      invitations.add(invitation);
+    }
+    teamInviteService.saveOrUpdate(invitations);
 
-      teamInviteService.saveOrUpdate(invitation);
+    // rendering and queueing the mails of a large list takes too long to wait for
+    if (invitations.size() > MAX_INVITATION_MAILS_IN_REQUEST) {
+      return Optional.of(invitationJobService.queueInvitationMails(team, invitations, subject, inviter));
+    }
+    for (Invitation invitation : invitations) {
       controllerUtil.sendInvitationMail(team, invitation, subject, inviter);
       AuditLog.log("Sent invitation and saved to database: team: {}, inviter: {}, email: {}, role: {}, hash: {}",
-        team.getId(), inviter.getId(), emailAddress, form.getIntendedRole(), invitation.getInvitationHash());
+        team.getId(), inviter.getId(), invitation.getEmail(), form.getIntendedRole(), invitation.getInvitationHash());
     }
+    return Optional.empty();
   }
 
-  private void checkUserHasAdministrativePrivileges(Person person, Team team, Optional<SessionStatus> status) {
+  /**
+   * Progress of sending the queued invitation mails of a large invitation list
+   */
+  @RequestMapping(value = "/invitationjob.json", method = GET)
+  @ResponseBody
+  public InvitationJob invitationJob(@RequestParam String id, HttpServletRequest request) {
+    Person person = (Person) request.getAttribute(PERSON_SESSION_KEY);
+    InvitationJob job = invitationJobService.findJob(id)
+      .orElseThrow(() -> new IllegalArgumentException("Cannot find the invitation job " + id));
+    checkUserHasAdministrativePrivileges(person, new Team(job.getTeamId()));
+    return job;
+  }
+
+  private void checkUserHasAdministrativePrivileges(Person person, Team team) {
     if (!controllerUtil.hasUserAdministrativePrivileges(person, team)) {
-      if (status.isPresent()) {
-        status.get().setComplete();
-      }
       throw new RuntimeException(String.format(
         "Requester (%s) is not member or does not have the correct privileges to add (a) member(s)", person.getId()));
     }
@@ -29,8 +29,6 @@ import org.springframework.web.bind.annotation.InitBinder;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
-import org.springframework.web.bind.annotation.SessionAttributes;
-import org.springframework.web.bind.support.SessionStatus;
 import teams.Application;
 import teams.domain.Invitation;
 import teams.domain.InvitationMessage;
@@ -40,12 +38,11 @@ import teams.domain.Role;
 import teams.domain.Stem;
 import teams.domain.Team;
 import teams.service.GrouperTeamService;
-import teams.service.TeamInviteService;
 import teams.util.AuditLog;
 import teams.util.ControllerUtil;
 import teams.util.DuplicateTeamException;
 import teams.util.PermissionUtil;
-import teams.util.TokenUtil;
+import teams.util.CsrfTokenService;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
@@ -60,15 +57,13 @@ import static org.springframework.web.bind.annotation.RequestMethod.GET;
 import static org.springframework.web.bind.annotation.RequestMethod.POST;
 import static teams.control.AddMemberController.INVITE_SEND_INVITE_SUBJECT;
 import static teams.interceptor.LoginInterceptor.PERSON_SESSION_KEY;
-import static teams.util.TokenUtil.TOKENCHECK;
-import static teams.util.TokenUtil.checkTokens;
+import static teams.util.CsrfTokenService.TOKENCHECK;
 import static teams.util.ViewUtil.escapeViewParameters;
 
 /**
  * {@link Controller} that handles the add team page of a logged in user.
  */
 @Controller
-@SessionAttributes(TokenUtil.TOKENCHECK)
 public class AddTeamController {
 
   @Autowired
@@ -84,14 +79,11 @@ public class AddTeamController {
   private ControllerUtil controllerUtil;
 
   @Autowired
-  private TeamInviteService teamInviteService;
+  private CsrfTokenService csrfTokenService;
 
   @Value("${defaultStemName}")
   private String defaultStemName;
 
-  @Value("${grouperPowerUser}")
-  private String grouperPowerUser;
-
   @InitBinder
   protected void initBinder(ServletRequestDataBinder binder) throws Exception {
     binder.registerCustomEditor(Stem.class, "stem", new PropertyEditorSupport() {
@@ -109,7 +101,7 @@ public class AddTeamController {
       return "redirect:home.shtml";
     }
 
-    Person person = (Person) request.getSession().getAttribute(PERSON_SESSION_KEY);
+    Person person = (Person) request.getAttribute(PERSON_SESSION_KEY);
 
     List<Stem> stems = getStemsForMember(person);
 
@@ -118,7 +110,7 @@ public class AddTeamController {
 
     model.addAttribute("hasMultipleStems", stems.size() > 1);
     model.addAttribute("stems", stems);
-    model.addAttribute(TOKENCHECK, TokenUtil.generateSessionToken());
+    model.addAttribute(TOKENCHECK, csrfTokenService.generateToken(request));
     model.addAttribute("addTeamCommand", command);
 
     return "addteam";
@@ -127,19 +119,19 @@ public class AddTeamController {
   @RequestMapping(value = "/doaddteam.shtml", method = POST)
   public String doAddTeam(
     @RequestParam String token,
-    @ModelAttribute(TOKENCHECK) String sessionToken,
     @Valid @ModelAttribute AddTeamCommand addTeamCommand,
     BindingResult bindingResult,
     Model model,
-    HttpServletRequest request, SessionStatus status) throws IOException {
+    HttpServletRequest request) throws IOException {
 
-    Person person = (Person) request.getSession().getAttribute(PERSON_SESSION_KEY);
+    Person person = (Person) request.getAttribute(PERSON_SESSION_KEY);
 
-    checkTokens(sessionToken, token, status);
+    csrfTokenService.checkToken(request, token);
     checkNotGuest(request);
     checkAllowedStem(addTeamCommand.getStem(), person);
 
     if (bindingResult.hasErrors()) {
+      model.addAttribute(TOKENCHECK, csrfTokenService.generateToken(request));
       return "addteam";
     }
 
@@ -147,24 +139,23 @@ public class AddTeamController {
     String teamName = addTeamCommand.getTeamName().replace(":", "");
     String teamDescription = addTeamCommand.getTeamDescription();
 
-    String teamId;
-    try {
-      teamId = grouperTeamService.addTeam(teamName, teamName, teamDescription, stemId);
+    Invitation adminInvitation = adminInvitation(addTeamCommand, person);
 
-      AuditLog.log("User {} added team (name: {}, id: {}) with stem {}", person.getId(), teamName, teamId, stemId);
+    Team team;
+    try {
+      team = grouperTeamService.createTeam(teamName, teamName, teamDescription, stemId, addTeamCommand.isViewable(),
+        person, adminInvitation);
     } catch (DuplicateTeamException e) {
       bindingResult.rejectValue("teamName", "jsp.addteam.error.duplicate");
+      model.addAttribute(TOKENCHECK, csrfTokenService.generateToken(request));
       return "addteam";
     }
-    Team team = grouperTeamService.findTeamById(teamId);
-
-    inviteAdmin(team, addTeamCommand, teamId, person);
+    String teamId = team.getId();
+    AuditLog.log("User {} added team (name: {}, id: {}) with stem {}", person.getId(), teamName, teamId, stemId);
 
-    grouperTeamService.setVisibilityGroup(teamId, addTeamCommand.isViewable());
-    grouperTeamService.addMember(team, person);
-    grouperTeamService.addMemberRole(team, person.getId(), Role.Admin, grouperPowerUser);
-
-    status.setComplete();
+    if (adminInvitation != null) {
+      sendAdminInvitation(team, addTeamCommand, adminInvitation, person);
+    }
 
     if (environment.acceptsProfiles(Application.GROUPZY_PROFILE_NAME)) {
       return escapeViewParameters("redirect:/%s/service-providers.shtml", teamId);
@@ -195,12 +186,13 @@ public class AddTeamController {
     }
   }
 
-  private void inviteAdmin(Team team, AddTeamCommand command, String teamId, Person inviter) {
+  private Invitation adminInvitation(AddTeamCommand command, Person inviter) {
     if (!StringUtils.hasText(command.getAdmin2Email())) {
-      return;
+      return null;
     }
 
-    Invitation invitation = new Invitation(command.getAdmin2Email(), teamId);
+    //the team id is set when the team is created
+    Invitation invitation = new Invitation(command.getAdmin2Email(), null);
     invitation.setIntendedRole(Role.Admin);
     invitation.setTimestamp(new Date().getTime());
     invitation.setLanguage(command.getAdmin2Language());
@@ -208,13 +200,16 @@ public class AddTeamController {
     InvitationMessage message = new InvitationMessage(command.getAdmin2Message(), inviter.getId());
 
     invitation.addInvitationMessage(message);
-    teamInviteService.saveOrUpdate(invitation);
+    return invitation;
+  }
+
+  private void sendAdminInvitation(Team team, AddTeamCommand command, Invitation invitation, Person inviter) {
     String subject = messageSource.getMessage(INVITE_SEND_INVITE_SUBJECT, new Object[]{command.getTeamName()}, command.getAdmin2Language().locale());
 
     controllerUtil.sendInvitationMail(team, invitation, subject, inviter);
 
     AuditLog.log("Sent invitation and saved to database: team: {}, inviter: {}, hash: {}, email: {}, role: {}",
-      teamId, inviter.getId(), invitation.getInvitationHash(), command.getAdmin2Email(), invitation.getIntendedRole());
+      team.getId(), inviter.getId(), invitation.getInvitationHash(), command.getAdmin2Email(), invitation.getIntendedRole());
   }
 
   private List<Stem> getStemsForMember(Person person) {
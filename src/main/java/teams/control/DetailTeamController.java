@@ -27,7 +27,6 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.ModelMap;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.bind.support.SessionStatus;
 import org.springframework.web.servlet.LocaleResolver;
 import org.springframework.web.servlet.view.RedirectView;
 import teams.Application;
@@ -36,25 +35,25 @@ import teams.interceptor.LoginInterceptor;
 import teams.service.*;
 import teams.util.AuditLog;
 import teams.util.ControllerUtil;
-import teams.util.TokenUtil;
+import teams.util.CsrfTokenService;
 
 import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static java.net.URLDecoder.decode;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static teams.interceptor.LoginInterceptor.PERSON_SESSION_KEY;
-import static teams.util.TokenUtil.*;
+import static teams.util.CsrfTokenService.TOKENCHECK;
 import static teams.util.ViewUtil.escapeViewParameters;
 
 /**
  * {@link Controller} that handles the detail team page of a logged in user.
  */
 @Controller
-@SessionAttributes(TokenUtil.TOKENCHECK)
 public class DetailTeamController {
 
   private static final Logger LOG = LoggerFactory.getLogger(DetailTeamController.class);
@@ -93,6 +92,9 @@ public class DetailTeamController {
   @Autowired
   private MessageSource messageSource;
 
+  @Autowired
+  private CsrfTokenService csrfTokenService;
+
   @Value("${grouperPowerUser}")
   private String grouperPowerUser;
 
@@ -105,17 +107,12 @@ public class DetailTeamController {
   @RequestMapping("/detailteam.shtml")
   public String detailTeam(ModelMap modelMap, HttpServletRequest request, Locale locale,
       @RequestParam("team") String teamId,
-      @RequestParam(value = "mes", required = false) String message) throws IOException {
-
-    Person person = (Person) request.getSession().getAttribute(LoginInterceptor.PERSON_SESSION_KEY);
+      @RequestParam(value = "mes", required = false) String message,
+      @RequestParam(value = "memberSearch", required = false) String memberSearch) throws IOException {
 
-    Team team = findTeam(teamId, () -> {});
+    Person person = (Person) request.getAttribute(LoginInterceptor.PERSON_SESSION_KEY);
 
-    Set<Role> roles = team.getMembers().stream()
-        .filter(m -> m.getId().equals(person.getId()))
-        .findFirst()
-        .map(Member::getRoles)
-        .orElse(Collections.emptySet());
+    Team team = findTeamSummary(teamId, () -> {});
 
     if (StringUtils.hasText(message) && messageExists(message, locale)) {
       modelMap.addAttribute("message", message);
@@ -125,17 +122,38 @@ public class DetailTeamController {
     boolean onlyAdmin = grouperTeamService.findAdmins(team).size() <= 1;
     modelMap.addAttribute("onlyAdmin", onlyAdmin);
 
-    modelMap.addAttribute(INVITATIONS_PARAM, teamInviteService.findInvitationsForTeamExcludeAccepted(team));
+    List<Invitation> invitations = teamInviteService.findInvitationsForTeamExcludeAccepted(team);
+    modelMap.addAttribute(INVITATIONS_PARAM, invitations);
+
+    // the logged in person and the inviters are looked up together instead of searching the whole team
+    Set<String> memberIds = invitations.stream()
+        .flatMap(invitation -> invitation.getInvitationMessages().stream())
+        .map(InvitationMessage::getInviter)
+        .filter(Objects::nonNull)
+        .collect(Collectors.toCollection(HashSet::new));
+    memberIds.add(person.getId());
+    Map<String, Member> knownMembers = grouperTeamService.findMembers(teamId, memberIds).stream()
+        .collect(Collectors.toMap(Member::getId, Function.identity()));
+    modelMap.addAttribute("inviters", knownMembers);
+
+    Set<Role> roles = Optional.ofNullable(knownMembers.get(person.getId()))
+        .map(Member::getRoles)
+        .orElse(Collections.emptySet());
 
     int offset = getOffset(request);
-    modelMap.addAttribute("pager", new Pager(team.getMembers().size(), offset, PAGESIZE));
+    MemberResultWrapper members = grouperTeamService.findMembers(teamId, memberSearch, offset, PAGESIZE);
+    modelMap.addAttribute("members", members.getMembers());
+    modelMap.addAttribute("pager", members.getPager());
+    if (StringUtils.hasText(memberSearch)) {
+      modelMap.addAttribute("memberQuery", memberSearch);
+    }
 
     modelMap.addAttribute("team", team);
     modelMap.addAttribute("adminRole", Role.Admin);
     modelMap.addAttribute("managerRole", Role.Manager);
     modelMap.addAttribute("memberRole", Role.Member);
     modelMap.addAttribute("noRole", Role.None);
-    modelMap.addAttribute(TOKENCHECK, generateSessionToken());
+    modelMap.addAttribute(TOKENCHECK, csrfTokenService.generateToken(request));
 
     modelMap.addAttribute("maxInvitations", maxInvitations);
 
@@ -203,22 +221,17 @@ public class DetailTeamController {
 
   @RequestMapping(value = "/doleaveteam.shtml", method = RequestMethod.POST)
   public RedirectView leaveTeam(ModelMap modelMap, HttpServletRequest request,
-                                @ModelAttribute(TokenUtil.TOKENCHECK) String sessionToken,
-                                @RequestParam String token, @RequestParam("team") String teamId, SessionStatus status) {
-    Person person = (Person) request.getSession().getAttribute(LoginInterceptor.PERSON_SESSION_KEY);
+                                @RequestParam String token, @RequestParam("team") String teamId) {
+    Person person = (Person) request.getAttribute(LoginInterceptor.PERSON_SESSION_KEY);
     String personId = person.getId();
 
-    Runnable endingRequest = () -> {
-      status.setComplete();
-      modelMap.clear();
-    };
+    Runnable endingRequest = modelMap::clear;
 
     Team team = findTeam(teamId, endingRequest);
 
     Set<Member> admins = grouperTeamService.findAdmins(team);
 
     if (admins.size() == 1 && admins.iterator().next().getId().equals(personId)) {
-      status.setComplete();
       return new RedirectView(escapeViewParameters("detailteam.shtml?team=%s&mes=%s", teamId, ADMIN_LEAVE_TEAM), false, true, false);
     }
 
@@ -232,24 +245,19 @@ public class DetailTeamController {
 
   @RequestMapping(value = "/dodeleteteam.shtml", method = RequestMethod.POST)
   public RedirectView deleteTeam(ModelMap modelMap, HttpServletRequest request,
-                                 @ModelAttribute(TokenUtil.TOKENCHECK) String sessionToken,
-                                 @RequestParam String token, @RequestParam("team") String teamId, SessionStatus status) throws UnsupportedEncodingException {
-    checkTokens(sessionToken, token, status);
+                                 @RequestParam String token, @RequestParam("team") String teamId) throws UnsupportedEncodingException {
+    csrfTokenService.checkToken(request, token);
 
-    Runnable endingRequest = () -> {
-      status.setComplete();
-      modelMap.clear();
-    };
+    Runnable endingRequest = modelMap::clear;
 
-    Person person = (Person) request.getSession().getAttribute(LoginInterceptor.PERSON_SESSION_KEY);
+    Person person = (Person) request.getAttribute(LoginInterceptor.PERSON_SESSION_KEY);
     String personId = person.getId();
 
     validateArgument(teamId, endingRequest);
 
-    Team team = grouperTeamService.findTeamById(teamId);
+    Team team = grouperTeamService.findTeamSummaryById(teamId);
 
-    Member member = grouperTeamService.findMember(team, personId);
-    if (member.getRoles().contains(Role.Admin)) {
+    if (grouperTeamService.hasRole(teamId, personId, Role.Admin)) {
       // Delete the team
       List<Invitation> invitationsForTeam = teamInviteService.findAllInvitationsForTeam(team);
       for (Invitation invitation : invitationsForTeam) {
@@ -263,8 +271,6 @@ public class DetailTeamController {
 
       AuditLog.log("User {} deleted team {}", personId, teamId);
 
-      status.setComplete();
-
       return new RedirectView("home.shtml?teams=my", false, true, false);
     }
 
@@ -276,16 +282,14 @@ public class DetailTeamController {
   @RequestMapping(value = "/dodeletemember.shtml", method = RequestMethod.GET)
   public RedirectView deleteMember(ModelMap modelMap,
                                    HttpServletRequest request,
-                                   @ModelAttribute(TokenUtil.TOKENCHECK) String sessionToken,
-                                   @RequestParam String token, @RequestParam("team") String teamId, SessionStatus status) throws UnsupportedEncodingException {
-    checkTokens(sessionToken, token, status);
+                                   @RequestParam String token, @RequestParam("team") String teamId) throws UnsupportedEncodingException {
+    csrfTokenService.checkToken(request, token);
 
     String personId = decode(request.getParameter(MEMBER_PARAM), UTF_8.name());
-    Person ownerPerson = (Person) request.getSession().getAttribute(LoginInterceptor.PERSON_SESSION_KEY);
+    Person ownerPerson = (Person) request.getAttribute(LoginInterceptor.PERSON_SESSION_KEY);
     String ownerId = ownerPerson.getId();
 
     if (!StringUtils.hasText(teamId) || !StringUtils.hasText(personId)) {
-      status.setComplete();
       modelMap.clear();
       throw new RuntimeException("Parameter error.");
     }
@@ -303,7 +307,6 @@ public class DetailTeamController {
       grouperTeamService.deleteMember(team, personId);
       AuditLog.log("Admin user {} deleted user {} from team {}", ownerId, personId, teamId);
 
-      status.setComplete();
       modelMap.clear();
 
       return new RedirectView(escapeViewParameters("detailteam.shtml?team=%s", teamId));
@@ -313,13 +316,11 @@ public class DetailTeamController {
       grouperTeamService.deleteMember(team, personId);
       AuditLog.log("Manager user {} deleted user {} from team {}", ownerId, personId, teamId);
 
-      status.setComplete();
       modelMap.clear();
 
       return new RedirectView(escapeViewParameters("detailteam.shtml?team=%s", teamId));
     }
 
-    status.setComplete();
     modelMap.clear();
 
     return new RedirectView(escapeViewParameters("detailteam.shtml?team=%s&mes=%s", teamId, NOT_AUTHORIZED_DELETE_MEMBER));
@@ -327,9 +328,8 @@ public class DetailTeamController {
 
   @RequestMapping(value = "/doaddremoverole.shtml", method = RequestMethod.POST)
   public RedirectView addOrRemoveRole(ModelMap modelMap, HttpServletRequest request,
-                                      @ModelAttribute(TokenUtil.TOKENCHECK) String sessionToken,
-                                      @RequestParam String token, SessionStatus status) throws IOException {
-    checkTokens(sessionToken, token, status);
+                                      @RequestParam String token) throws IOException {
+    csrfTokenService.checkToken(request, token);
 
     String teamId = request.getParameter("teamId");
     String memberId = request.getParameter("memberId");
@@ -338,21 +338,18 @@ public class DetailTeamController {
     String action = request.getParameter("doAction");
 
     if (!StringUtils.hasText(teamId)) {
-      status.setComplete();
       modelMap.clear();
       return new RedirectView("home.shtml?teams=my");
     }
 
     if (!StringUtils.hasText(memberId) || !StringUtils.hasText(roleString) || !validAction(action)) {
-      status.setComplete();
       modelMap.clear();
       return new RedirectView(escapeViewParameters("detailteam.shtml?team=%s&mes=no.role.action&offset=%s", teamId, offset));
     }
 
-    Person person = (Person) request.getSession().getAttribute(PERSON_SESSION_KEY);
+    Person person = (Person) request.getAttribute(PERSON_SESSION_KEY);
     Team team = grouperTeamService.findTeamById(teamId);
     if (team == null) {
-      status.setComplete();
       modelMap.clear();
       return new RedirectView("home.shtml?teams=my");
     }
@@ -364,7 +361,6 @@ public class DetailTeamController {
       message = addRole(team, memberId, roleString, person.getId());
     }
 
-    status.setComplete();
     modelMap.clear();
 
     return new RedirectView(escapeViewParameters("detailteam.shtml?team=%s&mes=%s&offset=%d", teamId, message, offset));
@@ -406,33 +402,28 @@ public class DetailTeamController {
 
   @RequestMapping(value = "/dodeleterequest.shtml", method = RequestMethod.POST)
   public RedirectView deleteJoinRequest(HttpServletRequest request, ModelMap modelMap,
-                                    @ModelAttribute(TokenUtil.TOKENCHECK) String sessionToken,
-                                    @RequestParam String token, @RequestParam("team") String teamId, SessionStatus status) throws UnsupportedEncodingException {
-    return doHandleJoinRequest(modelMap, request, sessionToken, token, teamId, status, false);
+                                    @RequestParam String token, @RequestParam("team") String teamId) throws UnsupportedEncodingException {
+    return doHandleJoinRequest(modelMap, request, token, teamId, false);
   }
 
   @RequestMapping(value = "/doapproverequest.shtml", method = RequestMethod.POST)
   public RedirectView approveJoinRequest(HttpServletRequest request, ModelMap modelMap,
-                                     @ModelAttribute(TokenUtil.TOKENCHECK) String sessionToken,
-                                     @RequestParam() String token, @RequestParam("team") String teamId, SessionStatus status) throws UnsupportedEncodingException {
-    return doHandleJoinRequest(modelMap, request, sessionToken, token, teamId, status, true);
+                                     @RequestParam() String token, @RequestParam("team") String teamId) throws UnsupportedEncodingException {
+    return doHandleJoinRequest(modelMap, request, token, teamId, true);
   }
 
   private RedirectView doHandleJoinRequest(ModelMap modelMap,
-                                           HttpServletRequest request, String sessionToken, String token, String teamId,
-                                           SessionStatus status, boolean approve) throws UnsupportedEncodingException {
-    checkTokens(sessionToken, token, status);
+                                           HttpServletRequest request, String token, String teamId,
+                                           boolean approve) throws UnsupportedEncodingException {
+    csrfTokenService.checkToken(request, token);
 
-    Runnable endingRequest = () -> {
-      status.setComplete();
-      modelMap.clear();
-    };
+    Runnable endingRequest = modelMap::clear;
 
     String memberId = decode(request.getParameter(MEMBER_PARAM), UTF_8.name());
     Team team = findTeam(teamId, endingRequest);
     JoinTeamRequest pendingRequest = findJoinTeamRequest(memberId, team, endingRequest);
 
-    Person loggedInPerson = (Person) request.getSession().getAttribute(LoginInterceptor.PERSON_SESSION_KEY);
+    Person loggedInPerson = (Person) request.getAttribute(LoginInterceptor.PERSON_SESSION_KEY);
 
     // Check if the user has the correct privileges
     if (!controllerUtil.hasUserAdministrativePrivileges(loggedInPerson, team)) {
@@ -468,6 +459,12 @@ public class DetailTeamController {
     }
   }
 
+  private Team findTeamSummary(String teamId, Runnable missing) {
+    validateArgument(teamId, missing);
+
+    return grouperTeamService.findTeamSummaryById(teamId);
+  }
+
   private Team findTeam(String teamId, Runnable missing) {
     validateArgument(teamId, missing);
 
@@ -20,7 +20,6 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.ModelMap;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.bind.support.SessionStatus;
 import org.springframework.web.servlet.view.RedirectView;
 import teams.domain.Person;
 import teams.domain.Team;
@@ -28,7 +27,7 @@ import teams.interceptor.LoginInterceptor;
 import teams.service.GrouperTeamService;
 import teams.util.AuditLog;
 import teams.util.ControllerUtil;
-import teams.util.TokenUtil;
+import teams.util.CsrfTokenService;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -38,7 +37,6 @@ import static teams.util.ViewUtil.escapeViewParameters;
  * {@link Controller} that handles the edit team page of a logged in user.
  */
 @Controller
-@SessionAttributes({TokenUtil.TOKENCHECK})
 public class EditTeamController {
 
   @Autowired
@@ -47,9 +45,12 @@ public class EditTeamController {
   @Autowired
   private ControllerUtil controllerUtil;
 
+  @Autowired
+  private CsrfTokenService csrfTokenService;
+
   @RequestMapping("/editteam.shtml")
   public String start(ModelMap modelMap, HttpServletRequest request) {
-    Person person = (Person) request.getSession().getAttribute(LoginInterceptor.PERSON_SESSION_KEY);
+    Person person = (Person) request.getAttribute(LoginInterceptor.PERSON_SESSION_KEY);
     Team team = getTeam(request);
 
     // Check if a user has the privileges to edit the team
@@ -59,7 +60,7 @@ public class EditTeamController {
     }
 
     modelMap.addAttribute("team", team);
-    modelMap.addAttribute(TokenUtil.TOKENCHECK, TokenUtil.generateSessionToken());
+    modelMap.addAttribute(CsrfTokenService.TOKENCHECK, csrfTokenService.generateToken(request));
 
     return "editteam";
   }
@@ -67,12 +68,10 @@ public class EditTeamController {
   @RequestMapping(value = "/doeditteam.shtml", method = RequestMethod.POST)
   public RedirectView editTeam(ModelMap modelMap,
                                HttpServletRequest request,
-                               @ModelAttribute(TokenUtil.TOKENCHECK) String sessionToken,
-                               @RequestParam() String token,
-                               SessionStatus status) {
-    TokenUtil.checkTokens(sessionToken, token, status);
+                               @RequestParam() String token) {
+    csrfTokenService.checkToken(request, token);
 
-    Person person = (Person) request.getSession().getAttribute(LoginInterceptor.PERSON_SESSION_KEY);
+    Person person = (Person) request.getAttribute(LoginInterceptor.PERSON_SESSION_KEY);
     String teamId = request.getParameter("team");
     String teamDescription = request.getParameter("description");
 
@@ -96,7 +95,6 @@ public class EditTeamController {
       team.getName(), team.getDescription(), team.isViewable(),
       teamName, teamDescription, viewable);
 
-    status.setComplete();
     modelMap.clear();
 
     return new RedirectView(escapeViewParameters("detailteam.shtml?team=%s", teamId));
@@ -45,8 +45,8 @@ public class ExternalGroupController {
   @RequestMapping("/groupdetail.shtml")
   public String groupDetail(@RequestParam String groupId, HttpServletRequest request, ModelMap modelMap) {
     @SuppressWarnings("unchecked")
-    List<ExternalGroup> externalGroups = Optional.ofNullable((List<ExternalGroup>) request.getSession().getAttribute(EXTERNAL_GROUPS_SESSION_KEY)).orElseGet(() -> {
-      Person person = (Person) request.getSession().getAttribute(PERSON_SESSION_KEY);
+    List<ExternalGroup> externalGroups = Optional.ofNullable((List<ExternalGroup>) request.getAttribute(EXTERNAL_GROUPS_SESSION_KEY)).orElseGet(() -> {
+      Person person = (Person) request.getAttribute(PERSON_SESSION_KEY);
       LOG.info("Could not find externalGroups in session, calling voot for {}", person);
       return vootClient.groups(person.getId());
     });
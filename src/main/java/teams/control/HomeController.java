@@ -35,6 +35,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.util.stream.Collectors.toList;
@@ -65,7 +66,7 @@ public class HomeController {
                       @RequestParam(required = false, defaultValue = "my") String teams,
                       @RequestParam(required = false) String teamSearch,
                       @RequestParam(required = false) String groupProviderId) {
-    Person person = (Person) request.getSession().getAttribute(PERSON_SESSION_KEY);
+    Person person = (Person) request.getAttribute(PERSON_SESSION_KEY);
 
     checkNotNull(person, "No user set. Is shibboleth configured correctly?");
 
@@ -95,10 +96,10 @@ public class HomeController {
 
   private List<ExternalGroup> getExternalGroups(Person person, HttpServletRequest request) {
     @SuppressWarnings("unchecked")
-    List<ExternalGroup> groups = (List<ExternalGroup>) request.getSession().getAttribute(EXTERNAL_GROUPS_SESSION_KEY);
+    List<ExternalGroup> groups = (List<ExternalGroup>) request.getAttribute(EXTERNAL_GROUPS_SESSION_KEY);
     if (groups == null) {
       groups = vootClient.groups(person.getId());
-      request.getSession().setAttribute(EXTERNAL_GROUPS_SESSION_KEY, groups);
+      request.setAttribute(EXTERNAL_GROUPS_SESSION_KEY, groups);
     }
 
     return groups;
@@ -134,15 +135,17 @@ public class HomeController {
     // Display all teams when the person is empty or when display equals "all"
     if ("all".equals(display) || !StringUtils.hasText(person)) {
       if (StringUtils.hasText(query)) {
-        List<Team> matchingTeams = grouperTeamService.findPublicTeams(person, query);
-        resultWrapper = new TeamResultWrapper(matchingTeams, matchingTeams.size(), 0, Integer.MAX_VALUE);
+        resultWrapper = grouperTeamService.findPublicTeams(person, query, offset, PAGESIZE);
       } else {
         resultWrapper = new TeamResultWrapper(new ArrayList<>(), 0, 0, 1);
       }
       modelMap.addAttribute("display", "all");
       // else always display my teams
     } else {
-      if (StringUtils.hasText(query)) {
+      Optional<TeamCursor> after = TeamCursor.decode(request.getParameter("after"));
+      if (after.isPresent()) {
+        resultWrapper = grouperTeamService.findTeamsByMember(person, query, after.get(), offset, PAGESIZE);
+      } else if (StringUtils.hasText(query)) {
         resultWrapper = grouperTeamService.findTeamsByMember(person, query, offset, PAGESIZE);
       } else {
         resultWrapper = grouperTeamService.findAllTeamsByMember(person, offset, PAGESIZE);
@@ -161,7 +164,7 @@ public class HomeController {
   @RequestMapping("/findPublicTeams.json")
   @ResponseBody
   public TeamResultWrapper findTeams(HttpServletRequest request, @RequestParam(required = false) String teamSearch) {
-    Person person = (Person) request.getSession().getAttribute(LoginInterceptor.PERSON_SESSION_KEY);
+    Person person = (Person) request.getAttribute(LoginInterceptor.PERSON_SESSION_KEY);
 
     List<Team> matchedTeams = grouperTeamService.findPublicTeams(person.getId(), teamSearch);
 
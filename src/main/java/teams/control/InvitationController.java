@@ -23,7 +23,6 @@ import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.ModelMap;
 import org.springframework.util.StringUtils;
-import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.SessionAttributes;
@@ -38,21 +37,20 @@ import teams.service.TeamInviteService;
 import teams.service.TeamsDao;
 import teams.util.AuditLog;
 import teams.util.ControllerUtil;
-import teams.util.TokenUtil;
+import teams.util.CsrfTokenService;
 
 import javax.servlet.http.HttpServletRequest;
 import java.io.UnsupportedEncodingException;
 import java.util.*;
 
 import static java.util.stream.Collectors.toList;
-import static teams.util.TokenUtil.checkTokens;
 import static teams.util.ViewUtil.escapeViewParameters;
 
 /**
  * {@link Controller} that handles the accept/decline of an Invitation
  */
 @Controller
-@SessionAttributes({"invitation", TokenUtil.TOKENCHECK})
+@SessionAttributes("invitation")
 public class InvitationController {
 
   @Autowired
@@ -64,6 +62,9 @@ public class InvitationController {
   @Autowired
   private ControllerUtil controllerUtil;
 
+  @Autowired
+  private CsrfTokenService csrfTokenService;
+
   @Autowired(required = false)
   private TeamsDao teamsDao;
 
@@ -148,7 +149,7 @@ public class InvitationController {
    */
   @RequestMapping(value = "/doAcceptInvitation.shtml")
   public ModelAndView doAccept(ModelMap modelMap, HttpServletRequest request) {
-    Person person = (Person) request.getSession().getAttribute(LoginInterceptor.PERSON_SESSION_KEY);
+    Person person = (Person) request.getAttribute(LoginInterceptor.PERSON_SESSION_KEY);
 
     Optional<Invitation> invitationO = getInvitationByRequest(request);
     if (redirectToInvitationErrorPage(invitationO, modelMap)) {
@@ -191,7 +192,7 @@ public class InvitationController {
   public String decline(ModelMap modelMap, HttpServletRequest request) {
     String viewTemplate = "invitationdeclined";
 
-    Person person = (Person) request.getSession().getAttribute(LoginInterceptor.PERSON_SESSION_KEY);
+    Person person = (Person) request.getAttribute(LoginInterceptor.PERSON_SESSION_KEY);
 
     Optional<Invitation> invitationO = getInvitationByRequest(request);
 
@@ -218,14 +219,13 @@ public class InvitationController {
    */
   @RequestMapping(value = "/deleteInvitation.shtml")
   public RedirectView deleteInvitation(HttpServletRequest request,
-                                       @ModelAttribute(TokenUtil.TOKENCHECK) String sessionToken,
                                        @RequestParam String token,
                                        @RequestParam String id,
                                        SessionStatus status,
                                        ModelMap modelMap) {
-    checkTokens(sessionToken, token, status);
+    csrfTokenService.checkToken(request, token);
 
-    Person person = (Person) request.getSession().getAttribute(LoginInterceptor.PERSON_SESSION_KEY);
+    Person person = (Person) request.getAttribute(LoginInterceptor.PERSON_SESSION_KEY);
 
     if (person == null) {
       status.setComplete();
@@ -254,7 +254,7 @@ public class InvitationController {
 
   @RequestMapping("/myinvitations.shtml")
   public String myInvitations(ModelMap modelMap, HttpServletRequest request) {
-    Person person = (Person) request.getSession().getAttribute(LoginInterceptor.PERSON_SESSION_KEY);
+    Person person = (Person) request.getAttribute(LoginInterceptor.PERSON_SESSION_KEY);
     String email = person.getEmail();
     if (!StringUtils.hasText(email)) {
       throw new IllegalArgumentException("Your profile does not contain an email address");
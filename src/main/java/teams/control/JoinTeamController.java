@@ -74,7 +74,7 @@ public class JoinTeamController {
     if (team == null) {
       throw new RuntimeException("Cannot find team for parameter 'team'");
     }
-    Person person = (Person) request.getSession().getAttribute(LoginInterceptor.PERSON_SESSION_KEY);
+    Person person = (Person) request.getAttribute(LoginInterceptor.PERSON_SESSION_KEY);
 
     JoinTeamRequest joinTeamRequest = joinTeamRequestService.findPendingRequest(person.getId(), team.getId());
     if (joinTeamRequest == null) {
@@ -97,7 +97,7 @@ public class JoinTeamController {
       throw new IllegalStateException("The team you requested to join is private.");
     }
 
-    Person person = (Person) request.getSession().getAttribute(LoginInterceptor.PERSON_SESSION_KEY);
+    Person person = (Person) request.getAttribute(LoginInterceptor.PERSON_SESSION_KEY);
 
     String message = joinTeamRequest.getMessage();
 
@@ -0,0 +1,48 @@
+package teams.domain;
+
+/**
+ * Progress of sending the queued invitation mails of one bulk invitation in the background.
+ */
+public class InvitationJob {
+
+  private final String id;
+  private final String teamId;
+  private final int total;
+  private final int queued;
+  private final int failed;
+
+  public InvitationJob(String id, String teamId, int total, int queued, int failed) {
+    this.id = id;
+    this.teamId = teamId;
+    this.total = total;
+    this.queued = queued;
+    this.failed = failed;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public String getTeamId() {
+    return teamId;
+  }
+
+  public int getTotal() {
+    return total;
+  }
+
+  /**
+   * @return the mails that were sent, or dropped because their invitation was deleted or answered in the meantime
+   */
+  public int getSent() {
+    return total - queued - failed;
+  }
+
+  public int getFailed() {
+    return failed;
+  }
+
+  public boolean isFinished() {
+    return queued == 0;
+  }
+}
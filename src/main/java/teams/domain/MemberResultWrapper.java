@@ -0,0 +1,67 @@
+/*
+ * Copyright 2012 SURFnet bv, The Netherlands
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package teams.domain;
+
+import org.apache.commons.lang.builder.ToStringBuilder;
+import org.apache.commons.lang.builder.ToStringStyle;
+
+import java.util.List;
+
+/**
+ * Result for a members query
+ */
+public class MemberResultWrapper {
+
+  private List<Member> members;
+  private long totalCount;
+  private int offset;
+  private int pageSize;
+
+  public MemberResultWrapper(List<Member> members, long totalCount, int offset, int pageSize) {
+    this.members = members;
+    this.totalCount = totalCount;
+    this.offset = offset;
+    this.pageSize = pageSize;
+  }
+
+  /**
+   * @return the members on the current page
+   */
+  public List<Member> getMembers() {
+    return members;
+  }
+
+  public long getTotalCount() {
+    return totalCount;
+  }
+
+  /**
+   * @return {@link Pager}
+   */
+  public Pager getPager() {
+    return new Pager(totalCount, offset, pageSize);
+  }
+
+  public String toString() {
+    return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+      .append("totalCount", totalCount)
+      .append("offset", offset)
+      .append("pageSize", pageSize)
+      .append("members", members)
+      .toString();
+  }
+}
@@ -16,6 +16,8 @@
 
 package teams.domain;
 
+import java.util.Objects;
+
 /**
  * POJO for a Page within paging
  */
@@ -24,11 +26,20 @@ public class Page {
   private int pageNumber;
   private int offset;
   private boolean currentPage;
+  private String after;
 
   public Page(int pageNumber, int offset, boolean currentPage) {
+    this(pageNumber, offset, currentPage, null);
+  }
+
+  /**
+   * @param after encoded {@link TeamCursor} that lets this page be fetched without an offset scan
+   */
+  public Page(int pageNumber, int offset, boolean currentPage, String after) {
     this.pageNumber = pageNumber;
     this.offset = offset;
     this.currentPage = currentPage;
+    this.after = after;
   }
 
   public int getPageNumber() {
@@ -50,6 +61,13 @@ public class Page {
     return currentPage;
   }
 
+  /**
+   * @return encoded {@link TeamCursor} for this {@link Page} or {@literal null} if only the offset is known
+   */
+  public String getAfter() {
+    return after;
+  }
+
   @Override
   public boolean equals(Object obj) {
     if (this == obj) {
@@ -61,7 +79,8 @@ public class Page {
     Page that = (Page) obj;
     return (this.pageNumber == that.pageNumber
             && this.offset == that.offset
-            && this.currentPage == that.isCurrentPage());
+            && this.currentPage == that.isCurrentPage()
+            && Objects.equals(this.after, that.after));
   }
 
   @Override
@@ -71,6 +90,7 @@ public class Page {
     result = result * primitive + pageNumber;
     result = result * primitive + offset;
     result = result * primitive + Boolean.valueOf(currentPage).hashCode();
+    result = result * primitive + Objects.hashCode(after);
     return result;
   }
 
@@ -80,6 +100,7 @@ public class Page {
             "pageNumber=" + pageNumber +
             ", offset=" + offset +
             ", currentPage=" + currentPage +
+            ", after=" + after +
             '}';
   }
 }
@@ -28,14 +28,23 @@ public class Pager {
   private long totalCount;
   private int offset;
   private int pageSize;
+  private String nextCursor;
 
   private static final int MAX_VISIBLE = 5;
   private static final int PAGES_BEFORE = 2; // Math.ceil(MAX_VISIBLE/2)
 
   public Pager(long totalCount, int offset, int pageSize) {
+    this(totalCount, offset, pageSize, null);
+  }
+
+  /**
+   * @param nextCursor encoded {@link TeamCursor} of the last item on the current page, used for the next page
+   */
+  public Pager(long totalCount, int offset, int pageSize, String nextCursor) {
     this.totalCount = totalCount;
     this.offset = offset;
     this.pageSize = pageSize;
+    this.nextCursor = nextCursor;
   }
 
   public long getTotalCount() {
@@ -74,7 +83,7 @@ public class Pager {
       return null;
     }
     int pageNumber = (offset / pageSize) + 2;
-    return new Page(pageNumber, offset + pageSize, false);
+    return new Page(pageNumber, offset + pageSize, false, nextCursor);
   }
 
   /**
@@ -43,6 +43,10 @@ public class Person implements Serializable {
     return displayName;
   }
 
+  public String getVootMembershipRole() {
+    return voot_membership_role;
+  }
+
   public boolean isGuest() {
     return !"urn:collab:org:surf.nl".equalsIgnoreCase(voot_membership_role);
   }
@@ -25,7 +25,13 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 import com.google.common.collect.Lists;
 
@@ -46,6 +52,10 @@ public class Team implements Serializable {
   private int numberOfMembers;
   private Stem stem;
 
+  //indexes over the members, built on first use and dropped when the members change
+  private transient Map<String, Member> membersById;
+  private transient Map<Role, Set<Member>> membersByRole;
+
   public Team() {
   }
 
@@ -64,6 +74,7 @@ public class Team implements Serializable {
     this.name = name;
     this.description = description;
     this.members = Lists.newArrayList(members);
+    this.members.sort(new MemberComparator());
   }
 
   /**
@@ -163,10 +174,9 @@ public class Team implements Serializable {
   }
 
   /**
-   * @return the members
+   * @return the members, sorted by name
    */
   public List<Member> getMembers() {
-    Collections.sort(members, new MemberComparator());
     return members;
   }
 
@@ -179,6 +189,8 @@ public class Team implements Serializable {
     for (int i = 0; i < member.length; i++) {
       members.add(member[i]);
     }
+    members.sort(new MemberComparator());
+    dropIndexes();
   }
 
   /**
@@ -188,6 +200,41 @@ public class Team implements Serializable {
    */
   public void removeMembers(Member... member) {
     members.removeAll(Arrays.asList(member));
+    dropIndexes();
+  }
+
+  /**
+   * Looks up a member by its id without scanning the members
+   *
+   * @param memberId the unique identifier of a {@link Member}
+   * @return the {@link Member}, empty if the person is not a member of this team
+   */
+  public Optional<Member> getMember(String memberId) {
+    if (membersById == null) {
+      Map<String, Member> index = new HashMap<>();
+      members.forEach(member -> index.put(member.getId(), member));
+      membersById = index;
+    }
+    return Optional.ofNullable(membersById.get(memberId));
+  }
+
+  /**
+   * @param role the {@link Role}
+   * @return the members that have the role, can be empty
+   */
+  public Set<Member> getMembersWithRole(Role role) {
+    if (membersByRole == null) {
+      Map<Role, Set<Member>> index = new EnumMap<>(Role.class);
+      members.forEach(member -> member.getRoles().forEach(memberRole ->
+        index.computeIfAbsent(memberRole, key -> new LinkedHashSet<>()).add(member)));
+      membersByRole = index;
+    }
+    return membersByRole.getOrDefault(role, Collections.emptySet());
+  }
+
+  private void dropIndexes() {
+    membersById = null;
+    membersByRole = null;
   }
 
   /**
@@ -318,5 +365,7 @@ public class Team implements Serializable {
 
   public void setMembers(List<Member> members) {
     this.members = members;
+    this.members.sort(new MemberComparator());
+    dropIndexes();
   }
 }
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2012 SURFnet bv, The Netherlands
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package teams.domain;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.Base64;
+import java.util.Optional;
+
+import org.springframework.util.StringUtils;
+
+/**
+ * Keyset position within a list of teams ordered by name and urn. The next page starts
+ * directly after the team with this name and urn.
+ */
+public class TeamCursor {
+
+  private static final char SEPARATOR = '\u0000';
+
+  private final String name;
+  private final String urn;
+
+  public TeamCursor(String name, String urn) {
+    this.name = name;
+    this.urn = urn;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getUrn() {
+    return urn;
+  }
+
+  /**
+   * @return URL safe representation of this cursor
+   */
+  public String encode() {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString((name + SEPARATOR + urn).getBytes(UTF_8));
+  }
+
+  /**
+   * @param encoded the result of {@link #encode()}, can be {@literal null}
+   * @return the cursor or empty if the encoded value is missing or malformed
+   */
+  public static Optional<TeamCursor> decode(String encoded) {
+    if (!StringUtils.hasText(encoded)) {
+      return Optional.empty();
+    }
+    try {
+      String decoded = new String(Base64.getUrlDecoder().decode(encoded), UTF_8);
+      int separator = decoded.lastIndexOf(SEPARATOR);
+      return separator < 0 ? Optional.empty() :
+        Optional.of(new TeamCursor(decoded.substring(0, separator), decoded.substring(separator + 1)));
+    } catch (IllegalArgumentException e) {
+      return Optional.empty();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "TeamCursor{" +
+      "name='" + name + '\'' +
+      ", urn='" + urn + '\'' +
+      '}';
+  }
+}
@@ -31,6 +31,7 @@ public class TeamResultWrapper {
   private int offset;
   private int pageSize;
   private Pager pager;
+  private String nextCursor;
 
   public TeamResultWrapper(List<Team> teams, long totalCount, int offset, int pageSize) {
     super();
@@ -65,12 +66,27 @@ public class TeamResultWrapper {
     return totalCount;
   }
 
+  /**
+   * @return encoded {@link TeamCursor} of the last team when there are more teams, otherwise {@literal null}
+   */
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
+  /**
+   * @param nextCursor encoded {@link TeamCursor} to start the next page after
+   */
+  public void setNextCursor(String nextCursor) {
+    this.nextCursor = nextCursor;
+    this.pager = null;
+  }
+
   /**
    * @return {@link Pager}
    */
   public Pager getPager() {
     if (pager == null) {
-      pager = new Pager(totalCount, offset, pageSize);
+      pager = new Pager(totalCount, offset, pageSize, nextCursor);
     }
     return pager;
   }
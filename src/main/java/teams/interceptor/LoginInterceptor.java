@@ -16,7 +16,6 @@
 package teams.interceptor;
 
 import java.net.URLEncoder;
-import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -24,7 +23,6 @@ import java.util.Optional;
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.servlet.http.HttpSession;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,13 +34,13 @@ import teams.domain.MemberAttribute;
 import teams.domain.Person;
 import teams.migration.MigrationService;
 import teams.provision.UserDetailsManager;
-import teams.repository.PersonRepository;
 import teams.service.MemberAttributeService;
 import teams.util.AuditLog;
 
 /**
  * Intercepts calls to controllers to handle Single Sign On details from
- * Shibboleth and sets a Person object on the session when the user is logged in.
+ * Shibboleth and sets a Person object on the request when the user is logged in. The
+ * {@link teams.session.SessionStateInterceptor} keeps it for the next requests of the session.
  */
 public class LoginInterceptor extends HandlerInterceptorAdapter {
 
@@ -61,11 +59,11 @@ public class LoginInterceptor extends HandlerInterceptorAdapter {
   public static final String API_VOOT_URL = "api/voot";
 
   private final String teamsUrl;
-  private final PersonRepository personRepository;
+  private final PersonProfileCache personProfileCache;
 
-  public LoginInterceptor(String teamsURL, PersonRepository personRepository) {
+  public LoginInterceptor(String teamsURL, PersonProfileCache personProfileCache) {
     this.teamsUrl = teamsURL;
-    this.personRepository = personRepository;
+    this.personProfileCache = personProfileCache;
   }
 
   @Override
@@ -73,44 +71,28 @@ public class LoginInterceptor extends HandlerInterceptorAdapter {
     if (request.getRequestURI().endsWith(NOT_PROVIDED_SAML_ATTRIBUTES_SHTML)) {
       return super.preHandle(request, response, handler);
     }
-    HttpSession session = request.getSession();
-
     String nameId = request.getHeader("name-id");
 
-    // Check session first:
-    Person person = (Person) session.getAttribute(PERSON_SESSION_KEY);
+    // Check session state first:
+    Person person = (Person) request.getAttribute(PERSON_SESSION_KEY);
     if (person == null || !person.getId().equals(nameId)) {
 
       if (StringUtils.hasText(nameId)) {
         Optional<Person> optionalPersonFromHeaders = constructPerson(request);
         if (optionalPersonFromHeaders.isPresent()) {
           person = optionalPersonFromHeaders.get();
-          Optional<teams.migration.Person> optionalPersonFromDatabase = personRepository.findByUrn(person.getId());
-          if (optionalPersonFromDatabase.isPresent()) {
-            teams.migration.Person personFromDatabase = optionalPersonFromDatabase.get();
-            if (person.isGuest() != personFromDatabase.isGuest() ||
-               !person.getName().equals(personFromDatabase.getName()) ||
-               !person.getEmail().equals(personFromDatabase.getEmail())) {
-              personFromDatabase.setGuest(person.isGuest());
-              personFromDatabase.setEmail(person.getEmail());
-              personFromDatabase.setName(person.getName());
-              personRepository.save(personFromDatabase);
-            }
-          } else {
-            teams.migration.Person newPerson = new teams.migration.Person(person.getId(), person.getName(), person.getEmail(), person.isGuest(), Instant.now());
-            personRepository.save(newPerson);
-          }
+          personProfileCache.login(person);
         } else {
           response.sendRedirect(teamsUrl + NOT_PROVIDED_SAML_ATTRIBUTES_SHTML);
           return false;
         }
-        // Add person to session:
-        session.setAttribute(PERSON_SESSION_KEY, person);
+        // Add person to session state:
+        request.setAttribute(PERSON_SESSION_KEY, person);
 
         AuditLog.log("Login by user {}", person.getId());
 
         String userStatus = person.isGuest() ? STATUS_GUEST : STATUS_MEMBER;
-        session.setAttribute(USER_STATUS_SESSION_KEY, userStatus);
+        request.setAttribute(USER_STATUS_SESSION_KEY, userStatus);
 
       } else {
         // User is not logged in, and name-id header is empty.
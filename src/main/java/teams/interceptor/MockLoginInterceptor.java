@@ -27,7 +27,6 @@ import java.util.UUID;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletRequestWrapper;
 import javax.servlet.http.HttpServletResponse;
-import javax.servlet.http.HttpSession;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
@@ -36,7 +35,6 @@ import org.springframework.core.io.ClassPathResource;
 import teams.domain.Person;
 import teams.provision.MockUserDetailsManager;
 import teams.provision.UserDetailsManager;
-import teams.repository.PersonRepository;
 import teams.service.MemberAttributeService;
 
 /**
@@ -48,8 +46,8 @@ public class MockLoginInterceptor extends LoginInterceptor {
   private static final String MOCK_USER_ATTR = "mockUser";
   private static final boolean MOCK_USER_STATUS_IS_GUEST = false;
 
-  public MockLoginInterceptor(String teamsURL, PersonRepository personRepository) {
-    super(teamsURL, personRepository);
+  public MockLoginInterceptor(String teamsURL, PersonProfileCache personProfileCache) {
+    super(teamsURL, personProfileCache);
   }
 
   @Override
@@ -66,10 +64,9 @@ public class MockLoginInterceptor extends LoginInterceptor {
       return true;
     }
 
-    HttpSession session = request.getSession();
     MockLoginInterceptor.SetHeader wrapper = new MockLoginInterceptor.SetHeader(request);
 
-    Person person = (Person) session.getAttribute(PERSON_SESSION_KEY);
+    Person person = (Person) request.getAttribute(PERSON_SESSION_KEY);
 
     String userNameParameter = request.getParameter(MOCK_USER_ATTR);
     if (null == person && StringUtils.isBlank(userNameParameter)) {
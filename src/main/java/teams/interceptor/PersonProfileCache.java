@@ -0,0 +1,130 @@
+package teams.interceptor;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import teams.domain.Person;
+import teams.repository.PersonRepository;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
+
+/**
+ * Keeps a fingerprint of the name, email and guest status of the persons that logged in recently, so a login with
+ * unchanged attributes doesn't touch the database. The fingerprints are bounded in number and dropped when not used for
+ * a while. Only a login without a fingerprint reads the persons table and a person that doesn't exist yet is inserted
+ * right away, as memberships need the row. Changed profiles are queued,
+ * coalesced per urn and written in batches by a background thread.
+ */
+public class PersonProfileCache implements DisposableBean {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PersonProfileCache.class);
+
+  private final PersonRepository personRepository;
+  private final int batchSize;
+  private final Cache<String, HashCode> fingerprints;
+  private final Map<String, Person> pendingUpdates = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService writer;
+
+  public PersonProfileCache(PersonRepository personRepository, long maximumSize, long expireAfterAccessSeconds,
+                            long flushMillis, int batchSize) {
+    this.personRepository = personRepository;
+    this.batchSize = batchSize;
+    this.fingerprints = CacheBuilder.newBuilder()
+      .maximumSize(maximumSize)
+      .expireAfterAccess(expireAfterAccessSeconds, TimeUnit.SECONDS)
+      .build();
+    this.writer = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder().setNameFormat("person-profile-writer-%d").setDaemon(true).build());
+    this.writer.scheduleWithFixedDelay(this::flush, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+  }
+
+  public void login(Person person) {
+    HashCode fingerprint = fingerprint(person.getName(), person.getEmail(), person.isGuest());
+    HashCode known = fingerprints.getIfPresent(person.getId());
+    if (fingerprint.equals(known)) {
+      return;
+    }
+    if (known != null) {
+      pendingUpdates.put(person.getId(), person);
+      fingerprints.put(person.getId(), fingerprint);
+      return;
+    }
+    Optional<teams.migration.Person> optionalPersonFromDatabase = personRepository.findByUrn(person.getId());
+    if (optionalPersonFromDatabase.isPresent()) {
+      teams.migration.Person personFromDatabase = optionalPersonFromDatabase.get();
+      if (!fingerprint.equals(fingerprint(personFromDatabase.getName(), personFromDatabase.getEmail(), personFromDatabase.isGuest()))) {
+        pendingUpdates.put(person.getId(), person);
+      }
+    } else {
+      personRepository.save(new teams.migration.Person(person.getId(), person.getName(), person.getEmail(), person.isGuest(), Instant.now()));
+    }
+    fingerprints.put(person.getId(), fingerprint);
+  }
+
+  /**
+   * Writes the queued profile changes, called periodically by the writer thread.
+   */
+  public void flush() {
+    List<Person> updates = new ArrayList<>();
+    for (String urn : pendingUpdates.keySet()) {
+      Person person = pendingUpdates.remove(urn);
+      if (person != null) {
+        updates.add(person);
+      }
+    }
+    Lists.partition(updates, batchSize).forEach(this::write);
+  }
+
+  @Override
+  public void destroy() throws Exception {
+    writer.shutdown();
+    writer.awaitTermination(10, TimeUnit.SECONDS);
+    flush();
+  }
+
+  private void write(List<Person> batch) {
+    try {
+      Map<String, Person> profiles = batch.stream().collect(toMap(Person::getId, identity()));
+      List<teams.migration.Person> persons = personRepository.findByUrnIn(profiles.keySet());
+      persons.forEach(personFromDatabase -> {
+        Person person = profiles.get(personFromDatabase.getUrn());
+        personFromDatabase.setGuest(person.isGuest());
+        personFromDatabase.setEmail(person.getEmail());
+        personFromDatabase.setName(person.getName());
+      });
+      personRepository.save(persons);
+      LOG.debug("Updated {} person profiles", persons.size());
+    } catch (RuntimeException e) {
+      //the next login of these persons will try again
+      batch.forEach(person -> fingerprints.invalidate(person.getId()));
+      LOG.error(String.format("Failed to update %d person profiles", batch.size()), e);
+    }
+  }
+
+  private HashCode fingerprint(String name, String email, boolean guest) {
+    return Hashing.murmur3_128().newHasher()
+      .putString(String.valueOf(name), UTF_8).putByte((byte) 0)
+      .putString(String.valueOf(email), UTF_8).putByte((byte) 0)
+      .putBoolean(guest)
+      .hash();
+  }
+
+}
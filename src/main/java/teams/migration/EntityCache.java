@@ -0,0 +1,88 @@
+package teams.migration;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The Hibernate second-level cache of the teams and persons. Hibernate keeps the cached entities current for the writes
+ * it performs itself, this class evicts what it can't know about: the member count changed together with the
+ * memberships of a team and the JDBC writes of the migration. The cache is per node, the regions expire after a short
+ * time so changes made on other nodes show up (see ehcache.xml). The hit and miss counts are published as metrics,
+ * the metrics endpoint itself is disabled in application.properties.
+ */
+@Component
+public class EntityCache implements PublicMetrics {
+
+  private final Cache cache;
+  private final Statistics statistics;
+
+  @Autowired
+  public EntityCache(EntityManagerFactory entityManagerFactory) {
+    SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+    this.cache = sessionFactory.getCache();
+    this.statistics = sessionFactory.getStatistics();
+  }
+
+  /**
+   * Evicts the team, again after the commit when called in a transaction, so a concurrent read
+   * doesn't cache the state from before the commit.
+   */
+  public void evictTeam(Team team) {
+    Long id = team.getId();
+    doEvictTeam(id);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+        @Override
+        public void afterCommit() {
+          doEvictTeam(id);
+        }
+      });
+    }
+  }
+
+  private void doEvictTeam(Long id) {
+    if (id != null) {
+      cache.evictEntity(Team.class, id);
+    }
+    cache.evictDefaultQueryRegion();
+  }
+
+  public void evictAll() {
+    cache.evictAllRegions();
+  }
+
+  @Override
+  public Collection<Metric<?>> metrics() {
+    List<Metric<?>> metrics = new ArrayList<>();
+    if (!statistics.isStatisticsEnabled()) {
+      return metrics;
+    }
+    metrics.add(new Metric<>("hibernate.cache.secondLevel.hits", statistics.getSecondLevelCacheHitCount()));
+    metrics.add(new Metric<>("hibernate.cache.secondLevel.misses", statistics.getSecondLevelCacheMissCount()));
+    metrics.add(new Metric<>("hibernate.cache.secondLevel.puts", statistics.getSecondLevelCachePutCount()));
+    metrics.add(new Metric<>("hibernate.cache.query.hits", statistics.getQueryCacheHitCount()));
+    metrics.add(new Metric<>("hibernate.cache.query.misses", statistics.getQueryCacheMissCount()));
+    Arrays.stream(statistics.getSecondLevelCacheRegionNames()).forEach(region -> {
+      SecondLevelCacheStatistics regionStatistics = statistics.getSecondLevelCacheStatistics(region);
+      String prefix = "hibernate.cache.region." + region;
+      metrics.add(new Metric<>(prefix + ".hits", regionStatistics.getHitCount()));
+      metrics.add(new Metric<>(prefix + ".misses", regionStatistics.getMissCount()));
+      metrics.add(new Metric<>(prefix + ".elements", regionStatistics.getElementCountInMemory()));
+    });
+    return metrics;
+  }
+}
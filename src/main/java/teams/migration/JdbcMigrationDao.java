@@ -1,90 +1,141 @@
 package teams.migration;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.Instant;
-import java.util.Collection;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.function.Consumer;
 
 public class JdbcMigrationDao {
 
+  private static final String TEAMS_CONDITION = "gg.parent_stem = gs.id and gs.name != 'etc' ";
+
+  private static final String TEAM_NAMES_QUERY = "select gg.name from grouper_groups gg, grouper_stems gs " +
+    "where " + TEAMS_CONDITION + "and gg.name > ? order by gg.name limit ?";
+
+  private static final String TEAMS_AND_MEMBERSHIPS_QUERY = "select gm.subject_id as subject_id, gg.name as group_name, gg.description as group_description, " +
+    "gg.display_extension as group_display_extension, gg.create_time as group_create_time, gf.name as fieldname , gms.create_time as membership_created " +
+    "from grouper_memberships gms, grouper_groups gg, grouper_stems gs, grouper_members gm, grouper_fields gf " +
+    "where gms.owner_group_id = gg.id and gms.member_id = gm.id and gms.field_id = gf.id " +
+    "and " + TEAMS_CONDITION + "and gm.subject_id != 'GrouperSystem' " +
+    "and gg.name >= ? and gg.name <= ? order by gg.name";
+
   private final JdbcTemplate jdbcTemplate;
 
   public JdbcMigrationDao(JdbcTemplate jdbcTemplate) {
     this.jdbcTemplate = jdbcTemplate;
   }
 
-  public Collection<Team> findAllTeamsAndMemberships() {
-    final Map<String, Team> teams = new HashMap<>();
-    final Map<String, Person> persons = new HashMap<>();
-    jdbcTemplate.query("select gm.subject_id as subject_id, gg.name as group_name, gg.description as group_description, " +
-        "gg.display_extension as group_display_extension, gg.create_time as group_create_time, gf.name as fieldname , gms.create_time as membership_created " +
-        "from grouper_memberships gms, grouper_groups gg, grouper_stems gs, grouper_members gm, grouper_fields gf " +
-        "where gms.owner_group_id = gg.id and gms.member_id = gm.id and gms.field_id = gf.id " +
-        "and gg.parent_stem = gs.id and gs.name != 'etc' and gm.subject_id != 'GrouperSystem'",
+  /**
+   * Reads the teams with their memberships ordered by urn, a chunk of at most chunkSize teams at a time, paging on the
+   * urn. Every chunk is handed to the consumer after its result set is closed, so no connection or cursor is held
+   * while the consumer works and only one chunk is held in memory. Teams without memberships are skipped.
+   */
+  public void findAllTeamsAndMemberships(int chunkSize, Consumer<List<Team>> consumer) {
+    String after = "";
+    while (true) {
+      List<String> names = jdbcTemplate.queryForList(TEAM_NAMES_QUERY, String.class, after, chunkSize);
+      if (names.isEmpty()) {
+        return;
+      }
+      List<Team> chunk = findTeamsAndMemberships(names.get(0), names.get(names.size() - 1));
+      if (!chunk.isEmpty()) {
+        consumer.accept(chunk);
+      }
+      after = names.get(names.size() - 1);
+    }
+  }
 
-      rs -> {
-        String urn = rs.getString("group_name");
+  private List<Team> findTeamsAndMemberships(String first, String last) {
+    final Map<String, TeamAssembly> teams = new LinkedHashMap<>();
+    final Rows rows = new Rows();
+    jdbcTemplate.query(TEAMS_AND_MEMBERSHIPS_QUERY, rs -> {
+      String urn = rows.urn(rs);
+      rows.add(rs, teams.computeIfAbsent(urn, key -> rows.newTeam(key, rs)));
+    }, first, last);
+    List<Team> chunk = new ArrayList<>(teams.size());
+    teams.values().forEach(assembly -> chunk.add(assembly.team));
+    return chunk;
+  }
 
-        Team team = teams.getOrDefault(urn, new Team(
-          urn,
-          rs.getString("group_display_extension"),
-          rs.getString("group_description"),
-          Instant.ofEpochMilli(rs.getLong("group_create_time"))));
+  private Role getRole(String privilegeName) {
+    if (privilegeName.equalsIgnoreCase("admins")) {
+      return Role.ADMIN;
+    } else if (privilegeName.equalsIgnoreCase("updaters")) {
+      return Role.MANAGER;
+    }
+    return Role.MEMBER;
+  }
 
-        String subjectId = rs.getString("subject_id").replaceAll("@", "_");
+  /*
+   * A team being read with its memberships indexed by subject id, as a subject has a row per privilege in a group
+   */
+  private static class TeamAssembly {
 
-        if (subjectId.equalsIgnoreCase("GrouperAll")) {
-          team.setViewable(true);
-          return;
-        }
+    private final Team team;
+    private final Map<String, Membership> memberships = new HashMap<>();
 
-        Optional<Membership> membershipOptional = team.getMemberships().stream()
-          .filter(membership -> membership.getPerson().getUrn().equals(subjectId))
-          .findFirst();
-
-        Role role = getRole(rs.getString("fieldname"));
-
-        if (membershipOptional.isPresent()) {
-          Membership membership = membershipOptional.get();
-          if (role.isMoreImportant(membership.getRole())) {
-            membership.setRole(role);
-          }
-        } else {
-          Person person;
-          if (persons.containsKey(subjectId)) {
-            person = persons.get(subjectId);
-          } else {
-            person = new Person(subjectId);
-            persons.put(subjectId, person);
-          }
-          Instant created = Instant.ofEpochMilli(rs.getLong("membership_created"));
-          Membership membership = new Membership(role, team, person, created);
-          team.getMemberships().add(membership);
-        }
+    private TeamAssembly(Team team) {
+      this.team = team;
+    }
+  }
 
-        teams.put(team.getUrn(), team);
+  /*
+   * State shared by the rows of one chunk: the persons by subject id and the interned urns, as every urn is repeated
+   * on many rows
+   */
+  private class Rows {
 
-      });
+    private final Map<String, Person> persons = new HashMap<>();
+    private final Interner<String> urns = Interners.newStrongInterner();
 
-    return teams.values();
+    private String urn(ResultSet rs) throws SQLException {
+      return urns.intern(rs.getString("group_name"));
+    }
 
-  }
+    private TeamAssembly newTeam(String urn, ResultSet rs) {
+      try {
+        return new TeamAssembly(new Team(
+          urn,
+          rs.getString("group_display_extension"),
+          rs.getString("group_description"),
+          Instant.ofEpochMilli(rs.getLong("group_create_time"))));
+      } catch (SQLException e) {
+        throw new IllegalStateException(e);
+      }
+    }
 
-  private Role getRole(String privilegeName) {
-    if (privilegeName.equalsIgnoreCase("admins")) {
-      return Role.ADMIN;
-    } else if (privilegeName.equalsIgnoreCase("updaters")) {
-      return Role.MANAGER;
+    private void add(ResultSet rs, TeamAssembly assembly) throws SQLException {
+      String subjectId = rs.getString("subject_id").replace('@', '_');
+
+      if (subjectId.equalsIgnoreCase("GrouperAll")) {
+        assembly.team.setViewable(true);
+        return;
+      }
+
+      Role role = getRole(rs.getString("fieldname"));
+      Membership membership = assembly.memberships.get(subjectId);
+
+      if (membership != null) {
+        if (role.isMoreImportant(membership.getRole())) {
+          membership.setRole(role);
+        }
+      } else {
+        Person person = persons.computeIfAbsent(urns.intern(subjectId), Person::new);
+        Instant created = Instant.ofEpochMilli(rs.getLong("membership_created"));
+        membership = new Membership(role, assembly.team, person, created);
+        assembly.team.getMemberships().add(membership);
+        assembly.memberships.put(person.getUrn(), membership);
+      }
     }
-    return Role.MEMBER;
   }
 
 }
@@ -0,0 +1,19 @@
+package teams.migration;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class MemberSummary {
+
+    private String urn;
+
+    private String name;
+
+    private String email;
+
+    private boolean guest;
+
+    private Role role;
+}
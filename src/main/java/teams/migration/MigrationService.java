@@ -1,6 +1,6 @@
 package teams.migration;
 
-import org.hibernate.engine.spi.CacheImplementor;
+import com.google.common.collect.Lists;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,130 +9,177 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import teams.provision.UserDetailsManager;
-import teams.repository.PersonRepository;
-import teams.repository.TeamRepository;
 
-import javax.persistence.Cache;
-import javax.persistence.EntityManager;
 import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 
 import static java.util.stream.Collectors.toList;
-import static java.util.stream.Collectors.toSet;
 
+/**
+ * Migrates the Grouper teams, read from Grouper in chunks of teams. Per chunk the persons not migrated before are
+ * looked up in LDAP in bulk, and then the persons, teams and memberships are inserted in JDBC batches and committed. A
+ * migration that is interrupted can be resumed: committed teams and persons are skipped.
+ */
 @RestController
 public class MigrationService {
 
   private static final Logger LOG = LoggerFactory.getLogger(MigrationService.class);
   public static final String UNKNOWN = "UNKNOWN_ATTRIBUTE";
 
+  //urns per lookup of the ids of the teams and persons already migrated
+  private static final int LOOKUP_SIZE = 1000;
+
+  private static final String INSERT_PERSON = "INSERT INTO persons (urn, name, email, guest, created) VALUES (?, ?, ?, ?, ?)";
+  private static final String INSERT_TEAM = "INSERT INTO teams (urn, name, description, viewable, created, member_count) VALUES (?, ?, ?, ?, ?, ?)";
+  private static final String INSERT_MEMBERSHIP = "INSERT INTO memberships (role, team_id, urn_team, person_id, urn_person, created) VALUES (?, ?, ?, ?, ?, ?)";
+
   private final JdbcMigrationDao migrationDao;
-  private final TeamRepository teamRepository;
-  private final PersonRepository personRepository;
   private final UserDetailsManager userDetailsManager;
+  private final EntityCache entityCache;
   private final String secretKey;
   private final JdbcTemplate jdbcTemplate;
+  private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final int chunkSize;
+
+  private final AtomicBoolean running = new AtomicBoolean();
 
   @Autowired
   public MigrationService(JdbcMigrationDao migrationDao,
-                          TeamRepository teamRepository,
-                          PersonRepository personRepository,
                           UserDetailsManager userDetailsManager,
+                          EntityCache entityCache,
                           @Value("${migration.secret_key}") String secretKey,
-                          @Qualifier("teamsDataSource") DataSource teamsDataSource) {
+                          @Value("${migration.chunkSize}") int chunkSize,
+                          @Qualifier("teamsDataSource") DataSource teamsDataSource,
+                          PlatformTransactionManager transactionManager) {
     this.migrationDao = migrationDao;
-    this.teamRepository = teamRepository;
-    this.personRepository = personRepository;
     this.userDetailsManager = userDetailsManager;
+    this.entityCache = entityCache;
     this.secretKey = secretKey;
+    this.chunkSize = chunkSize;
     this.jdbcTemplate = new JdbcTemplate(teamsDataSource);
+    this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
   }
 
   @GetMapping("migrate")
-  @Transactional
-  public ResponseEntity migrate(@RequestParam(name = "key") String key) {
+  public ResponseEntity migrate(@RequestParam(name = "key") String key,
+                                @RequestParam(name = "resume", defaultValue = "false") boolean resume) {
     if (!secretKey.equals(key)) {
       return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
     }
-    long start = System.currentTimeMillis();
-    LOG.info("Starting migration");
-
-    //idempotent
-    deleteFromTable("memberships");
-    deleteFromTable("persons");
-    deleteFromTable("teams");
-
-    long startDao = System.currentTimeMillis();
-    LOG.info("migrationDao.findAllTeamsAndMemberships starting ");
-
-    //all non-persistent teams fully populated with memberships and persons
-    Collection<Team> teams = migrationDao.findAllTeamsAndMemberships();
-
-    Set<Person> persons = teams.stream().map(team -> team.getMemberships().stream().map(membership -> membership.getPerson()))
-      .flatMap(Function.identity())
-      .collect(toSet());
-
-    LOG.info("migrationDao.findAllTeamsAndMemberships found {} teams with total {} members", teams.size(), persons.size());
-    LOG.info("migrationDao.findAllTeamsAndMemberships ended in {} ms", System.currentTimeMillis() - startDao);
-
-    //now fetch all the details from the LDAP and enrich the person references
-    long startLdap = System.currentTimeMillis();
-    LOG.info("migrationDao.addingLdapDetails starting ");
+    if (!running.compareAndSet(false, true)) {
+      return ResponseEntity.status(HttpStatus.CONFLICT).body("A migration is already running");
+    }
+    try {
+      return ResponseEntity.ok(doMigrate(resume));
+    } finally {
+      //the migration writes with JDBC, bypassing the second-level cache
+      entityCache.evictAll();
+      running.set(false);
+    }
+  }
 
-    persons.forEach(this::addDetails);
+  private Map<String, Object> doMigrate(boolean resume) {
+    long start = System.currentTimeMillis();
+    LOG.info("Starting migration, resume {}", resume);
 
-    Map<Boolean, List<Person>> grouped = persons.stream().collect(Collectors.groupingBy(person -> person.getEmail() != null && person.getName() != null));
-    List<Person> personsPresentInLdap = grouped.get(true);
+    if (!resume) {
+      deleteFromTable("memberships");
+      deleteFromTable("persons");
+      deleteFromTable("teams");
+    }
 
-    LOG.info("migrationDao.addingLdapDetails ended in {} ms", System.currentTimeMillis() - startLdap);
+    //teams arrive a chunk at a time, fully populated with memberships and persons, ordered by urn
+    Progress progress = new Progress();
+    migrationDao.findAllTeamsAndMemberships(chunkSize, teams -> migrateChunk(teams, progress));
 
-    long startDatabase = System.currentTimeMillis();
-    LOG.info("migrationDao.saving all persons and teams starting ");
+    LOG.info("total migration took {} ms", System.currentTimeMillis() - start);
+    return progress.report();
+  }
 
-    personsPresentInLdap.forEach(person -> {
-      LOG.info("Saving person {} {} {}", person.getId(), person.getEmail(), person.getName());
-      personRepository.save(person);
-      LOG.info("Saved person {} {} {}", person.getId(), person.getEmail(), person.getName());
-    });
+  private void migrateChunk(List<Team> teams, Progress progress) {
+    //teams and persons committed by an earlier run are skipped, so only the ids of the chunk are looked up
+    Set<String> migratedTeams = findIds("teams", teams.stream().map(Team::getUrn).collect(toList())).keySet();
+    List<Team> chunk = teams.stream().filter(team -> !migratedTeams.contains(team.getUrn())).collect(toList());
+    if (chunk.isEmpty()) {
+      return;
+    }
 
-    teams.forEach(team -> {
-      LOG.info("Saving team {} {} {}", team.getId(), team.getName(), team.getMemberships().stream().map(membership -> membership.getPerson()).collect(toList()));
-      teamRepository.save(team);
-      LOG.info("Saved team {} {} {}", team.getId(), team.getName(), team.getMemberships().stream().map(membership -> membership.getPerson()).collect(toList()));
-    });
+    Map<String, Person> persons = new LinkedHashMap<>();
+    chunk.forEach(team -> team.getMemberships().forEach(membership ->
+      persons.putIfAbsent(membership.getUrnPerson(), membership.getPerson())));
+    Map<String, Long> personIds = findIds("persons", persons.keySet());
+    List<Person> newPersons = persons.values().stream()
+      .filter(person -> !personIds.containsKey(person.getUrn()))
+      .collect(toList());
 
-    LOG.info("migrationDao.saving all persons and teams ended in {} ms", System.currentTimeMillis() - startDatabase);
+    //LDAP is slow, so the lookups are done before the transaction instead of holding its connection and locks
+    addDetails(newPersons, progress);
 
-    LOG.info("total migration took {} ms", System.currentTimeMillis() - start);
+    transactionTemplate.execute(status -> jdbcTemplate.execute((Connection connection) -> {
+      personIds.putAll(insertPersons(connection, newPersons));
+      Map<String, Long> teamIds = insertTeams(connection, chunk);
+      int memberships = insertMemberships(connection, chunk, teamIds, personIds::get);
+      progress.chunkDone(chunk.size(), newPersons.size(), memberships);
+      return null;
+    }));
+    progress.log();
+  }
 
-    return ResponseEntity.ok(grouped.get(false));
+  private Map<String, Long> findIds(String table, Collection<String> urns) {
+    Map<String, Long> ids = new HashMap<>();
+    Lists.partition(new ArrayList<>(urns), LOOKUP_SIZE).forEach(part ->
+      namedParameterJdbcTemplate.query("SELECT id, urn FROM " + table + " WHERE urn IN (:urns)",
+        Collections.singletonMap("urns", part), rs -> {
+          ids.put(rs.getString("urn"), rs.getLong("id"));
+        }));
+    return ids;
   }
 
-  private void addDetails(Person person) {
-    Optional<Person> personOptional = userDetailsManager.findPersonById(person.getUrn());
-    if (personOptional.isPresent()) {
-      fillDetailsPerson(person, personOptional);
-    } else {
-      person.setGuest(true);
-      person.setName(UNKNOWN);
-      person.setEmail(UNKNOWN);
+  private void addDetails(Collection<Person> persons, Progress progress) {
+    if (persons.isEmpty()) {
+      return;
     }
+    Map<String, Person> details = userDetailsManager.findPersonsById(
+      persons.stream().map(Person::getUrn).collect(toList()));
+    persons.forEach(person -> {
+      Person personDetails = details.get(person.getUrn());
+      if (personDetails != null) {
+        fillDetailsPerson(person, personDetails);
+      } else {
+        person.setGuest(true);
+        person.setName(UNKNOWN);
+        person.setEmail(UNKNOWN);
+        progress.unknownPerson(person.getUrn());
+      }
+    });
   }
 
-  private void fillDetailsPerson(Person person, Optional<Person> personOptional) {
-    Person details = personOptional.get();
+  private void fillDetailsPerson(Person person, Person details) {
     String email = details.getEmail();
     person.setEmail(email == null ? UNKNOWN : email);
     person.setGuest(details.isGuest());
@@ -141,9 +188,126 @@ public class MigrationService {
     person.setCreated(details.getCreated());
   }
 
+  private Map<String, Long> insertPersons(Connection connection, Collection<Person> persons) throws SQLException {
+    List<String> urns = new ArrayList<>(persons.size());
+    try (PreparedStatement statement = connection.prepareStatement(INSERT_PERSON, Statement.RETURN_GENERATED_KEYS)) {
+      for (Person person : persons) {
+        statement.setString(1, person.getUrn());
+        statement.setString(2, person.getName());
+        statement.setString(3, person.getEmail());
+        statement.setBoolean(4, person.isGuest());
+        statement.setTimestamp(5, timestamp(person.getCreated()));
+        statement.addBatch();
+        urns.add(person.getUrn());
+      }
+      return executeBatch(statement, urns);
+    }
+  }
+
+  private Map<String, Long> insertTeams(Connection connection, List<Team> teams) throws SQLException {
+    List<String> urns = new ArrayList<>(teams.size());
+    try (PreparedStatement statement = connection.prepareStatement(INSERT_TEAM, Statement.RETURN_GENERATED_KEYS)) {
+      for (Team team : teams) {
+        statement.setString(1, team.getUrn());
+        statement.setString(2, team.getName());
+        statement.setString(3, team.getDescription());
+        statement.setBoolean(4, team.isViewable());
+        statement.setTimestamp(5, timestamp(team.getCreated()));
+        statement.setInt(6, team.getMemberships().size());
+        statement.addBatch();
+        urns.add(team.getUrn());
+      }
+      return executeBatch(statement, urns);
+    }
+  }
+
+  private int insertMemberships(Connection connection, List<Team> teams, Map<String, Long> teamIds,
+                                Function<String, Long> personIds) throws SQLException {
+    int count = 0;
+    try (PreparedStatement statement = connection.prepareStatement(INSERT_MEMBERSHIP)) {
+      for (Team team : teams) {
+        for (Membership membership : team.getMemberships()) {
+          statement.setString(1, membership.getRole().name());
+          statement.setLong(2, teamIds.get(team.getUrn()));
+          statement.setString(3, team.getUrn());
+          statement.setLong(4, personIds.apply(membership.getUrnPerson()));
+          statement.setString(5, membership.getUrnPerson());
+          statement.setTimestamp(6, timestamp(membership.getCreated()));
+          statement.addBatch();
+          count++;
+        }
+      }
+      if (count > 0) {
+        statement.executeBatch();
+      }
+    }
+    return count;
+  }
+
+  private Map<String, Long> executeBatch(PreparedStatement statement, List<String> urns) throws SQLException {
+    Map<String, Long> ids = new HashMap<>();
+    if (urns.isEmpty()) {
+      return ids;
+    }
+    statement.executeBatch();
+    try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+      for (String urn : urns) {
+        if (!generatedKeys.next()) {
+          throw new SQLException("No generated id for " + urn);
+        }
+        ids.put(urn, generatedKeys.getLong(1));
+      }
+    }
+    return ids;
+  }
+
+  private Timestamp timestamp(Instant instant) {
+    return Timestamp.from(instant == null ? Instant.now() : instant);
+  }
+
   private void deleteFromTable(String table) {
     LOG.info("Deleting from table " + table);
     jdbcTemplate.execute("DELETE FROM " + table);
   }
 
+  private static class Progress {
+
+    private final long start = System.currentTimeMillis();
+    private final List<String> unknownPersons = new ArrayList<>();
+    private int teams;
+    private int persons;
+    private int memberships;
+
+    private synchronized void unknownPerson(String urn) {
+      unknownPersons.add(urn);
+    }
+
+    private synchronized void chunkDone(int teams, int persons, int memberships) {
+      this.teams += teams;
+      this.persons += persons;
+      this.memberships += memberships;
+    }
+
+    private synchronized void log() {
+      LOG.info("Migrated {} teams, {} persons and {} memberships, {} teams/s",
+        teams, persons, memberships, teamsPerSecond());
+    }
+
+    private synchronized Map<String, Object> report() {
+      Map<String, Object> report = new LinkedHashMap<>();
+      report.put("teams", teams);
+      report.put("persons", persons);
+      report.put("memberships", memberships);
+      report.put("millis", System.currentTimeMillis() - start);
+      report.put("teamsPerSecond", teamsPerSecond());
+      report.put("personsNotInLdap", unknownPersons);
+      return report;
+    }
+
+    private long teamsPerSecond() {
+      long millis = Math.max(1, System.currentTimeMillis() - start);
+      return teams * 1000L / millis;
+    }
+  }
+
 }
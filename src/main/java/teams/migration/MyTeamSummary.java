@@ -7,8 +7,8 @@ public class MyTeamSummary extends TeamSummary implements Comparable<MyTeamSumma
 
     private Role role;
 
-    public MyTeamSummary(Long id, String name, int membershipCount, String description, Role role) {
-        super(id, name, membershipCount, description);
+    public MyTeamSummary(Long id, String urn, String name, String description, boolean viewable, int membershipCount, Role role) {
+        super(id, urn, name, description, viewable, membershipCount);
         this.role = role;
     }
 
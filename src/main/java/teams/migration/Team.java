@@ -5,8 +5,11 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
-import org.hibernate.annotations.Formula;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
 
+import javax.persistence.Cacheable;
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
@@ -22,6 +25,9 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity(name = "teams")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@DynamicUpdate
 @NamedEntityGraph(name = "Team.memberships", attributeNodes = @NamedAttributeNode("memberships"))
 @Getter
 @Setter
@@ -49,7 +55,8 @@ public class Team {
   @Column
   private Instant created;
 
-  @Formula("(select count(*) from memberships m where m.team_id = id)")
+  //only changed with the bulk updates of the TeamRepository, saving a stale team must not overwrite them
+  @Column(name = "member_count", updatable = false)
   private int membershipCount;
 
   @OneToMany(mappedBy = "team", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
@@ -1,31 +1,51 @@
 package teams.migration;
 
+import com.google.common.base.Suppliers;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
 import org.apache.commons.lang.WordUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+import teams.domain.Invitation;
 import teams.domain.Member;
+import teams.domain.MemberResultWrapper;
 import teams.domain.Person;
 import teams.domain.Role;
 import teams.domain.Stem;
 import teams.domain.Team;
+import teams.domain.TeamCursor;
 import teams.domain.TeamResultWrapper;
 import teams.repository.MembershipRepository;
 import teams.repository.PersonRepository;
 import teams.repository.TeamRepository;
 import teams.service.GrouperTeamService;
+import teams.service.TeamInviteService;
+import teams.service.impl.TeamSearchIndex;
+import teams.service.impl.TeamSearchIndex.IndexedTeam;
 import teams.util.DuplicateTeamException;
 import teams.voot.ResourceNotFoundException;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -39,80 +59,173 @@ public class TeamService implements GrouperTeamService {
   private Set<Role> managerRoles = new HashSet<>(asList(Role.Manager, Role.Member));
   private Set<Role> memberRoles = new HashSet<>(asList(Role.Member));
 
+  private static final char COUNT_KEY_SEPARATOR = '\u0000';
+  private static final int MAX_URNS_PER_QUERY = 1000;
+
+  //the totals of the my teams pager per person and query, on this node only: a membership change made on this node
+  //evicts the counts of the person, one made on another node shows in the total once the count expires
+  private final Cache<String, Long> myTeamsCounts = CacheBuilder.newBuilder()
+    .maximumSize(10000)
+    .expireAfterWrite(1, TimeUnit.MINUTES)
+    .build();
+
   private Pattern forbiddenChars = Pattern.compile(String.format("[%s]", Pattern.quote("<>/\\*:,% ")));
 
   private TeamRepository teamRepository;
   private PersonRepository personRepository;
   private MembershipRepository membershipRepository;
+  private TeamSearchIndex teamSearchIndex;
+  private EntityCache entityCache;
+  private TeamInviteService teamInviteService;
   private String defaultStemName;
 
   @Autowired
   public TeamService(TeamRepository teamRepository, PersonRepository personRepository,
-                     MembershipRepository membershipRepository, @Value("${defaultStemName}") String defaultStemName) {
+                     MembershipRepository membershipRepository, TeamSearchIndex teamSearchIndex,
+                     EntityCache entityCache, TeamInviteService teamInviteService,
+                     @Value("${defaultStemName}") String defaultStemName) {
     this.teamRepository = teamRepository;
     this.personRepository = personRepository;
     this.membershipRepository = membershipRepository;
+    this.teamSearchIndex = teamSearchIndex;
+    this.entityCache = entityCache;
+    this.teamInviteService = teamInviteService;
     this.defaultStemName = defaultStemName;
   }
 
 
   @Override
   public teams.domain.Team findTeamById(String teamId) {
-    teams.migration.Team team = findTeamByUrn(teamId);
-    return convertTeam(team, true, Optional.empty());
+    //the team columns and the members are read with a query each, the team entity and its memberships aren't loaded
+    return TeamSnapshots.get(teamId, urn -> {
+      TeamSummary summary = findTeamSummaryByUrn(urn);
+      return convertTeam(summary, membershipRepository.findMemberSummaries(summary.getUrn()).stream()
+        .map(this::convertMemberSummary)
+        .collect(Collectors.toList()));
+    });
+  }
+
+  @Override
+  public Team findTeamSummaryById(String teamId) {
+    return convertTeam(findTeamSummaryByUrn(teamId), Collections.emptyList());
+  }
+
+  @Override
+  public MemberResultWrapper findMembers(String teamId, String partOfName, int offset, int pageSize) {
+    PageRequest page = new PageRequest(offset / pageSize, pageSize);
+    boolean search = StringUtils.hasText(partOfName);
+    String name = search ? MembershipRepository.escapeLike(partOfName) : null;
+    List<MemberSummary> summaries = search ?
+      membershipRepository.findMemberSummariesByNameOrderByName(teamId, name, page) :
+      membershipRepository.findMemberSummariesOrderByName(teamId, page);
+    long totalCount = search ?
+      membershipRepository.countByUrnTeamAndName(teamId, name) :
+      membershipRepository.countByUrnTeam(teamId);
+    List<Member> members = summaries.stream().map(this::convertMemberSummary).collect(Collectors.toList());
+    return new MemberResultWrapper(members, totalCount, offset, pageSize);
   }
 
   @Override
-  public String addTeam(String teamId, String displayName, String teamDescription, String stemName) throws DuplicateTeamException {
+  public List<Member> findMembers(String teamId, Collection<String> memberIds) {
+    if (memberIds.isEmpty()) {
+      return Collections.emptyList();
+    }
+    return membershipRepository.findMemberSummariesByUrnPersonIn(teamId, memberIds).stream()
+      .map(this::convertMemberSummary)
+      .collect(Collectors.toList());
+  }
+
+  @Override
+  @Transactional(rollbackFor = DuplicateTeamException.class)
+  public Team createTeam(String teamId, String displayName, String teamDescription, String stemName, boolean viewable,
+                         Person admin, Invitation adminInvitation) throws DuplicateTeamException {
     String teamUrn = defaultStemName + ":" + forbiddenChars.matcher(teamId).replaceAll("");
+    teams.migration.Person adminPerson = findPersonByUrn(admin.getId());
+
+    //the team row is inserted with its final visibility and member count, so nothing is updated afterwards
     teams.migration.Team team = new teams.migration.Team(teamUrn, displayName, teamDescription);
+    team.setViewable(viewable);
+    team.setMembershipCount(1);
+    teams.migration.Team saved;
     try {
-      return teamRepository.save(team).getUrn();
+      saved = teamRepository.save(team);
     } catch (DataIntegrityViolationException e) {
       throw new DuplicateTeamException(String.format("Team %s already exists", teamUrn));
     }
+    membershipRepository.save(new Membership(teams.migration.Role.ADMIN, saved, adminPerson, Instant.now()));
 
+    if (adminInvitation != null) {
+      adminInvitation.setTeamId(teamUrn);
+      teamInviteService.saveOrUpdate(Collections.singletonList(adminInvitation));
+    }
+
+    indexTeam(saved);
+    //the counts are not transactional, only change them once the team is there
+    afterCommit(() -> invalidateMyTeamsCounts(admin.getId()));
+
+    Member member = convertMemberSummary(new MemberSummary(adminPerson.getUrn(), adminPerson.getName(),
+      adminPerson.getEmail(), adminPerson.isGuest(), teams.migration.Role.ADMIN));
+    return new Team(teamUrn, displayName, teamDescription, Collections.singletonList(member), viewable, 1);
   }
 
   @Override
+  @Transactional
   public void updateTeam(String teamId, String displayName, String teamDescription, String actAsSubject) {
     teams.migration.Team team = findTeamByUrn(teamId);
     team.setName(displayName);
     team.setDescription(teamDescription);
-    teamRepository.save(team);
+    indexTeam(teamRepository.save(team));
+    TeamSnapshots.evict(teamId);
   }
 
   @Override
+  @Transactional
   public void deleteTeam(String teamId) {
+    //memberships are removed by cascade together with the team row that holds their count
     teams.migration.Team team = findTeamByUrn(teamId);
     teamRepository.delete(team);
+    entityCache.evictTeam(team);
+    TeamSnapshots.evict(teamId);
+    afterCommit(() -> teamSearchIndex.remove(team.getUrn()));
+    myTeamsCounts.invalidateAll();
   }
 
   @Override
+  @Transactional
   public void deleteMember(Team team, String personId) {
     //The interface naming is not correct, we only delete the membership. we never delete provisioned persons
     Membership membership = findMembershipByTeamUrnAndPersonUrn(team.getId(), personId);
-    findTeamByUrn(team.getId()).getMemberships().remove(membership);
+    teams.migration.Team membershipTeam = findTeamByUrn(team.getId());
+    membershipTeam.getMemberships().remove(membership);
     membershipRepository.delete(membership);
+    teamRepository.updateMembershipCount(membershipTeam.getId(), -1);
+    entityCache.evictTeam(membershipTeam);
+    TeamSnapshots.evict(team.getId());
+    invalidateMyTeamsCounts(personId);
   }
 
   @Override
+  @Transactional
   public void setVisibilityGroup(String teamId, boolean viewable) {
     teams.migration.Team team = findTeamByUrn(teamId);
     team.setViewable(viewable);
-    teamRepository.save(team);
+    indexTeam(teamRepository.save(team));
+    TeamSnapshots.evict(teamId);
   }
 
   @Override
+  @Transactional
   public boolean addMemberRole(Team team, String memberId, Role role, String actAsUserId) {
     //This is a promotion. Prerequisite - legacy - is that the person is already a member
     Membership membership = findMembershipByTeamUrnAndPersonUrn(team.getId(), memberId);
     membership.setRole(convertRole(role));
     membershipRepository.save(membership);
+    TeamSnapshots.evict(team.getId());
     return true;
   }
 
   @Override
+  @Transactional
   public boolean removeMemberRole(Team team, String memberId, Role role, String actAsUserId) {
     //This is a degradation. Prerequisite - legacy - is that the person is already a member
     Membership membership = findMembershipByTeamUrnAndPersonUrn(team.getId(), memberId);
@@ -120,32 +233,43 @@ public class TeamService implements GrouperTeamService {
     teams.migration.Role newRole = roleToBeRemoved == teams.migration.Role.ADMIN ? teams.migration.Role.MANAGER : teams.migration.Role.MEMBER;
     membership.setRole(newRole);
     membershipRepository.save(membership);
+    TeamSnapshots.evict(team.getId());
     return true;
   }
 
   @Override
+  @Transactional
   public void addMember(Team team, Person person) {
     teams.migration.Team membershipTeam = findTeamByUrn(team.getId());
     teams.migration.Person membershipPerson = findPersonByUrn(person.getId());
     Membership membership = new Membership(teams.migration.Role.MEMBER, membershipTeam, membershipPerson, Instant.now());
     membershipRepository.save(membership);
+    teamRepository.updateMembershipCount(membershipTeam.getId(), 1);
+    entityCache.evictTeam(membershipTeam);
+    TeamSnapshots.evict(team.getId());
+    invalidateMyTeamsCounts(person.getId());
   }
 
   @Override
   public Member findMember(Team team, String memberId) {
-    Membership membership = findMembershipByTeamUrnAndPersonUrn(team.getId(), memberId);
-    return convertMembershipToMember(membership);
+    return findMembers(team.getId(), Collections.singleton(memberId)).stream()
+      .findFirst()
+      .orElseThrow(doesNotExist("Membership", team.getId() + " - " + memberId));
   }
 
   @Override
   public Set<Member> findAdmins(Team team) {
-    return findTeamByUrn(team.getId()).getMemberships()
-      .stream()
-      .filter(membership -> membership.getRole().equals(teams.migration.Role.ADMIN))
-      .map(this::convertMembershipToMember)
+    return membershipRepository.findMemberSummariesByRole(team.getId(), teams.migration.Role.ADMIN).stream()
+      .map(this::convertMemberSummary)
       .collect(Collectors.toSet());
   }
 
+  @Override
+  public boolean hasRole(String teamId, String memberId, Role role) {
+    Set<teams.migration.Role> roles = rolesIncluding(role);
+    return !roles.isEmpty() && membershipRepository.existsByUrnTeamAndUrnPersonAndRoleIn(teamId, memberId, roles);
+  }
+
   @Override
   public Stem findStem(String stemId) {
     return new Stem(stemId, null, null);
@@ -153,34 +277,41 @@ public class TeamService implements GrouperTeamService {
 
   @Override
   public List<Team> findPublicTeams(String personId, String partOfGroupname) {
-    List<String> loggedInPersonTeamNames = teamRepository.
-      findByNameContainingIgnoreCaseAndMembershipsUrnPersonOrderByNameAsc(partOfGroupname, personId, new PageRequest(0, Integer.MAX_VALUE))
-      .getContent()
-      .stream()
-      .map(teams.migration.Team::getUrn)
-      .collect(Collectors.toList());
+    Supplier<Set<String>> teamUrnsOfPerson = teamUrnsOfPerson(personId);
+    return currentTeams(searchTeams(personId, partOfGroupname, teamUrnsOfPerson), teamUrnsOfPerson);
+  }
 
-    return teamRepository.findByNameContainingIgnoreCaseOrderByNameAsc(partOfGroupname).stream()
-      .filter(team -> team.isViewable() || loggedInPersonTeamNames.contains(team.getUrn()))
-      .map(team -> this.convertTeam(team, false, Optional.empty()))
+  @Override
+  public TeamResultWrapper findPublicTeams(String personId, String partOfGroupname, int offset, int pageSize) {
+    Supplier<Set<String>> teamUrnsOfPerson = teamUrnsOfPerson(personId);
+    //all hits are read again before paging, so the total doesn't count the hits that are dropped
+    List<Team> teams = currentTeams(searchTeams(personId, partOfGroupname, teamUrnsOfPerson), teamUrnsOfPerson);
+    List<Team> page = teams.stream()
+      .skip(offset)
+      .limit(pageSize)
       .collect(Collectors.toList());
+    return new TeamResultWrapper(page, teams.size(), offset, pageSize);
   }
 
   @Override
   public TeamResultWrapper findAllTeamsByMember(String personId, int offset, int pageSize) {
-    int calculatedPage = offset / pageSize;
-    Page<teams.migration.Team> page = teamRepository.findByMembershipsUrnPersonOrderByNameAsc(personId, new PageRequest(calculatedPage, pageSize));
-    List<Team> teams = page.getContent().stream().map(team -> this.convertTeam(team, false, Optional.of(personId)))
-      .collect(Collectors.toList());
-    return new TeamResultWrapper(teams, page.getTotalElements(), offset, pageSize);
+    List<MyTeamSummary> summaries = teamRepository.findMyTeamSummaries(personId, new PageRequest(offset / pageSize, pageSize));
+    return convertTeamSummaries(summaries, countMyTeams(personId, null), offset, pageSize);
   }
 
   @Override
   public TeamResultWrapper findTeamsByMember(String personId, String partOfGroupname, int offset, int pageSize) {
-    Page<teams.migration.Team> page = teamRepository.findByNameContainingIgnoreCaseAndMembershipsUrnPersonOrderByNameAsc(partOfGroupname, personId, new PageRequest(offset, pageSize));
-    List<Team> teams = page.getContent().stream().map(team -> this.convertTeam(team, false, Optional.of(personId)))
-      .collect(Collectors.toList());
-    return new TeamResultWrapper(teams, page.getTotalElements(), offset, pageSize);
+    List<MyTeamSummary> summaries = teamRepository.findMyTeamSummariesByName(partOfGroupname, personId, new PageRequest(offset / pageSize, pageSize));
+    return convertTeamSummaries(summaries, countMyTeams(personId, partOfGroupname), offset, pageSize);
+  }
+
+  @Override
+  public TeamResultWrapper findTeamsByMember(String personId, String partOfGroupname, TeamCursor after, int offset, int pageSize) {
+    PageRequest firstPage = new PageRequest(0, pageSize);
+    List<MyTeamSummary> summaries = StringUtils.hasText(partOfGroupname) ?
+      teamRepository.findMyTeamSummariesByNameAfter(partOfGroupname, personId, after.getName(), after.getUrn(), firstPage) :
+      teamRepository.findMyTeamSummariesAfter(personId, after.getName(), after.getUrn(), firstPage);
+    return convertTeamSummaries(summaries, countMyTeams(personId, partOfGroupname), offset, pageSize);
   }
 
   @Override
@@ -188,43 +319,133 @@ public class TeamService implements GrouperTeamService {
     return Collections.singletonList(new Stem(defaultStemName, null, null));
   }
 
-  private Member convertMembershipToMember(Membership membership) {
-    teams.migration.Person person = membership.getPerson();
+  private List<IndexedTeam> searchTeams(String personId, String partOfGroupname, Supplier<Set<String>> teamUrnsOfPerson) {
+    if (!teamSearchIndex.isBuilt()) {
+      //the index is built in the background shortly after startup, until then the search scans the table for the same
+      //matches: the name or description contains the query, ignoring case
+      if (!StringUtils.hasText(partOfGroupname)) {
+        return Collections.emptyList();
+      }
+      return teamRepository.findPublicTeams(MembershipRepository.escapeLike(partOfGroupname.trim()), personId).stream()
+        .map(team -> new IndexedTeam(team.getUrn(), team.getName(), team.getDescription(), team.isViewable()))
+        .collect(Collectors.toList());
+    }
+    return teamSearchIndex.search(partOfGroupname, teamUrnsOfPerson);
+  }
+
+  /*
+   * The search index of this node lags behind the changes made on the other nodes, so the hits that are returned are
+   * read again: teams deleted since are dropped and teams made private since are only returned to their members.
+   */
+  private List<Team> currentTeams(List<IndexedTeam> hits, Supplier<Set<String>> teamUrnsOfPerson) {
+    if (hits.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<String> urns = hits.stream().map(IndexedTeam::getUrn).collect(Collectors.toList());
+    Map<String, TeamSummary> current = Lists.partition(urns, MAX_URNS_PER_QUERY).stream()
+      .flatMap(chunk -> teamRepository.findTeamSummariesByUrnIn(chunk).stream())
+      .collect(Collectors.toMap(TeamSummary::getUrn, Function.identity()));
+    return urns.stream()
+      .map(current::get)
+      .filter(team -> team != null && (team.isViewable() || teamUrnsOfPerson.get().contains(team.getUrn())))
+      .map(team -> new Team(team.getUrn(), team.getName(), team.getDescription(), team.isViewable()))
+      .collect(Collectors.toList());
+  }
+
+  private Supplier<Set<String>> teamUrnsOfPerson(String personId) {
+    com.google.common.base.Supplier<Set<String>> teamUrns = Suppliers.memoize(() -> StringUtils.hasText(personId) ?
+      membershipRepository.findUrnTeamByUrnPerson(personId) : Collections.emptySet());
+    return teamUrns::get;
+  }
+
+  private void indexTeam(teams.migration.Team team) {
+    IndexedTeam indexedTeam = new IndexedTeam(team.getUrn(), team.getName(), team.getDescription(), team.isViewable());
+    //a rolled back change must not show up in the search
+    afterCommit(() -> teamSearchIndex.index(indexedTeam));
+  }
+
+  private Member convertMemberSummary(MemberSummary summary) {
     Member member = new Member(
-      convertRoles(membership.getRole()),
-      person.getName(),
-      person.getUrn(),
-      person.getEmail());
-    member.setGuest(person.isGuest());
+      convertRoles(summary.getRole()),
+      summary.getName(),
+      summary.getUrn(),
+      summary.getEmail());
+    member.setGuest(summary.isGuest());
     return member;
   }
 
-  private Team convertTeam(teams.migration.Team team, boolean includeMembership, Optional<String> personUrnOptional) {
-    Team result = new Team(
-      team.getUrn(),
-      team.getName(),
-      team.getDescription(),
-      includeMembership ?
-        team.getMemberships().stream().map(this::convertMembershipToMember).collect(Collectors.toList()) :
-        Collections.emptyList(),
-      team.isViewable(),
-      team.getMembershipCount());
-    if (personUrnOptional.isPresent()) {
-      String personUrn = personUrnOptional.get();
-      teams.migration.Role role = team.getMemberships().stream().filter(membership -> membership.getUrnPerson().equals(personUrn))
-        .findFirst()
-        .map(Membership::getRole)
-        .orElseThrow(() -> new ResourceNotFoundException(String.format("Team %s does not contain member %s", team, personUrn)));
-      result.setViewerRole(convertRole(role));
+  private TeamResultWrapper convertTeamSummaries(List<MyTeamSummary> summaries, long totalCount, int offset, int pageSize) {
+    List<Team> teams = summaries.stream().map(this::convertTeamSummary).collect(Collectors.toList());
+    TeamResultWrapper resultWrapper = new TeamResultWrapper(teams, totalCount, offset, pageSize);
+    if (summaries.size() == pageSize && offset + pageSize < totalCount) {
+      MyTeamSummary last = summaries.get(summaries.size() - 1);
+      resultWrapper.setNextCursor(new TeamCursor(last.getName(), last.getUrn()).encode());
+    }
+    return resultWrapper;
+  }
+
+  /*
+   * The count only feeds the pager, so a briefly stale value - at most one minute for changes made by other nodes, see
+   * myTeamsCounts - is preferred over a count query on every page
+   */
+  private long countMyTeams(String personId, String partOfGroupname) {
+    String query = StringUtils.hasText(partOfGroupname) ? partOfGroupname : "";
+    try {
+      return myTeamsCounts.get(personId + COUNT_KEY_SEPARATOR + query, () -> query.isEmpty() ?
+        teamRepository.countMyTeams(personId) : teamRepository.countMyTeamsByName(query, personId));
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  private void afterCommit(Runnable runnable) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      runnable.run();
+      return;
     }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+      @Override
+      public void afterCommit() {
+        runnable.run();
+      }
+    });
+  }
+
+  private void invalidateMyTeamsCounts(String personId) {
+    myTeamsCounts.asMap().keySet().removeIf(key -> key.startsWith(personId + COUNT_KEY_SEPARATOR));
+  }
+
+  private Team convertTeamSummary(MyTeamSummary summary) {
+    Team result = new Team(
+      summary.getUrn(),
+      summary.getName(),
+      summary.getDescription(),
+      Collections.emptyList(),
+      summary.isViewable(),
+      summary.getMembershipCount());
+    result.setViewerRole(convertRole(summary.getRole()));
     return result;
   }
 
+  private Team convertTeam(TeamSummary summary, List<Member> members) {
+    return new Team(
+      summary.getUrn(),
+      summary.getName(),
+      summary.getDescription(),
+      members,
+      summary.isViewable(),
+      summary.getMembershipCount());
+  }
+
   private teams.migration.Team findTeamByUrn(String teamId) {
-    Optional<teams.migration.Team> teamOptional = teamRepository.findByUrn(teamId);
+    Optional<teams.migration.Team> teamOptional = teamRepository.findUncachedByUrn(teamId);
     return teamOptional.orElseThrow(doesNotExist("Team", teamId));
   }
 
+  private TeamSummary findTeamSummaryByUrn(String teamId) {
+    return teamRepository.findTeamSummaryByUrn(teamId).orElseThrow(doesNotExist("Team", teamId));
+  }
+
   private teams.migration.Person findPersonByUrn(String personId) {
     Optional<teams.migration.Person> personOptional = personRepository.findByUrn(personId);
     return personOptional.orElseThrow(doesNotExist("Person", personId));
@@ -247,6 +468,22 @@ public class TeamService implements GrouperTeamService {
     return Role.valueOf(WordUtils.capitalize(role.name().toLowerCase()));
   }
 
+  /*
+   * The inverse of convertRoles: the membership roles that include the given role
+   */
+  private Set<teams.migration.Role> rolesIncluding(Role role) {
+    switch (role) {
+      case Admin:
+        return EnumSet.of(teams.migration.Role.ADMIN);
+      case Manager:
+        return EnumSet.of(teams.migration.Role.ADMIN, teams.migration.Role.MANAGER);
+      case Member:
+        return EnumSet.allOf(teams.migration.Role.class);
+      default:
+        return EnumSet.noneOf(teams.migration.Role.class);
+    }
+  }
+
   private Set<Role> convertRoles(teams.migration.Role role) {
     switch (role) {
       case ADMIN:
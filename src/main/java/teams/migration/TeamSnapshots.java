@@ -0,0 +1,56 @@
+package teams.migration;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import teams.domain.Team;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The teams loaded during the current request, so the controllers and interceptors that look up the same team several
+ * times in one request load it once. Outside a request, for example in scheduled jobs, every lookup loads the team. The
+ * mutators of the {@link TeamService} evict the changed team.
+ */
+final class TeamSnapshots {
+
+  private static final String REQUEST_ATTRIBUTE = TeamSnapshots.class.getName();
+
+  private TeamSnapshots() {
+  }
+
+  static Team get(String teamId, Function<String, Team> loader) {
+    Map<String, Team> snapshots = snapshots(true);
+    if (snapshots == null) {
+      return loader.apply(teamId);
+    }
+    Team team = snapshots.get(teamId);
+    if (team == null) {
+      team = loader.apply(teamId);
+      snapshots.put(teamId, team);
+    }
+    return team;
+  }
+
+  static void evict(String teamId) {
+    Map<String, Team> snapshots = snapshots(false);
+    if (snapshots != null) {
+      snapshots.remove(teamId);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, Team> snapshots(boolean create) {
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    if (attributes == null) {
+      return null;
+    }
+    Map<String, Team> snapshots = (Map<String, Team>) attributes.getAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+    if (snapshots == null && create) {
+      snapshots = new HashMap<>();
+      attributes.setAttribute(REQUEST_ATTRIBUTE, snapshots, RequestAttributes.SCOPE_REQUEST);
+    }
+    return snapshots;
+  }
+}
@@ -9,9 +9,13 @@ public class TeamSummary {
 
     private Long id;
 
-    private String name;
+    private String urn;
 
-    private int membershipCount;
+    private String name;
 
     private String description;
+
+    private boolean viewable;
+
+    private int membershipCount;
 }
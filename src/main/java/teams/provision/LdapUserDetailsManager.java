@@ -1,36 +1,72 @@
 package teams.provision;
 
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.ldap.control.PagedResultsDirContextProcessor;
 import org.springframework.ldap.core.AttributesMapper;
 import org.springframework.ldap.core.LdapOperations;
 import org.springframework.ldap.filter.AndFilter;
 import org.springframework.ldap.filter.EqualsFilter;
-import org.springframework.ldap.support.LdapEncoder;
-import teams.domain.Person;
+import org.springframework.ldap.filter.OrFilter;
 
+import javax.naming.NamingEnumeration;
 import javax.naming.NamingException;
 import javax.naming.directory.Attribute;
 import javax.naming.directory.Attributes;
-import javax.naming.directory.BasicAttribute;
-import javax.naming.directory.BasicAttributes;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.SearchControls;
+import javax.naming.directory.SearchResult;
 import java.time.Instant;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-public class LdapUserDetailsManager implements UserDetailsManager {
+import static java.util.stream.Collectors.toList;
+
+public class LdapUserDetailsManager implements UserDetailsManager, DisposableBean {
 
   private static final Logger LOG = LoggerFactory.getLogger(LdapUserDetailsManager.class);
 
+  private static final String[] PERSON_ATTRIBUTES = {"collabpersonid", "mail", "cn", "collabpersonisguest", "collabpersonregistered"};
+
   private final LdapOperations ldapOperations;
+  private final int batchSize;
+  private final int pageSize;
+  private final ExecutorService searches;
 
   private final Pattern RFC_822 = Pattern.compile("^(.{12})(\\d{2})(.*)$");
 
   public LdapUserDetailsManager(LdapOperations ldapOperations) {
+    this(ldapOperations, 100, 500, 1);
+  }
+
+  /**
+   * @param batchSize        the number of urns combined in the OR-filter of one search
+   * @param pageSize         the number of entries returned per page of a search
+   * @param parallelSearches the number of searches running at the same time in a bulk lookup
+   */
+  public LdapUserDetailsManager(LdapOperations ldapOperations, int batchSize, int pageSize, int parallelSearches) {
     this.ldapOperations = ldapOperations;
+    this.batchSize = batchSize;
+    this.pageSize = pageSize;
+    this.searches = Executors.newFixedThreadPool(parallelSearches,
+      new ThreadFactoryBuilder().setNameFormat("ldap-search-%d").setDaemon(true).build());
   }
 
   private <T> List<T> persons(String urn, AttributesMapper<T> attributesMapper) {
@@ -40,32 +76,108 @@ public class LdapUserDetailsManager implements UserDetailsManager {
 
     String encode = filter.encode();
 
-    LOG.info("LDAP query {}", encode);
+    LOG.debug("LDAP query {}", encode);
 
     //we have provided the ldapOperations with a base so here we need an empty String
     List<T> results = ldapOperations.search("", encode,
       attributesMapper);
 
-    LOG.info("LDAP query result {}", results);
+    LOG.debug("LDAP query result {}", results);
     return results;
   }
 
   @Override
   public Optional<teams.migration.Person> findPersonById(String urn) {
-    List<teams.migration.Person> persons = persons(urn, attributes -> {
-      String mail = this.safeGetAttribute(attributes, "mail");
-      String cn = this.safeGetAttribute(attributes, "cn");
-      String isGuest = this.safeGetAttribute(attributes, "collabpersonisguest");
-      String collabpersonregistered = this.safeGetAttribute(attributes, "collabpersonregistered");
-      Instant created = (collabpersonregistered != null ?
-        //RFC-1123 updates RFC-822 changing the year from two digits to four
-        Instant.from(DateTimeFormatter.RFC_1123_DATE_TIME.parse(rfc822ToRFC1123(collabpersonregistered))) :
-        Instant.now());
-      return new teams.migration.Person(urn, cn, mail, "TRUE".equals(isGuest), created);
-    });
+    List<teams.migration.Person> persons = persons(urn, attributes -> toPerson(urn, attributes));
     return persons.stream().findFirst();
   }
 
+  @Override
+  public Map<String, teams.migration.Person> findPersonsById(Collection<String> urns) {
+    List<List<String>> batches = Lists.partition(new ArrayList<>(new LinkedHashSet<>(urns)), batchSize);
+    if (batches.isEmpty()) {
+      return new HashMap<>();
+    }
+    List<Callable<Map<String, teams.migration.Person>>> tasks = batches.stream()
+      .map(batch -> (Callable<Map<String, teams.migration.Person>>) () -> persons(batch))
+      .collect(toList());
+
+    Map<String, teams.migration.Person> result = new HashMap<>();
+    try {
+      for (Future<Map<String, teams.migration.Person>> future : searches.invokeAll(tasks)) {
+        result.putAll(future.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while searching persons in LDAP", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Failed to search persons in LDAP", e.getCause());
+    }
+    LOG.debug("LDAP bulk query for {} urns in {} searches found {} persons", urns.size(), batches.size(), result.size());
+    return result;
+  }
+
+  @Override
+  public void destroy() throws Exception {
+    searches.shutdownNow();
+  }
+
+  /*
+   * One search for all urns of the batch. The paged results cookie is bound to the connection, so all pages are read
+   * over the single context of executeReadOnly.
+   */
+  private Map<String, teams.migration.Person> persons(List<String> urns) {
+    OrFilter urnFilter = new OrFilter();
+    urns.forEach(urn -> urnFilter.or(new EqualsFilter("collabpersonid", urn)));
+    String filter = new AndFilter()
+      .and(new EqualsFilter("objectclass", "collabPerson"))
+      .and(urnFilter)
+      .encode();
+
+    //directory attribute values are matched case insensitive, so we map the entries back to the urns asked for
+    Map<String, String> requestedUrns = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    urns.forEach(urn -> requestedUrns.put(urn, urn));
+
+    return ldapOperations.executeReadOnly((DirContext context) -> {
+      SearchControls searchControls = new SearchControls();
+      searchControls.setSearchScope(SearchControls.SUBTREE_SCOPE);
+      searchControls.setReturningAttributes(PERSON_ATTRIBUTES);
+
+      Map<String, teams.migration.Person> persons = new HashMap<>();
+      PagedResultsDirContextProcessor processor = new PagedResultsDirContextProcessor(pageSize);
+      do {
+        processor.preProcess(context);
+        //we have provided the ldapOperations with a base so here we need an empty String
+        NamingEnumeration<SearchResult> results = context.search("", filter, searchControls);
+        try {
+          while (results.hasMore()) {
+            Attributes attributes = results.next().getAttributes();
+            String urn = requestedUrns.get(safeGetAttribute(attributes, "collabpersonid"));
+            if (urn != null) {
+              persons.putIfAbsent(urn, toPerson(urn, attributes));
+            }
+          }
+        } finally {
+          results.close();
+        }
+        processor.postProcess(context);
+      } while (processor.hasMore());
+      return persons;
+    });
+  }
+
+  private teams.migration.Person toPerson(String urn, Attributes attributes) throws NamingException {
+    String mail = this.safeGetAttribute(attributes, "mail");
+    String cn = this.safeGetAttribute(attributes, "cn");
+    String isGuest = this.safeGetAttribute(attributes, "collabpersonisguest");
+    String collabpersonregistered = this.safeGetAttribute(attributes, "collabpersonregistered");
+    Instant created = (collabpersonregistered != null ?
+      //RFC-1123 updates RFC-822 changing the year from two digits to four
+      Instant.from(DateTimeFormatter.RFC_1123_DATE_TIME.parse(rfc822ToRFC1123(collabpersonregistered))) :
+      Instant.now());
+    return new teams.migration.Person(urn, cn, mail, "TRUE".equals(isGuest), created);
+  }
+
   private String rfc822ToRFC1123(String date) {
     Matcher matcher = RFC_822.matcher(date);
     matcher.find();
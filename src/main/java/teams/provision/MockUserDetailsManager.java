@@ -3,6 +3,9 @@ package teams.provision;
 import teams.domain.Member;
 import teams.domain.Person;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Optional;
 
 public class MockUserDetailsManager implements UserDetailsManager {
@@ -11,4 +14,9 @@ public class MockUserDetailsManager implements UserDetailsManager {
   public Optional<teams.migration.Person> findPersonById(String urn) {
     return Optional.empty();
   }
+
+  @Override
+  public Map<String, teams.migration.Person> findPersonsById(Collection<String> urns) {
+    return Collections.emptyMap();
+  }
 }
@@ -3,10 +3,19 @@ package teams.provision;
 import teams.domain.Member;
 import teams.domain.Person;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
 
 public interface UserDetailsManager {
 
   Optional<teams.migration.Person> findPersonById(String urn);
 
+  /**
+   * Looks up many persons in as few searches as possible.
+   *
+   * @return the persons found by urn, urns that are unknown are absent
+   */
+  Map<String, teams.migration.Person> findPersonsById(Collection<String> urns);
+
 }
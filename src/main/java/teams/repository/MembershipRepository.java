@@ -1,12 +1,67 @@
 package teams.repository;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
+import teams.migration.MemberSummary;
 import teams.migration.Membership;
 import teams.migration.Person;
+import teams.migration.Role;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 public interface MembershipRepository extends PagingAndSortingRepository<Membership, Long> {
 
+  String MEMBER_SUMMARY_SELECT = "select new teams.migration.MemberSummary(p.urn, p.name, p.email, p.guest, m.role) " +
+    "from memberships m join m.person p where m.urnTeam = :teamUrn ";
+
+  //the name must be escaped with escapeLike, so % and _ in it are matched literally
+  String NAME_LIKE = "and lower(p.name) like lower(concat('%', :name, '%')) escape '!' ";
+
+  String ORDER_BY_URN_PERSON = "order by m.urnPerson asc";
+
+  String ORDER_BY_NAME_AND_URN_PERSON = "order by p.name asc, m.urnPerson asc";
+
   Optional<Membership> findByUrnTeamAndUrnPerson(String teamUrn, String personUrn);
+
+  boolean existsByUrnTeamAndUrnPersonAndRoleIn(String teamUrn, String personUrn, Collection<Role> roles);
+
+  @Query("select m.urnTeam from memberships m where m.urnPerson = :personUrn")
+  Set<String> findUrnTeamByUrnPerson(@Param("personUrn") String personUrn);
+
+  @Query(MEMBER_SUMMARY_SELECT + ORDER_BY_URN_PERSON)
+  List<MemberSummary> findMemberSummaries(@Param("teamUrn") String teamUrn);
+
+  @Query(MEMBER_SUMMARY_SELECT + "and m.urnPerson > :afterUrn " + ORDER_BY_URN_PERSON)
+  List<MemberSummary> findMemberSummariesAfter(@Param("teamUrn") String teamUrn,
+                                               @Param("afterUrn") String afterUrn,
+                                               Pageable pageable);
+
+  @Query(MEMBER_SUMMARY_SELECT + ORDER_BY_NAME_AND_URN_PERSON)
+  List<MemberSummary> findMemberSummariesOrderByName(@Param("teamUrn") String teamUrn, Pageable pageable);
+
+  @Query(MEMBER_SUMMARY_SELECT + NAME_LIKE + ORDER_BY_NAME_AND_URN_PERSON)
+  List<MemberSummary> findMemberSummariesByNameOrderByName(@Param("teamUrn") String teamUrn,
+                                                           @Param("name") String name,
+                                                           Pageable pageable);
+
+  @Query(MEMBER_SUMMARY_SELECT + "and m.urnPerson in :personUrns " + ORDER_BY_URN_PERSON)
+  List<MemberSummary> findMemberSummariesByUrnPersonIn(@Param("teamUrn") String teamUrn,
+                                                       @Param("personUrns") Collection<String> personUrns);
+
+  @Query(MEMBER_SUMMARY_SELECT + "and m.role = :role " + ORDER_BY_URN_PERSON)
+  List<MemberSummary> findMemberSummariesByRole(@Param("teamUrn") String teamUrn, @Param("role") Role role);
+
+  long countByUrnTeam(String teamUrn);
+
+  @Query("select count(m) from memberships m join m.person p where m.urnTeam = :teamUrn " + NAME_LIKE)
+  long countByUrnTeamAndName(@Param("teamUrn") String teamUrn, @Param("name") String name);
+
+  static String escapeLike(String name) {
+    return name.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+  }
 }
@@ -1,12 +1,21 @@
 package teams.repository;
 
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import teams.migration.Person;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+
 public interface PersonRepository extends PagingAndSortingRepository<Person, Long> {
 
+  @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
   Optional<Person> findByUrn(String urn);
 
+  List<Person> findByUrnIn(Collection<String> urns);
+
 }
@@ -1,28 +1,97 @@
 package teams.repository;
 
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import teams.migration.MyTeamSummary;
 import teams.migration.Team;
+import teams.migration.TeamSummary;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
 
 public interface TeamRepository extends PagingAndSortingRepository<Team, Long> {
 
-    List<Team> findByNameContainingIgnoreCaseOrderByNameAsc(String name);
+    String MY_TEAM_SUMMARY_SELECT = "select new teams.migration.MyTeamSummary(t.id, t.urn, t.name, t.description, " +
+      "t.viewable, t.membershipCount, m.role) from teams t join t.memberships m where m.urnPerson = :personUrn ";
+
+    String NAME_LIKE = "and lower(t.name) like lower(concat('%', :name, '%')) ";
+
+    String AFTER_CURSOR = "and (t.name > :afterName or (t.name = :afterName and t.urn > :afterUrn)) ";
+
+    String ORDER_BY_NAME_AND_URN = "order by t.name asc, t.urn asc";
 
     List<Team> findByUrnIn(List<String> urns);
 
     @EntityGraph(value = "Team.memberships", type = EntityGraph.EntityGraphType.LOAD)
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     Optional<Team> findByUrn(String urn);
 
-    @EntityGraph(value = "Team.memberships", type = EntityGraph.EntityGraphType.LOAD)
-    Page<Team> findByMembershipsUrnPersonOrderByNameAsc(String personUrn, Pageable pageable);
+    //the write paths read the team past the second-level cache, whose copy can predate a change made on another node
+    @Query("select t from teams t where t.urn = :urn")
+    Optional<Team> findUncachedByUrn(@Param("urn") String urn);
 
-    @EntityGraph(value = "Team.memberships", type = EntityGraph.EntityGraphType.LOAD)
-    Page<Team> findByNameContainingIgnoreCaseAndMembershipsUrnPersonOrderByNameAsc(String name, String personUrn, Pageable pageable);
+    @Query("select new teams.migration.TeamSummary(t.id, t.urn, t.name, t.description, t.viewable, t.membershipCount) " +
+      "from teams t where t.urn = :urn")
+    Optional<TeamSummary> findTeamSummaryByUrn(@Param("urn") String urn);
+
+    @Query("select new teams.migration.TeamSummary(t.id, t.urn, t.name, t.description, t.viewable, t.membershipCount) " +
+      "from teams t where t.urn in :urns")
+    List<TeamSummary> findTeamSummariesByUrnIn(@Param("urns") Collection<String> urns);
+
+    List<Team> findByUrnGreaterThanOrderByUrnAsc(String urn, Pageable pageable);
+
+    //the name must be escaped with MembershipRepository.escapeLike, so % and _ in it are matched literally
+    @Query("select t from teams t where (lower(t.name) like lower(concat('%', :name, '%')) escape '!' or " +
+      "lower(t.description) like lower(concat('%', :name, '%')) escape '!') and (t.viewable = true or " +
+      "exists (select m.id from memberships m where m.team = t and m.urnPerson = :personUrn)) " + ORDER_BY_NAME_AND_URN)
+    List<Team> findPublicTeams(@Param("name") String name, @Param("personUrn") String personUrn);
+
+    @Query(MY_TEAM_SUMMARY_SELECT + ORDER_BY_NAME_AND_URN)
+    List<MyTeamSummary> findMyTeamSummaries(@Param("personUrn") String personUrn, Pageable pageable);
+
+    @Query(MY_TEAM_SUMMARY_SELECT + ORDER_BY_NAME_AND_URN)
+    List<MyTeamSummary> findAllMyTeamSummaries(@Param("personUrn") String personUrn);
+
+    @Query(MY_TEAM_SUMMARY_SELECT + AFTER_CURSOR + ORDER_BY_NAME_AND_URN)
+    List<MyTeamSummary> findMyTeamSummariesAfter(@Param("personUrn") String personUrn,
+                                                 @Param("afterName") String afterName,
+                                                 @Param("afterUrn") String afterUrn,
+                                                 Pageable pageable);
+
+    @Query(MY_TEAM_SUMMARY_SELECT + NAME_LIKE + ORDER_BY_NAME_AND_URN)
+    List<MyTeamSummary> findMyTeamSummariesByName(@Param("name") String name, @Param("personUrn") String personUrn, Pageable pageable);
+
+    @Query(MY_TEAM_SUMMARY_SELECT + NAME_LIKE + AFTER_CURSOR + ORDER_BY_NAME_AND_URN)
+    List<MyTeamSummary> findMyTeamSummariesByNameAfter(@Param("name") String name,
+                                                       @Param("personUrn") String personUrn,
+                                                       @Param("afterName") String afterName,
+                                                       @Param("afterUrn") String afterUrn,
+                                                       Pageable pageable);
+
+    @Query("select count(m) from memberships m where m.urnPerson = :personUrn")
+    long countMyTeams(@Param("personUrn") String personUrn);
+
+    @Query("select count(m) from memberships m join m.team t where m.urnPerson = :personUrn " + NAME_LIKE)
+    long countMyTeamsByName(@Param("name") String name, @Param("personUrn") String personUrn);
+
+    @Modifying
+    @Transactional
+    @Query("update teams t set t.membershipCount = t.membershipCount + :delta where t.id = :id")
+    int updateMembershipCount(@Param("id") Long id, @Param("delta") int delta);
+
+    @Modifying
+    @Transactional
+    @Query(value = "update teams t set t.member_count = (select count(*) from memberships m where m.team_id = t.id) " +
+      "where t.member_count <> (select count(*) from memberships m where m.team_id = t.id)", nativeQuery = true)
+    int reconcileMembershipCounts();
 }
@@ -0,0 +1,78 @@
+package teams.scheduling;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Time bound leases on scheduled jobs, kept in the scheduled_job_leases table, so a job runs on one node of the
+ * cluster at a time without configuring which node is responsible. A lease that is not renewed or released expires,
+ * so a node that dies while holding it doesn't block the job on the other nodes. Expiry is decided by the clock of the
+ * database rather than by the clocks of the nodes. The table also holds the last run of every job, whichever node ran
+ * it.
+ */
+@Component
+public class JobLease {
+
+  private static final String DB_NOW_MILLIS = "ROUND(UNIX_TIMESTAMP(NOW(3)) * 1000)";
+
+  private static final String INSERT_LEASE = "INSERT IGNORE INTO scheduled_job_leases (job_name, owner, lease_until) VALUES (?, '', 0)";
+  private static final String ACQUIRE_LEASE = "UPDATE scheduled_job_leases SET owner = ?, lease_until = " + DB_NOW_MILLIS + " + ? " +
+    "WHERE job_name = ? AND (lease_until < " + DB_NOW_MILLIS + " OR owner = ?)";
+  private static final String RELEASE_LEASE = "UPDATE scheduled_job_leases SET lease_until = 0 WHERE job_name = ? AND owner = ?";
+  private static final String RECORD_RUN = "UPDATE scheduled_job_leases SET last_run_owner = ?, last_run_started = ?, " +
+    "last_run_millis = ?, last_run_succeeded = ?, last_success = IF(?, ?, last_success) WHERE job_name = ?";
+  private static final String FIND_ALL = "SELECT job_name, owner, lease_until, last_run_owner, last_run_started, " +
+    "last_run_millis, last_run_succeeded, last_success FROM scheduled_job_leases ORDER BY job_name";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final String owner = ManagementFactory.getRuntimeMXBean().getName() + ":" + UUID.randomUUID();
+
+  @Autowired
+  public JobLease(@Qualifier("teamsJdbcTemplate") JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  /**
+   * Acquires the lease on a job, or renews it when this node already holds it.
+   *
+   * @param jobName        the name of the job
+   * @param durationMillis how long the lease is held unless renewed or released
+   * @return whether this node holds the lease
+   */
+  public boolean acquire(String jobName, long durationMillis) {
+    jdbcTemplate.update(INSERT_LEASE, jobName);
+    return jdbcTemplate.update(ACQUIRE_LEASE, owner, durationMillis, jobName, owner) == 1;
+  }
+
+  public void release(String jobName) {
+    jdbcTemplate.update(RELEASE_LEASE, jobName, owner);
+  }
+
+  public void recordRun(String jobName, JobRun run) {
+    long finished = run.getStarted().getTime() + run.getDurationMillis();
+    jdbcTemplate.update(RECORD_RUN, run.getNode(), run.getStarted().getTime(), run.getDurationMillis(),
+      run.isSucceeded(), run.isSucceeded(), finished, jobName);
+  }
+
+  /**
+   * @return the lease and the last run of every job that ever ran, keyed by the name of the job
+   */
+  public Map<String, Map<String, Object>> findAll() {
+    List<Map<String, Object>> rows = jdbcTemplate.queryForList(FIND_ALL);
+    Map<String, Map<String, Object>> leases = new LinkedHashMap<>();
+    rows.forEach(row -> leases.put((String) row.remove("job_name"), row));
+    return leases;
+  }
+
+  public String getOwner() {
+    return owner;
+  }
+}
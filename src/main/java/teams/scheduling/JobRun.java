@@ -0,0 +1,43 @@
+package teams.scheduling;
+
+import java.util.Date;
+
+/**
+ * One run of a {@link ScheduledJob}.
+ */
+public class JobRun {
+
+  private final String node;
+  private final Date started;
+  private final long durationMillis;
+  private final boolean succeeded;
+  private final String error;
+
+  public JobRun(String node, Date started, long durationMillis, boolean succeeded, String error) {
+    this.node = node;
+    this.started = started;
+    this.durationMillis = durationMillis;
+    this.succeeded = succeeded;
+    this.error = error;
+  }
+
+  public String getNode() {
+    return node;
+  }
+
+  public Date getStarted() {
+    return started;
+  }
+
+  public long getDurationMillis() {
+    return durationMillis;
+  }
+
+  public boolean isSucceeded() {
+    return succeeded;
+  }
+
+  public String getError() {
+    return error;
+  }
+}
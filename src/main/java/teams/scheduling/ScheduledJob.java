@@ -0,0 +1,35 @@
+package teams.scheduling;
+
+import org.springframework.scheduling.Trigger;
+
+/**
+ * Background work that must run on one node of the cluster at a time. Beans implementing this interface are picked up
+ * by the {@link ScheduledJobCoordinator}, which runs them on their trigger on the node that acquires their lease.
+ */
+public interface ScheduledJob {
+
+  /**
+   * @return the unique name of the job, also the key of its lease
+   */
+  String getName();
+
+  Trigger getTrigger();
+
+  /**
+   * @return how long a run may take before another node may take over the job, unless the lease is renewed
+   */
+  long getLeaseMillis();
+
+  /**
+   * @param lease the lease of this node on the job, long running jobs renew it between units of work
+   */
+  void run(Lease lease);
+
+  interface Lease {
+
+    /**
+     * @return false when the lease was lost and the job should stop
+     */
+    boolean renew();
+  }
+}
@@ -0,0 +1,142 @@
+package teams.scheduling;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the {@link ScheduledJob} beans. Every node schedules every job, and on each trigger the node that acquires the
+ * lease of the job runs it. A node that is busy running another job waits a random moment before it tries, so the
+ * jobs that trigger at the same time spread over the nodes. The recent runs of every job on this node are kept for
+ * the scheduledjobs endpoint, the last run in the cluster is kept with the lease.
+ */
+@Component
+public class ScheduledJobCoordinator implements SchedulingConfigurer {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ScheduledJobCoordinator.class);
+
+  private static final int HISTORY_SIZE = 20;
+
+  private final List<ScheduledJob> jobs;
+  private final JobLease jobLease;
+  private final GaugeService gaugeService;
+  private final CounterService counterService;
+  private final long spreadMillis;
+
+  private final AtomicInteger running = new AtomicInteger();
+  private final Map<String, Deque<JobRun>> history = new LinkedHashMap<>();
+
+  @Autowired
+  public ScheduledJobCoordinator(List<ScheduledJob> jobs,
+                                 JobLease jobLease,
+                                 GaugeService gaugeService,
+                                 CounterService counterService,
+                                 @Value("${scheduledJobs.spreadMillis}") long spreadMillis) {
+    this.jobs = jobs;
+    this.jobLease = jobLease;
+    this.gaugeService = gaugeService;
+    this.counterService = counterService;
+    this.spreadMillis = spreadMillis;
+    jobs.forEach(job -> history.put(job.getName(), new LinkedList<>()));
+  }
+
+  @Override
+  public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+    jobs.forEach(job -> taskRegistrar.addTriggerTask(() -> run(job), job.getTrigger()));
+  }
+
+  /**
+   * Runs the job when this node acquires its lease.
+   *
+   * @return whether the job ran on this node
+   */
+  public boolean run(ScheduledJob job) {
+    String name = job.getName();
+    if (running.get() > 0 && !pause(ThreadLocalRandom.current().nextLong(spreadMillis + 1))) {
+      return false;
+    }
+    if (!jobLease.acquire(name, job.getLeaseMillis())) {
+      LOG.debug("Job {} runs on another node", name);
+      return false;
+    }
+
+    running.incrementAndGet();
+    Date started = new Date();
+    String error = null;
+    try {
+      job.run(() -> jobLease.acquire(name, job.getLeaseMillis()));
+    } catch (RuntimeException e) {
+      LOG.error("Job {} failed", name, e);
+      error = e.toString();
+    } finally {
+      running.decrementAndGet();
+    }
+
+    JobRun run = new JobRun(jobLease.getOwner(), started, System.currentTimeMillis() - started.getTime(), error == null, error);
+    record(name, run);
+    return true;
+  }
+
+  private void record(String name, JobRun run) {
+    gaugeService.submit("scheduledJobs." + name + ".duration", run.getDurationMillis());
+    counterService.increment("scheduledJobs." + name + (run.isSucceeded() ? ".succeeded" : ".failed"));
+
+    Deque<JobRun> runs = history.get(name);
+    synchronized (runs) {
+      runs.addFirst(run);
+      if (runs.size() > HISTORY_SIZE) {
+        runs.removeLast();
+      }
+    }
+    try {
+      jobLease.recordRun(name, run);
+      jobLease.release(name);
+    } catch (RuntimeException e) {
+      //the lease expires by itself
+      LOG.warn("Failed to record the run of job {}: {}", name, e.getMessage());
+    }
+  }
+
+  /**
+   * @return the recent runs on this node of every job, the latest first
+   */
+  public Map<String, List<JobRun>> getHistory() {
+    Map<String, List<JobRun>> result = new LinkedHashMap<>();
+    history.forEach((name, runs) -> {
+      synchronized (runs) {
+        result.put(name, new ArrayList<>(runs));
+      }
+    });
+    return result;
+  }
+
+  public List<ScheduledJob> getJobs() {
+    return jobs;
+  }
+
+  private boolean pause(long millis) {
+    try {
+      Thread.sleep(millis);
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+}
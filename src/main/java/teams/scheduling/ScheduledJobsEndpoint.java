@@ -0,0 +1,50 @@
+package teams.scheduling;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Actuator endpoint showing per job the lease, the last run and last success in the cluster and the recent runs with
+ * their durations on this node. Sensitive, as it shows the host names of the nodes.
+ */
+@Component
+@ConfigurationProperties(prefix = "endpoints.scheduledjobs")
+public class ScheduledJobsEndpoint extends AbstractEndpoint<Map<String, Object>> {
+
+  private final ScheduledJobCoordinator coordinator;
+  private final JobLease jobLease;
+
+  @Autowired
+  public ScheduledJobsEndpoint(ScheduledJobCoordinator coordinator, JobLease jobLease) {
+    super("scheduledjobs", true);
+    this.coordinator = coordinator;
+    this.jobLease = jobLease;
+  }
+
+  @Override
+  public Map<String, Object> invoke() {
+    Map<String, Map<String, Object>> leases = jobLease.findAll();
+    Map<String, List<JobRun>> history = coordinator.getHistory();
+
+    Map<String, Object> jobs = new LinkedHashMap<>();
+    coordinator.getJobs().forEach(job -> {
+      Map<String, Object> details = new LinkedHashMap<>();
+      details.put("leaseMillis", job.getLeaseMillis());
+      details.put("cluster", leases.getOrDefault(job.getName(), Collections.emptyMap()));
+      details.put("runsOnThisNode", history.getOrDefault(job.getName(), Collections.emptyList()));
+      jobs.put(job.getName(), details);
+    });
+
+    Map<String, Object> result = new LinkedHashMap<>();
+    result.put("node", jobLease.getOwner());
+    result.put("jobs", jobs);
+    return result;
+  }
+}
@@ -16,17 +16,19 @@
 
 package teams.service;
 
-import static java.util.stream.Collectors.toSet;
-
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Optional;
 import java.util.Set;
 
+import teams.domain.Invitation;
 import teams.domain.Member;
+import teams.domain.MemberResultWrapper;
 import teams.domain.Person;
 import teams.domain.Role;
 import teams.domain.Stem;
 import teams.domain.Team;
+import teams.domain.TeamCursor;
 import teams.domain.TeamResultWrapper;
 import teams.util.DuplicateTeamException;
 
@@ -45,8 +47,44 @@ public interface GrouperTeamService {
   Team findTeamById(String teamId);
 
   /**
-   * Add a {@link Team}. Note that the teamId is altered if not compliant to the
-   * rules for correct id's.
+   * Find {@link Team} by id without loading its members
+   *
+   * @param teamId
+   *          unique identifier for a {@link Team}
+   * @return Team without members, the number of members is set
+   */
+  Team findTeamSummaryById(String teamId);
+
+  /**
+   * Return one page of the members of a team ordered by name
+   *
+   * @param teamId
+   *          unique identifier for a {@link Team}
+   * @param partOfName
+   *          part of the member name, can be {@literal null} for all members
+   * @param offset
+   *          the row number of the start
+   * @param pageSize
+   *          the maximum result size
+   * @return members including the number of total records
+   */
+  MemberResultWrapper findMembers(String teamId, String partOfName, int offset, int pageSize);
+
+  /**
+   * Return the members of a team among the given persons
+   *
+   * @param teamId
+   *          unique identifier for a {@link Team}
+   * @param memberIds
+   *          the unique identifiers of the persons
+   * @return the persons that are a member of the team, can be empty
+   */
+  List<Member> findMembers(String teamId, Collection<String> memberIds);
+
+  /**
+   * Creates a {@link Team} in one transaction: the team with its visibility, the creator as its admin and the
+   * optional invitation of a second admin. Note that the teamId is altered if not compliant to the rules for correct
+   * id's.
    *
    * @param teamId
    *          the teamId
@@ -56,11 +94,18 @@ public interface GrouperTeamService {
    *          description of the team
    * @param stemName
    *          name of the stem
-   * @return The id of the team
+   * @param viewable
+   *          if {@literal false} then it's a private team
+   * @param admin
+   *          the {@link Person} creating the team, becomes its admin
+   * @param adminInvitation
+   *          {@link Invitation} of a second admin, can be {@literal null}
+   * @return the created {@link Team} with the admin as its member
    * @throws DuplicateTeamException
    *           when a team with with the given teamId already exists.
    */
-  String addTeam(String teamId, String displayName, String teamDescription, String stemName) throws DuplicateTeamException;
+  Team createTeam(String teamId, String displayName, String teamDescription, String stemName, boolean viewable,
+                  Person admin, Invitation adminInvitation) throws DuplicateTeamException;
 
   /**
    * Update a {@link Team}
@@ -156,11 +201,8 @@ public interface GrouperTeamService {
    *         Member by the memberId
    */
   default Member findMember(Team team, String memberId) {
-    Optional<Member> member = team.getMembers().stream()
-      .filter(m -> m.getId().equals(memberId))
-      .findFirst();
-
-    return member.orElseThrow(() -> new RuntimeException("Member(id='" + memberId + "') is not a member of the team"));
+    return team.getMember(memberId)
+      .orElseThrow(() -> new RuntimeException("Member(id='" + memberId + "') is not a member of the team"));
   }
 
   /**
@@ -171,11 +213,23 @@ public interface GrouperTeamService {
    * @return Set of {@link Member}'s with admin role, can be empty
    */
   default Set<Member> findAdmins(Team team) {
-    return team.getMembers().stream()
-        .filter(m -> m.getRoles().contains(Role.Admin))
-        .collect(toSet());
+    return new HashSet<>(team.getMembersWithRole(Role.Admin));
   }
 
+  /**
+   * Checks whether a person has a role in a team without loading the team. The roles are cumulative, an admin also
+   * has the manager and member role.
+   *
+   * @param teamId
+   *          unique identifier for a {@link Team}
+   * @param memberId
+   *          the unique identifier of a {@link Member}
+   * @param role
+   *          the {@link Role}
+   * @return {@literal true} if the person is a member of the team with at least the role
+   */
+  boolean hasRole(String teamId, String memberId, Role role);
+
   Stem findStem(String stemId);
 
   /**
@@ -190,6 +244,23 @@ public interface GrouperTeamService {
    */
   List<Team> findPublicTeams(String personId, String partOfGroupname);
 
+  /**
+   * Return one page of the teams with a name or description like the search
+   * term, best matches first, without the teams being private except if the
+   * personId is a member of the private team
+   *
+   * @param personId
+   *          the logged in person
+   * @param partOfGroupname
+   *          part of group name or description
+   * @param offset
+   *          the row number of the start
+   * @param pageSize
+   *          the maximum result size
+   * @return teams including the number of total records
+   */
+  TeamResultWrapper findPublicTeams(String personId, String partOfGroupname, int offset, int pageSize);
+
   /**
    * Return all teams using a specific stem where the personId is a member
    *
@@ -220,6 +291,25 @@ public interface GrouperTeamService {
    */
   TeamResultWrapper findTeamsByMember(String personId, String partOfGroupname, int offset, int pageSize);
 
+  /**
+   * Keyset variant of {@link #findTeamsByMember(String, String, int, int)} that continues directly after the
+   * given cursor instead of skipping offset rows. Only the "next" link of the pager carries a cursor, the numbered page
+   * links still skip offset rows
+   *
+   * @param personId
+   *          the logged in person
+   * @param partOfGroupname
+   *          part of group name, can be {@literal null} for all teams of the person
+   * @param after
+   *          the {@link TeamCursor} of the last team on the previous page
+   * @param offset
+   *          the row number of the start, only used for the pager
+   * @param pageSize
+   *          the maximum result size
+   * @return teams including the number of total records
+   */
+  TeamResultWrapper findTeamsByMember(String personId, String partOfGroupname, TeamCursor after, int offset, int pageSize);
+
   /**
    * Return all stems for a person
    *
@@ -0,0 +1,47 @@
+package teams.service;
+
+import java.util.List;
+import java.util.Optional;
+
+import teams.domain.Invitation;
+import teams.domain.InvitationJob;
+import teams.domain.Person;
+import teams.domain.Team;
+
+/**
+ * Queue of the invitation mails that are sent in the background. The queue is kept in the database, so the mails
+ * survive a restart and are sent by whichever node of the cluster runs the sending job.
+ */
+public interface InvitationJobService {
+
+  /**
+   * Queues the invitation mails of saved {@link Invitation}'s.
+   *
+   * @param team        the {@link Team} the invitations are for
+   * @param invitations saved {@link Invitation}'s
+   * @param subject     the subject of the mails
+   * @param inviter     the {@link Person} sending the invitations
+   * @return the {@link InvitationJob} to follow the progress
+   */
+  InvitationJob queueInvitationMails(Team team, List<Invitation> invitations, String subject, Person inviter);
+
+  /**
+   * @param jobId the id of the {@link InvitationJob}
+   * @return the job if it has queued mails or was started less than a day ago
+   */
+  Optional<InvitationJob> findJob(String jobId);
+
+  /**
+   * Sends and dequeues the oldest queued mails. The mail of an invitation that was deleted or answered in the meantime
+   * is dropped.
+   *
+   * @param maxMails the maximum number of mails to send
+   * @return the number of mails dequeued
+   */
+  int sendQueuedMails(int maxMails);
+
+  /**
+   * Deletes the jobs without queued mails that were started more than a day ago.
+   */
+  void deleteFinishedJobs();
+}
@@ -44,4 +44,13 @@ public interface JoinTeamRequestService {
   void delete(JoinTeamRequest pendingRequest);
 
   void saveOrUpdate(JoinTeamRequest joinTeamRequest);
+
+  /**
+   * Deletes at most maxRequests {@link JoinTeamRequest}'s made before the given time with one bulk statement.
+   *
+   * @param timestamp   the time in milliseconds before which requests are expired
+   * @param maxRequests the size of the chunk
+   * @return the number of deleted requests, less than maxRequests when there are no expired requests left
+   */
+  int deleteRequestsBefore(long timestamp, int maxRequests);
 }
@@ -16,7 +16,9 @@
 
 package teams.service;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import teams.domain.Invitation;
@@ -33,6 +35,15 @@ public interface TeamInviteService {
    */
   Optional<Invitation> findOpenInvitation(String email, Team team);
 
+  /**
+   * Searches for the open {@link Invitation}'s of a team for many email addresses at once.
+   *
+   * @param emails addresses to send invitations to
+   * @param team   {@link Team}
+   * @return the open {@link Invitation}'s keyed by their email address, ignoring case
+   */
+  Map<String, Invitation> findOpenInvitations(Collection<String> emails, Team team);
+
   /**
    * Searches for an {@link Invitation} by its generated hash
    * (which is sent to the invitee).
@@ -70,5 +81,19 @@ public interface TeamInviteService {
 
   void saveOrUpdate(Invitation invitation);
 
-  void cleanupExpiredInvitations();
+  /**
+   * Saves all invitations in one transaction, inserting the new ones in JDBC batches.
+   *
+   * @param invitations new and existing {@link Invitation}'s
+   */
+  void saveOrUpdate(Collection<Invitation> invitations);
+
+  /**
+   * Deletes at most maxInvitations expired {@link Invitation}'s and their messages with bulk statements in one
+   * transaction.
+   *
+   * @param maxInvitations the size of the chunk
+   * @return the number of deleted invitations, less than maxInvitations when there are no expired invitations left
+   */
+  int deleteExpiredInvitations(int maxInvitations);
 }
@@ -0,0 +1,64 @@
+package teams.service.impl;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import teams.domain.ExternalGroup;
+import teams.service.VootClient;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the external groups per user for all sessions of this node, so the detail and add-external-group pages don't
+ * call VOOT on every view. Concurrent misses for the same user share one VOOT call, and once an entry is older than
+ * the refresh interval the next read triggers a background reload while the stale groups are still served.
+ */
+public class CachingVootClient implements VootClient {
+
+  private final LoadingCache<String, List<ExternalGroup>> groups;
+
+  public CachingVootClient(VootClient delegate, long maximumSize, long refreshAfterSeconds, long expireAfterSeconds, int refreshThreads) {
+    this(delegate, maximumSize, refreshAfterSeconds, expireAfterSeconds, Executors.newFixedThreadPool(refreshThreads,
+      new ThreadFactoryBuilder().setNameFormat("voot-refresh-%d").setDaemon(true).build()));
+  }
+
+  CachingVootClient(VootClient delegate, long maximumSize, long refreshAfterSeconds, long expireAfterSeconds, Executor refreshExecutor) {
+    this.groups = CacheBuilder.newBuilder()
+      .maximumSize(maximumSize)
+      .refreshAfterWrite(refreshAfterSeconds, TimeUnit.SECONDS)
+      .expireAfterWrite(expireAfterSeconds, TimeUnit.SECONDS)
+      .recordStats()
+      .build(CacheLoader.asyncReloading(new CacheLoader<String, List<ExternalGroup>>() {
+        @Override
+        public List<ExternalGroup> load(String userId) {
+          return ImmutableList.copyOf(delegate.groups(userId));
+        }
+      }, refreshExecutor));
+  }
+
+  @Override
+  public List<ExternalGroup> groups(String userId) {
+    try {
+      return groups.getUnchecked(userId);
+    } catch (UncheckedExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  public void evict(String userId) {
+    groups.invalidate(userId);
+  }
+
+  public CacheStats stats() {
+    return groups.stats();
+  }
+
+}
@@ -4,32 +4,95 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.dao.ConcurrencyFailureException;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.support.PeriodicTrigger;
 import org.springframework.stereotype.Component;
 
+import teams.scheduling.ScheduledJob;
 import teams.service.TeamInviteService;
 
+/**
+ * Purges the expired invitations in chunks, each chunk in a transaction of its own with a pause in between, so a
+ * large backlog doesn't hold locks or memory for long.
+ */
 @Component
-public class ExpiredInvitationsRemover {
+public class ExpiredInvitationsRemover implements ScheduledJob {
 
   private static final Logger LOG = LoggerFactory.getLogger(ExpiredInvitationsRemover.class);
 
+  private final TeamInviteService teamInviteService;
+  private final GaugeService gaugeService;
+  private final CounterService counterService;
+  private final int chunkSize;
+  private final long pauseMillis;
+  private final long intervalMillis;
+  private final long leaseMillis;
+
   @Autowired
-  private TeamInviteService teamInviteService;
+  public ExpiredInvitationsRemover(TeamInviteService teamInviteService,
+                                   GaugeService gaugeService,
+                                   CounterService counterService,
+                                   @Value("${invitationPurge.chunkSize}") int chunkSize,
+                                   @Value("${invitationPurge.pauseMillis}") long pauseMillis,
+                                   @Value("${invitationPurge.intervalMillis}") long intervalMillis,
+                                   @Value("${invitationPurge.leaseMillis}") long leaseMillis) {
+    this.teamInviteService = teamInviteService;
+    this.gaugeService = gaugeService;
+    this.counterService = counterService;
+    this.chunkSize = chunkSize;
+    this.pauseMillis = pauseMillis;
+    this.intervalMillis = intervalMillis;
+    this.leaseMillis = leaseMillis;
+  }
+
+  @Override
+  public String getName() {
+    return "expiredInvitationsRemover";
+  }
 
-  @Value("${teamsCronJobResponsible}")
-  private boolean teamsCronJobResponsible;
+  @Override
+  public Trigger getTrigger() {
+    PeriodicTrigger trigger = new PeriodicTrigger(intervalMillis);
+    trigger.setInitialDelay(60 * 1000);
+    return trigger;
+  }
 
-  @Scheduled(cron = "0 50 23 * * *") // every day at 23:50
-  public void removeExpiredInvitations() {
-    try {
-      if (teamsCronJobResponsible) {
-        teamInviteService.cleanupExpiredInvitations();
-      }
+  @Override
+  public long getLeaseMillis() {
+    return leaseMillis;
+  }
+
+  @Override
+  public void run(Lease lease) {
+    long start = System.currentTimeMillis();
+    int total = 0;
+    int deleted;
+    do {
+      deleted = teamInviteService.deleteExpiredInvitations(chunkSize);
+      total += deleted;
+      counterService.increment("invitations.purge.chunks");
+    } while (deleted == chunkSize && pause() && lease.renew());
+
+    long millis = Math.max(1, System.currentTimeMillis() - start);
+    long rowsPerSecond = total * 1000L / millis;
+    gaugeService.submit("invitations.purge.rowsPerSecond", rowsPerSecond);
+    if (total > 0) {
+      LOG.info("Deleted {} expired invitations in {} ms ({} per second)", total, millis, rowsPerSecond);
+    }
+  }
 
-    } catch (ConcurrencyFailureException e) {
-      LOG.info("Failed to remove expired invitations other server instance has won");
+  /*
+   * Yields to the other users of the tables between chunks
+   */
+  private boolean pause() {
+    try {
+      Thread.sleep(pauseMillis);
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
     }
   }
 
@@ -0,0 +1,72 @@
+package teams.service.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.support.PeriodicTrigger;
+import org.springframework.stereotype.Component;
+
+import teams.scheduling.ScheduledJob;
+import teams.service.JoinTeamRequestService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes the join requests the admins of a team did not handle within the expiry period, in chunks.
+ */
+@Component
+public class ExpiredJoinRequestsRemover implements ScheduledJob {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ExpiredJoinRequestsRemover.class);
+
+  private final JoinTeamRequestService joinTeamRequestService;
+  private final long expiryMillis;
+  private final int chunkSize;
+  private final long intervalMillis;
+
+  @Autowired
+  public ExpiredJoinRequestsRemover(JoinTeamRequestService joinTeamRequestService,
+                                    @Value("${joinRequestPurge.expiryDays}") int expiryDays,
+                                    @Value("${joinRequestPurge.chunkSize}") int chunkSize,
+                                    @Value("${joinRequestPurge.intervalMillis}") long intervalMillis) {
+    this.joinTeamRequestService = joinTeamRequestService;
+    this.expiryMillis = TimeUnit.DAYS.toMillis(expiryDays);
+    this.chunkSize = chunkSize;
+    this.intervalMillis = intervalMillis;
+  }
+
+  @Override
+  public String getName() {
+    return "expiredJoinRequestsRemover";
+  }
+
+  @Override
+  public Trigger getTrigger() {
+    PeriodicTrigger trigger = new PeriodicTrigger(intervalMillis);
+    trigger.setInitialDelay(2 * 60 * 1000);
+    return trigger;
+  }
+
+  @Override
+  public long getLeaseMillis() {
+    return 10 * 60 * 1000;
+  }
+
+  @Override
+  public void run(Lease lease) {
+    long expired = System.currentTimeMillis() - expiryMillis;
+    int total = 0;
+    int deleted;
+    do {
+      deleted = joinTeamRequestService.deleteRequestsBefore(expired, chunkSize);
+      total += deleted;
+    } while (deleted == chunkSize && lease.renew());
+
+    if (total > 0) {
+      LOG.info("Deleted {} expired join requests", total);
+    }
+  }
+
+}
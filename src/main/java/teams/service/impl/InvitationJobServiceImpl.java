@@ -0,0 +1,146 @@
+package teams.service.impl;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import teams.domain.Invitation;
+import teams.domain.InvitationJob;
+import teams.domain.Person;
+import teams.domain.Team;
+import teams.service.GrouperTeamService;
+import teams.service.InvitationJobService;
+import teams.service.TeamInviteService;
+import teams.util.AuditLog;
+import teams.util.ControllerUtil;
+
+@Service
+public class InvitationJobServiceImpl implements InvitationJobService {
+
+  private static final Logger LOG = LoggerFactory.getLogger(InvitationJobServiceImpl.class);
+
+  private static final String INSERT_JOB = "INSERT INTO invitation_jobs (id, team_id, total, created) VALUES (?, ?, ?, NOW())";
+  private static final String SELECT_JOB = "SELECT j.id, j.team_id, j.total, j.failed, " +
+    "(SELECT COUNT(*) FROM queued_invitation_mails q WHERE q.job_id = j.id) AS queued " +
+    "FROM invitation_jobs j WHERE j.id = ?";
+  private static final String MAIL_FAILED = "UPDATE invitation_jobs SET failed = failed + 1 WHERE id = ?";
+  private static final String DELETE_FINISHED_JOBS = "DELETE FROM invitation_jobs WHERE created < NOW() - INTERVAL 1 DAY " +
+    "AND NOT EXISTS (SELECT 1 FROM queued_invitation_mails q WHERE q.job_id = invitation_jobs.id)";
+  private static final String INSERT_MAIL = "INSERT IGNORE INTO queued_invitation_mails " +
+    "(invitation_id, subject, inviter_id, inviter_name, job_id) VALUES (?, ?, ?, ?, ?)";
+  private static final String SELECT_MAILS = "SELECT q.invitation_id, q.subject, q.inviter_id, q.inviter_name, " +
+    "q.job_id, i.invitation_uiid FROM queued_invitation_mails q LEFT JOIN invitations i ON i.id = q.invitation_id " +
+    "ORDER BY q.invitation_id LIMIT ?";
+  private static final String DELETE_MAIL = "DELETE FROM queued_invitation_mails WHERE invitation_id = ?";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TeamInviteService teamInviteService;
+  private final GrouperTeamService grouperTeamService;
+  private final ControllerUtil controllerUtil;
+
+  @Autowired
+  public InvitationJobServiceImpl(@Qualifier("teamsJdbcTemplate") JdbcTemplate jdbcTemplate,
+                                  TeamInviteService teamInviteService,
+                                  GrouperTeamService grouperTeamService,
+                                  ControllerUtil controllerUtil) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.teamInviteService = teamInviteService;
+    this.grouperTeamService = grouperTeamService;
+    this.controllerUtil = controllerUtil;
+  }
+
+  @Override
+  @Transactional
+  public InvitationJob queueInvitationMails(Team team, List<Invitation> invitations, String subject, Person inviter) {
+    String jobId = UUID.randomUUID().toString();
+    jdbcTemplate.update(INSERT_JOB, jobId, team.getId(), invitations.size());
+    jdbcTemplate.batchUpdate(INSERT_MAIL, invitations, invitations.size(), (statement, invitation) -> {
+      statement.setLong(1, invitation.getId());
+      statement.setString(2, subject);
+      statement.setString(3, inviter.getId());
+      statement.setString(4, inviter.getDisplayName());
+      statement.setString(5, jobId);
+    });
+    return new InvitationJob(jobId, team.getId(), invitations.size(), invitations.size(), 0);
+  }
+
+  @Override
+  public Optional<InvitationJob> findJob(String jobId) {
+    return jdbcTemplate.query(SELECT_JOB, (rs, rowNum) -> new InvitationJob(
+      rs.getString("id"),
+      rs.getString("team_id"),
+      rs.getInt("total"),
+      rs.getInt("queued"),
+      rs.getInt("failed")), jobId).stream().findFirst();
+  }
+
+  @Override
+  public int sendQueuedMails(int maxMails) {
+    List<QueuedMail> mails = jdbcTemplate.query(SELECT_MAILS, (rs, rowNum) -> new QueuedMail(
+      rs.getLong("invitation_id"),
+      rs.getString("subject"),
+      new Person(rs.getString("inviter_id"), rs.getString("inviter_name"), null, null, null, rs.getString("inviter_name")),
+      rs.getString("job_id"),
+      rs.getString("invitation_uiid")), maxMails);
+
+    //the mails only show the name and description of the team, which is read once per team for the whole chunk
+    Map<String, Team> teams = new HashMap<>();
+    for (QueuedMail mail : mails) {
+      Optional<Invitation> invitation = Optional.ofNullable(mail.invitationHash)
+        .flatMap(teamInviteService::findInvitationByInviteId)
+        .filter(open -> !open.isAccepted() && !open.isDeclined());
+      invitation.ifPresent(open -> send(open, mail, teams));
+      jdbcTemplate.update(DELETE_MAIL, mail.invitationId);
+    }
+    return mails.size();
+  }
+
+  @Override
+  public void deleteFinishedJobs() {
+    jdbcTemplate.update(DELETE_FINISHED_JOBS);
+  }
+
+  /*
+   * A mail that cannot be sent is dropped rather than retried, so it can't block the queue
+   */
+  private void send(Invitation invitation, QueuedMail mail, Map<String, Team> teams) {
+    try {
+      Team team = teams.computeIfAbsent(invitation.getTeamId(), grouperTeamService::findTeamSummaryById);
+      controllerUtil.sendInvitationMail(team, invitation, mail.subject, mail.inviter);
+      AuditLog.log("Sent invitation: team: {}, inviter: {}, email: {}, role: {}, hash: {}",
+        team.getId(), mail.inviter.getId(), invitation.getEmail(), invitation.getIntendedRole(), invitation.getInvitationHash());
+    } catch (RuntimeException e) {
+      LOG.error(String.format("Failed to send the invitation for team %s to %s", invitation.getTeamId(), invitation.getEmail()), e);
+      if (mail.jobId != null) {
+        jdbcTemplate.update(MAIL_FAILED, mail.jobId);
+      }
+    }
+  }
+
+  private static class QueuedMail {
+
+    private final long invitationId;
+    private final String subject;
+    private final Person inviter;
+    private final String jobId;
+    private final String invitationHash;
+
+    private QueuedMail(long invitationId, String subject, Person inviter, String jobId, String invitationHash) {
+      this.invitationId = invitationId;
+      this.subject = subject;
+      this.inviter = inviter;
+      this.jobId = jobId;
+      this.invitationHash = invitationHash;
+    }
+  }
+}
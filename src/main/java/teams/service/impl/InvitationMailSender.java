@@ -0,0 +1,62 @@
+package teams.service.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.support.PeriodicTrigger;
+import org.springframework.stereotype.Component;
+
+import teams.scheduling.ScheduledJob;
+import teams.service.InvitationJobService;
+
+/**
+ * Sends the queued invitation mails of large invitation lists, a chunk at a time so another node can take over when
+ * this one goes away.
+ */
+@Component
+public class InvitationMailSender implements ScheduledJob {
+
+  private static final Logger LOG = LoggerFactory.getLogger(InvitationMailSender.class);
+
+  private static final int CHUNK_SIZE = 100;
+
+  private final InvitationJobService invitationJobService;
+
+  @Autowired
+  public InvitationMailSender(InvitationJobService invitationJobService) {
+    this.invitationJobService = invitationJobService;
+  }
+
+  @Override
+  public String getName() {
+    return "invitationMailSender";
+  }
+
+  @Override
+  public Trigger getTrigger() {
+    return new PeriodicTrigger(10 * 1000);
+  }
+
+  @Override
+  public long getLeaseMillis() {
+    return 5 * 60 * 1000;
+  }
+
+  @Override
+  public void run(Lease lease) {
+    long start = System.currentTimeMillis();
+    int total = 0;
+    int sent;
+    do {
+      sent = invitationJobService.sendQueuedMails(CHUNK_SIZE);
+      total += sent;
+    } while (sent == CHUNK_SIZE && lease.renew());
+    invitationJobService.deleteFinishedJobs();
+
+    if (total > 0) {
+      LOG.info("Sent {} queued invitation mails in {} ms", total, System.currentTimeMillis() - start);
+    }
+  }
+
+}
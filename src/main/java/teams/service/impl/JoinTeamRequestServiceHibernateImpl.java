@@ -72,4 +72,12 @@ public class JoinTeamRequestServiceHibernateImpl implements JoinTeamRequestServi
       entityManager.merge(joinTeamRequest);
     }
   }
+
+  @Override
+  public int deleteRequestsBefore(long timestamp, int maxRequests) {
+    return entityManager.createNativeQuery("DELETE FROM requests WHERE timestamp < ? LIMIT ?")
+      .setParameter(1, timestamp)
+      .setParameter(2, maxRequests)
+      .executeUpdate();
+  }
 }
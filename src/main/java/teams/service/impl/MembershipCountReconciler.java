@@ -0,0 +1,45 @@
+package teams.service.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.support.CronTrigger;
+import org.springframework.stereotype.Component;
+
+import teams.repository.TeamRepository;
+import teams.scheduling.ScheduledJob;
+
+/**
+ * Corrects any drift between the denormalized teams.member_count column and the actual memberships.
+ */
+@Component
+public class MembershipCountReconciler implements ScheduledJob {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MembershipCountReconciler.class);
+
+  @Autowired
+  private TeamRepository teamRepository;
+
+  @Override
+  public String getName() {
+    return "membershipCountReconciler";
+  }
+
+  @Override
+  public Trigger getTrigger() {
+    return new CronTrigger("0 20 0 * * *"); // every day at 00:20
+  }
+
+  @Override
+  public long getLeaseMillis() {
+    return 60 * 60 * 1000;
+  }
+
+  @Override
+  public void run(Lease lease) {
+    int corrected = teamRepository.reconcileMembershipCounts();
+    LOG.info("Reconciled the member count of {} teams", corrected);
+  }
+
+}
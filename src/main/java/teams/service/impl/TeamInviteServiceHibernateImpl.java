@@ -16,22 +16,34 @@
 package teams.service.impl;
 
 import static com.google.common.base.Preconditions.checkNotNull;
-
+import static java.util.stream.Collectors.toList;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 
 import javax.persistence.EntityManager;
-import javax.persistence.OptimisticLockException;
 import javax.persistence.TypedQuery;
 import javax.transaction.Transactional;
 
+import org.hibernate.Session;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import com.google.common.collect.Iterables;
+
 import teams.domain.Invitation;
+import teams.domain.InvitationMessage;
 import teams.domain.Team;
 import teams.service.TeamInviteService;
 
@@ -42,6 +54,14 @@ public class TeamInviteServiceHibernateImpl implements TeamInviteService {
 
   private static final long TWO_WEEKS = 14L * 24L * 60L * 60L * 1000L;
 
+  private static final int MAX_EMAILS_PER_QUERY = 500;
+
+  private static final String INSERT_INVITATION = "INSERT INTO invitations " +
+    "(mailaddress, group_id, timestamp, invitation_uiid, denied, accepted, intended_role, language) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+  private static final String INSERT_INVITATION_MESSAGE = "INSERT INTO invitation_message " +
+    "(inviter, message, timestamp, invitation_id) VALUES (?, ?, ?, ?)";
+
   private final EntityManager entityManager;
 
   @Autowired
@@ -61,6 +81,23 @@ public class TeamInviteServiceHibernateImpl implements TeamInviteService {
     return q.getResultList().stream().findFirst();
   }
 
+  @Override
+  public Map<String, Invitation> findOpenInvitations(Collection<String> emails, Team team) {
+    checkNotNull(team);
+
+    String jpaQl = "select distinct i from Invitation i left join fetch i.invitationMessages " +
+      "where i.email in :emails and i.teamId = :teamId and i.accepted = false and i.declined = false";
+    Map<String, Invitation> invitations = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    for (List<String> chunk : Iterables.partition(emails, MAX_EMAILS_PER_QUERY)) {
+      entityManager.createQuery(jpaQl, Invitation.class)
+        .setParameter("emails", chunk)
+        .setParameter("teamId", team.getId())
+        .getResultList()
+        .forEach(invitation -> invitations.putIfAbsent(invitation.getEmail(), invitation));
+    }
+    return invitations;
+  }
+
   @Override
   public Optional<Invitation> findInvitationByInviteId(String invitationId) {
     String jpaQl = "select i from Invitation i where i.invitationHash = :invitationId";
@@ -114,15 +151,78 @@ public class TeamInviteServiceHibernateImpl implements TeamInviteService {
   }
 
   @Override
-  @Transactional(dontRollbackOn = OptimisticLockException.class)
-  public void cleanupExpiredInvitations() {
-    List<Invitation> invitations = entityManager
-        .createQuery("select i from Invitation i where i.timestamp <= :expireInterval", Invitation.class)
-        .setParameter("expireInterval", new Date().getTime() - TWO_WEEKS)
-        .getResultList();
+  @Transactional
+  public void saveOrUpdate(Collection<Invitation> invitations) {
+    invitations.stream().filter(invitation -> invitation.getId() != null).forEach(entityManager::merge);
 
-    invitations.forEach(entityManager::remove);
+    //the identity generator of Invitation rules out Hibernate insert batching, so the new ones are batched in JDBC
+    List<Invitation> newInvitations = invitations.stream().filter(invitation -> invitation.getId() == null).collect(toList());
+    if (!newInvitations.isEmpty()) {
+      entityManager.unwrap(Session.class).doWork(connection -> insertInvitations(connection, newInvitations));
+    }
+  }
 
-    LOG.info("Deleted {} expired invitations", invitations.size());
+  private void insertInvitations(Connection connection, List<Invitation> invitations) throws SQLException {
+    try (PreparedStatement statement = connection.prepareStatement(INSERT_INVITATION, Statement.RETURN_GENERATED_KEYS)) {
+      for (Invitation invitation : invitations) {
+        statement.setString(1, invitation.getEmail());
+        statement.setString(2, invitation.getTeamId());
+        statement.setLong(3, invitation.getTimestamp());
+        statement.setString(4, invitation.getInvitationHash());
+        statement.setBoolean(5, invitation.isDeclined());
+        statement.setBoolean(6, invitation.isAccepted());
+        statement.setString(7, invitation.getIntendedRole().name());
+        statement.setString(8, invitation.getLanguage().name());
+        statement.addBatch();
+      }
+      statement.executeBatch();
+      try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+        for (Invitation invitation : invitations) {
+          if (!generatedKeys.next()) {
+            throw new SQLException("No generated id for the invitation of " + invitation.getEmail());
+          }
+          invitation.setId(generatedKeys.getLong(1));
+        }
+      }
+    }
+    try (PreparedStatement statement = connection.prepareStatement(INSERT_INVITATION_MESSAGE)) {
+      for (Invitation invitation : invitations) {
+        for (InvitationMessage message : invitation.getInvitationMessages()) {
+          statement.setString(1, message.getInviter());
+          statement.setString(2, message.getMessage());
+          statement.setLong(3, message.getTimestamp());
+          statement.setLong(4, invitation.getId());
+          statement.addBatch();
+        }
+      }
+      statement.executeBatch();
+    }
+  }
+
+  @Override
+  @Transactional
+  @SuppressWarnings("unchecked")
+  public int deleteExpiredInvitations(int maxInvitations) {
+    List<Number> ids = entityManager
+        .createNativeQuery("SELECT id FROM invitations WHERE timestamp <= ? LIMIT ?")
+        .setParameter(1, new Date().getTime() - TWO_WEEKS)
+        .setParameter(2, maxInvitations)
+        .getResultList();
+    if (ids.isEmpty()) {
+      return 0;
+    }
+    List<Long> invitationIds = ids.stream().map(Number::longValue).collect(toList());
+
+    int messages = entityManager
+        .createNativeQuery("DELETE FROM invitation_message WHERE invitation_id IN (:ids)")
+        .setParameter("ids", invitationIds)
+        .executeUpdate();
+    int invitations = entityManager
+        .createNativeQuery("DELETE FROM invitations WHERE id IN (:ids)")
+        .setParameter("ids", invitationIds)
+        .executeUpdate();
+
+    LOG.debug("Deleted {} expired invitations with {} messages", invitations, messages);
+    return invitations;
   }
 }
@@ -0,0 +1,285 @@
+package teams.service.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory trigram index over the name and description of all teams. It answers the 'find public teams' search
+ * without a '%term%' table scan. The index is kept current by the TeamService mutators of this node once their
+ * transaction commits and rebuilt periodically in the background to pick up the changes made by the other nodes. Until
+ * then it can lag behind, so the callers check the hits against the database.
+ */
+@Component
+public class TeamSearchIndex {
+
+  private static final Logger LOG = LoggerFactory.getLogger(TeamSearchIndex.class);
+
+  private static final int GRAM_SIZE = 3;
+
+  private static final Comparator<Match> RANKING = Comparator
+    .comparingInt(Match::getRank)
+    .thenComparing(match -> match.team.normalizedName)
+    .thenComparing(match -> match.team.urn);
+
+  private final JdbcTemplate jdbcTemplate;
+
+  private volatile Index index;
+
+  //changes made while a rebuild reads the database, replayed on the fresh index before it is swapped in
+  private Map<String, Optional<IndexedTeam>> changesDuringRebuild;
+
+  @Autowired
+  public TeamSearchIndex(@Qualifier("teamsJdbcTemplate") JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  @Scheduled(initialDelay = 5 * 1000, fixedDelayString = "${teamSearchIndex.refreshMillis:300000}")
+  public void rebuild() {
+    synchronized (this) {
+      changesDuringRebuild = new LinkedHashMap<>();
+    }
+    List<IndexedTeam> teams;
+    try {
+      long start = System.currentTimeMillis();
+      teams = jdbcTemplate.query("SELECT urn, name, description, viewable FROM teams", (rs, rowNum) ->
+        new IndexedTeam(rs.getString("urn"), rs.getString("name"), rs.getString("description"), rs.getBoolean("viewable")));
+      LOG.debug("Read {} teams for the search index in {} ms", teams.size(), System.currentTimeMillis() - start);
+    } catch (RuntimeException e) {
+      synchronized (this) {
+        changesDuringRebuild = null;
+      }
+      throw e;
+    }
+    rebuild(teams);
+  }
+
+  public void rebuild(Collection<IndexedTeam> teams) {
+    Index fresh = new Index();
+    teams.forEach(fresh::put);
+    synchronized (this) {
+      if (changesDuringRebuild != null) {
+        changesDuringRebuild.forEach((urn, change) -> {
+          fresh.remove(urn);
+          change.ifPresent(fresh::put);
+        });
+        changesDuringRebuild = null;
+      }
+      index = fresh;
+    }
+  }
+
+  public synchronized void index(IndexedTeam team) {
+    if (changesDuringRebuild != null) {
+      changesDuringRebuild.put(team.urn, Optional.of(team));
+    }
+    if (index != null) {
+      index.remove(team.urn);
+      index.put(team);
+    }
+  }
+
+  public synchronized void remove(String urn) {
+    if (changesDuringRebuild != null) {
+      changesDuringRebuild.put(urn, Optional.empty());
+    }
+    if (index != null) {
+      index.remove(urn);
+    }
+  }
+
+  /**
+   * The index is built by the scheduled rebuild, never on the thread of a request.
+   */
+  public boolean isBuilt() {
+    return index != null;
+  }
+
+  /**
+   * Search the teams whose name or description contains the query, ignoring case. Teams that are not viewable are only
+   * returned when their urn is in the set of teams of the person - which is only fetched when such a team matches.
+   *
+   * @param query            the part of the name or description to search for
+   * @param teamUrnsOfPerson supplies the urns of the teams the person is a member of
+   * @return the matching teams, name matches before description matches and then ordered by name. Empty as long as
+   * the index is not built, see {@link #isBuilt()}
+   */
+  public List<IndexedTeam> search(String query, Supplier<Set<String>> teamUrnsOfPerson) {
+    Index current = index;
+    if (!StringUtils.hasText(query) || current == null) {
+      return Collections.emptyList();
+    }
+    String normalizedQuery = normalize(query.trim());
+    List<Match> matches = current.candidates(normalizedQuery).stream()
+      .map(team -> new Match(team, team.rank(normalizedQuery)))
+      .filter(match -> match.rank < Match.NO_MATCH)
+      .collect(Collectors.toList());
+
+    Set<String> memberOf = null;
+    List<Match> visible = new ArrayList<>(matches.size());
+    for (Match match : matches) {
+      if (!match.team.viewable) {
+        if (memberOf == null) {
+          memberOf = teamUrnsOfPerson.get();
+        }
+        if (!memberOf.contains(match.team.urn)) {
+          continue;
+        }
+      }
+      visible.add(match);
+    }
+    visible.sort(RANKING);
+    return visible.stream().map(match -> match.team).collect(Collectors.toList());
+  }
+
+  private static String normalize(String value) {
+    return value == null ? "" : value.toLowerCase(Locale.ROOT);
+  }
+
+  private static Set<String> grams(String normalized) {
+    Set<String> grams = new HashSet<>();
+    for (int i = 0; i + GRAM_SIZE <= normalized.length(); i++) {
+      grams.add(normalized.substring(i, i + GRAM_SIZE));
+    }
+    return grams;
+  }
+
+  public static class IndexedTeam {
+
+    private final String urn;
+    private final String name;
+    private final String description;
+    private final boolean viewable;
+    private final String normalizedName;
+    private final String normalizedDescription;
+
+    public IndexedTeam(String urn, String name, String description, boolean viewable) {
+      this.urn = urn;
+      this.name = name;
+      this.description = description;
+      this.viewable = viewable;
+      this.normalizedName = normalize(name);
+      this.normalizedDescription = normalize(description);
+    }
+
+    public String getUrn() {
+      return urn;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public String getDescription() {
+      return description;
+    }
+
+    public boolean isViewable() {
+      return viewable;
+    }
+
+    private int rank(String normalizedQuery) {
+      if (normalizedName.equals(normalizedQuery)) {
+        return 0;
+      }
+      if (normalizedName.startsWith(normalizedQuery)) {
+        return 1;
+      }
+      if (normalizedName.contains(normalizedQuery)) {
+        return 2;
+      }
+      return normalizedDescription.contains(normalizedQuery) ? 3 : Match.NO_MATCH;
+    }
+
+    private Set<String> grams() {
+      Set<String> grams = TeamSearchIndex.grams(normalizedName);
+      grams.addAll(TeamSearchIndex.grams(normalizedDescription));
+      return grams;
+    }
+  }
+
+  private static class Match {
+
+    private static final int NO_MATCH = Integer.MAX_VALUE;
+
+    private final IndexedTeam team;
+    private final int rank;
+
+    private Match(IndexedTeam team, int rank) {
+      this.team = team;
+      this.rank = rank;
+    }
+
+    private int getRank() {
+      return rank;
+    }
+  }
+
+  private static class Index {
+
+    private final Map<String, IndexedTeam> teams = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> postings = new ConcurrentHashMap<>();
+
+    private void put(IndexedTeam team) {
+      teams.put(team.urn, team);
+      team.grams().forEach(gram -> postings.computeIfAbsent(gram, key -> ConcurrentHashMap.newKeySet()).add(team.urn));
+    }
+
+    private void remove(String urn) {
+      IndexedTeam team = teams.remove(urn);
+      if (team != null) {
+        team.grams().forEach(gram -> postings.computeIfPresent(gram, (key, urns) -> {
+          urns.remove(urn);
+          return urns.isEmpty() ? null : urns;
+        }));
+      }
+    }
+
+    /*
+     * Every gram of the query must occur in a matching team, so the smallest posting list bounds the candidates. Queries
+     * shorter than a gram can't use the postings and are checked against all teams.
+     */
+    private Collection<IndexedTeam> candidates(String normalizedQuery) {
+      if (normalizedQuery.length() < GRAM_SIZE) {
+        return teams.values();
+      }
+      Set<String> smallest = null;
+      for (String gram : grams(normalizedQuery)) {
+        Set<String> urns = postings.getOrDefault(gram, Collections.emptySet());
+        if (smallest == null || urns.size() < smallest.size()) {
+          smallest = urns;
+        }
+      }
+      Map<String, IndexedTeam> candidates = new HashMap<>();
+      for (String urn : smallest) {
+        IndexedTeam team = teams.get(urn);
+        if (team != null) {
+          candidates.put(urn, team);
+        }
+      }
+      return candidates.values();
+    }
+  }
+
+}
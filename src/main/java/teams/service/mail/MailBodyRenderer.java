@@ -0,0 +1,117 @@
+package teams.service.mail;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+import freemarker.template.TemplateException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.stereotype.Component;
+import org.springframework.ui.freemarker.FreeMarkerTemplateUtils;
+import teams.domain.Language;
+import teams.domain.Team;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Renders the html and plain text body of a mail from the '[name].ftl' and '[name]-plaintext.ftl' templates. All
+ * templates are loaded at startup so the first mail doesn't pay for parsing them.
+ */
+@Component
+public class MailBodyRenderer {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MailBodyRenderer.class);
+
+  private static final String[] TEMPLATES = {"invitationmail", "joinrequest-acceptmail", "joinrequest-declinemail", "joinrequestmail"};
+
+  private static final char KEY_SEPARATOR = '\u0000';
+
+  private final Configuration freemarkerConfiguration;
+  private final GaugeService gaugeService;
+
+  private final Cache<String, MailBody> teamMailBodies = CacheBuilder.newBuilder()
+    .maximumSize(1000)
+    .build();
+
+  @Autowired
+  public MailBodyRenderer(Configuration freemarkerConfiguration, GaugeService gaugeService) {
+    this.freemarkerConfiguration = freemarkerConfiguration;
+    this.gaugeService = gaugeService;
+  }
+
+  @PostConstruct
+  public void loadTemplates() throws IOException {
+    long start = System.currentTimeMillis();
+    List<Locale> locales = Arrays.stream(Language.values()).map(Language::locale).distinct().collect(toList());
+    for (String name : TEMPLATES) {
+      for (Locale locale : locales) {
+        freemarkerConfiguration.getTemplate(name + ".ftl", locale);
+        freemarkerConfiguration.getTemplate(name + "-plaintext.ftl", locale);
+      }
+    }
+    LOG.info("Loaded {} mail templates in {} ms", TEMPLATES.length * 2 * locales.size(), System.currentTimeMillis() - start);
+  }
+
+  public MailBody render(String name, Locale locale, Map<String, Object> model) {
+    long start = System.currentTimeMillis();
+    try {
+      MailBody body = new MailBody(
+        process(name + ".ftl", locale, model),
+        process(name + "-plaintext.ftl", locale, model));
+      gaugeService.submit("mail.render." + name, System.currentTimeMillis() - start);
+      return body;
+    } catch (IOException | TemplateException e) {
+      throw new RuntimeException(String.format("Failed to create %s mail", name), e);
+    }
+  }
+
+  /**
+   * Renders a mail that only depends on the name of the team, like the accept and decline mails of a join request, and
+   * keeps the result for the next mail of the same team.
+   */
+  public MailBody renderForTeam(String name, Locale locale, Team team) {
+    String key = name + KEY_SEPARATOR + locale + KEY_SEPARATOR + team.getName();
+    try {
+      return teamMailBodies.get(key, () -> render(name, locale, Collections.singletonMap("team", team)));
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  private String process(String templateName, Locale locale, Map<String, Object> model) throws IOException, TemplateException {
+    Template template = freemarkerConfiguration.getTemplate(templateName, locale);
+    return FreeMarkerTemplateUtils.processTemplateIntoString(template, model);
+  }
+
+  public static class MailBody {
+
+    private final String html;
+    private final String plainText;
+
+    public MailBody(String html, String plainText) {
+      this.html = html;
+      this.plainText = plainText;
+    }
+
+    public String getHtml() {
+      return html;
+    }
+
+    public String getPlainText() {
+      return plainText;
+    }
+  }
+}
@@ -1,29 +1,209 @@
 package teams.service.mail;
 
-import org.springframework.beans.factory.annotation.Autowired;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
 import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMailMessage;
 import org.springframework.mail.javamail.MimeMessagePreparator;
-import org.springframework.scheduling.annotation.Async;
 
-//we don't provide feedback, so why have bad UX for waiting on mails
-public class MailServiceImpl implements MailService {
+import javax.mail.internet.MimeMessage;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
-  @Autowired
-  private JavaMailSender mailSender;
+/**
+ * We don't provide feedback on mails, so the request thread never waits for SMTP. Mails are queued and sent by a fixed
+ * pool of workers, each draining up to batchSize queued mails and sending them over one SMTP connection. Mails that fail
+ * to send are retried with exponential backoff. When the queue is full the caller waits up to offerTimeoutMillis before
+ * the mail is rejected.
+ */
+public class MailServiceImpl implements MailService, DisposableBean {
 
-  @Async
+  private static final Logger LOG = LoggerFactory.getLogger(MailServiceImpl.class);
+
+  private final JavaMailSender mailSender;
+  private final GaugeService gaugeService;
+  private final CounterService counterService;
+  private final int batchSize;
+  private final int maxAttempts;
+  private final long initialBackoffMillis;
+  private final long offerTimeoutMillis;
+
+  private final BlockingQueue<QueuedMail> queue;
+  private final ExecutorService workers;
+  private final ScheduledExecutorService retries;
+
+  private volatile boolean running = true;
+
+  public MailServiceImpl(JavaMailSender mailSender, GaugeService gaugeService, CounterService counterService,
+                         int queueCapacity, int workerCount, int batchSize, int maxAttempts,
+                         long initialBackoffMillis, long offerTimeoutMillis) {
+    this.mailSender = mailSender;
+    this.gaugeService = gaugeService;
+    this.counterService = counterService;
+    this.batchSize = batchSize;
+    this.maxAttempts = maxAttempts;
+    this.initialBackoffMillis = initialBackoffMillis;
+    this.offerTimeoutMillis = offerTimeoutMillis;
+    this.queue = new LinkedBlockingQueue<>(queueCapacity);
+    this.workers = Executors.newFixedThreadPool(workerCount, new ThreadFactoryBuilder().setNameFormat("mail-sender-%d").setDaemon(true).build());
+    this.retries = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("mail-retry-%d").setDaemon(true).build());
+    for (int i = 0; i < workerCount; i++) {
+      workers.execute(this::work);
+    }
+  }
+
+  @Override
   public void sendAsync(MimeMessagePreparator preparator) throws MailException {
-    new Thread(() -> mailSender.send(preparator)).start();
+    enqueue(new QueuedMail(preparator, null));
   }
 
-  @Async
+  @Override
   public void sendAsync(SimpleMailMessage msg) throws MailException {
-    new Thread(() -> mailSender.send(msg)).start();
+    enqueue(new QueuedMail(null, msg));
   }
 
-  public void setMailSender(JavaMailSender mailSender) {
-    this.mailSender = mailSender;
+  public int getQueueDepth() {
+    return queue.size();
+  }
+
+  @Override
+  public void destroy() throws Exception {
+    running = false;
+    retries.shutdownNow();
+    workers.shutdown();
+    if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+      workers.shutdownNow();
+    }
+    if (!queue.isEmpty()) {
+      LOG.warn("Shut down with {} unsent mails", queue.size());
+    }
+  }
+
+  private void enqueue(QueuedMail mail) {
+    boolean accepted;
+    try {
+      accepted = queue.offer(mail, offerTimeoutMillis, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      accepted = false;
+    }
+    gaugeService.submit("mail.queue.depth", queue.size());
+    if (!accepted) {
+      counterService.increment("mail.rejected");
+      throw new MailSendException(String.format("Mail queue is full, %d mails are waiting", queue.size()));
+    }
+  }
+
+  private void work() {
+    List<QueuedMail> batch = new ArrayList<>(batchSize);
+    while (running || !queue.isEmpty()) {
+      try {
+        QueuedMail first = queue.poll(1, TimeUnit.SECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        queue.drainTo(batch, batchSize - 1);
+        gaugeService.submit("mail.queue.depth", queue.size());
+        send(batch);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (RuntimeException e) {
+        LOG.error("Unexpected error in mail worker", e);
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  private void send(List<QueuedMail> batch) {
+    Map<MimeMessage, QueuedMail> messages = new IdentityHashMap<>();
+    for (QueuedMail mail : batch) {
+      try {
+        messages.put(mail.toMimeMessage(mailSender), mail);
+      } catch (Exception e) {
+        //a mail that can't be composed won't be composed on the next attempt either
+        counterService.increment("mail.failed");
+        LOG.error("Unable to prepare mail, it is dropped", e);
+      }
+    }
+    if (messages.isEmpty()) {
+      return;
+    }
+
+    long start = System.currentTimeMillis();
+    try {
+      mailSender.send(messages.keySet().toArray(new MimeMessage[messages.size()]));
+      messages.keySet().forEach(message -> counterService.increment("mail.sent"));
+    } catch (MailSendException e) {
+      Map<Object, Exception> failedMessages = e.getFailedMessages();
+      messages.forEach((message, mail) -> {
+        if (failedMessages.isEmpty() || failedMessages.containsKey(message)) {
+          retry(mail, failedMessages.getOrDefault(message, e));
+        } else {
+          counterService.increment("mail.sent");
+        }
+      });
+    } catch (MailException e) {
+      messages.values().forEach(mail -> retry(mail, e));
+    } finally {
+      gaugeService.submit("mail.send.latency", System.currentTimeMillis() - start);
+    }
+  }
+
+  private void retry(QueuedMail mail, Exception cause) {
+    mail.attempt++;
+    if (mail.attempt >= maxAttempts) {
+      counterService.increment("mail.failed");
+      LOG.error(String.format("Giving up on mail after %d attempts", mail.attempt), cause);
+      return;
+    }
+    long backoff = initialBackoffMillis << (mail.attempt - 1);
+    counterService.increment("mail.retried");
+    LOG.warn("Sending mail failed, attempt {} of {}, retrying in {} ms: {}", mail.attempt, maxAttempts, backoff, cause.getMessage());
+    retries.schedule(() -> {
+      if (!queue.offer(mail)) {
+        counterService.increment("mail.failed");
+        LOG.error("Mail queue is full, dropping mail that is being retried");
+      }
+    }, backoff, TimeUnit.MILLISECONDS);
+  }
+
+  private static class QueuedMail {
+
+    private final MimeMessagePreparator preparator;
+    private final SimpleMailMessage simpleMessage;
+    private int attempt;
+
+    private QueuedMail(MimeMessagePreparator preparator, SimpleMailMessage simpleMessage) {
+      this.preparator = preparator;
+      this.simpleMessage = simpleMessage;
+    }
+
+    private MimeMessage toMimeMessage(JavaMailSender mailSender) throws Exception {
+      MimeMessage mimeMessage = mailSender.createMimeMessage();
+      if (preparator != null) {
+        preparator.prepare(mimeMessage);
+      } else {
+        simpleMessage.copyTo(new MimeMailMessage(mimeMessage));
+      }
+      return mimeMessage;
+    }
   }
 }
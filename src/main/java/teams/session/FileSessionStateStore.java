@@ -0,0 +1,139 @@
+package teams.session;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Reference store that keeps every state in a file named after the state id. With the directory on a shared volume
+ * every node can serve every request. The modification time of a file is its last access, files that were not
+ * accessed within the session timeout are ignored and periodically deleted.
+ */
+public class FileSessionStateStore implements SessionStateStore, DisposableBean {
+
+  private static final Logger LOG = LoggerFactory.getLogger(FileSessionStateStore.class);
+
+  //ids end up in file names
+  private static final Pattern VALID_ID = Pattern.compile("^[A-Za-z0-9_-]{1,64}$");
+
+  private final Path directory;
+  private final long timeoutMillis;
+  private final ScheduledExecutorService purger;
+
+  public FileSessionStateStore(Path directory, long timeoutSeconds) {
+    this.directory = directory;
+    this.timeoutMillis = TimeUnit.SECONDS.toMillis(timeoutSeconds);
+    try {
+      Files.createDirectories(directory);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    this.purger = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder().setNameFormat("session-state-purger-%d").setDaemon(true).build());
+    long purgeInterval = Math.max(60, timeoutSeconds / 4);
+    this.purger.scheduleWithFixedDelay(this::purgeExpired, purgeInterval, purgeInterval, TimeUnit.SECONDS);
+  }
+
+  @Override
+  public Optional<byte[]> load(String id) {
+    Path file = file(id);
+    try {
+      if (isExpired(file)) {
+        return Optional.empty();
+      }
+      byte[] state = Files.readAllBytes(file);
+      Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+      return Optional.of(state);
+    } catch (NoSuchFileException e) {
+      return Optional.empty();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public void save(String id, byte[] state) {
+    Path file = file(id);
+    try {
+      Path temporary = Files.createTempFile(directory, id, ".tmp");
+      Files.write(temporary, state);
+      Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public void delete(String id) {
+    try {
+      Files.deleteIfExists(file(id));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public boolean touch(String id) {
+    Path file = file(id);
+    try {
+      if (isExpired(file)) {
+        return false;
+      }
+      Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+      return true;
+    } catch (NoSuchFileException e) {
+      return false;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public void destroy() throws Exception {
+    purger.shutdownNow();
+  }
+
+  void purgeExpired() {
+    int purged = 0;
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+      for (Path file : files) {
+        try {
+          if (isExpired(file) && Files.deleteIfExists(file)) {
+            purged++;
+          }
+        } catch (NoSuchFileException e) {
+          //deleted by another node
+        }
+      }
+    } catch (IOException e) {
+      LOG.warn("Failed to purge expired session states in " + directory, e);
+    }
+    LOG.debug("Purged {} expired session states", purged);
+  }
+
+  private boolean isExpired(Path file) throws IOException {
+    return System.currentTimeMillis() - Files.getLastModifiedTime(file).toMillis() > timeoutMillis;
+  }
+
+  private Path file(String id) {
+    if (!VALID_ID.matcher(id).matches()) {
+      throw new IllegalArgumentException("Invalid session state id");
+    }
+    return directory.resolve(id);
+  }
+}
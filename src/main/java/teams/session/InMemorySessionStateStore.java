@@ -0,0 +1,40 @@
+package teams.session;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reference store that keeps the state in the memory of this node. It is only shared with other nodes when the load
+ * balancer uses sticky sessions, but unlike the HTTP session it holds the compact encoded state.
+ */
+public class InMemorySessionStateStore implements SessionStateStore {
+
+  private final Cache<String, byte[]> states;
+
+  public InMemorySessionStateStore(long timeoutSeconds) {
+    this.states = CacheBuilder.newBuilder().expireAfterAccess(timeoutSeconds, TimeUnit.SECONDS).build();
+  }
+
+  @Override
+  public Optional<byte[]> load(String id) {
+    return Optional.ofNullable(states.getIfPresent(id));
+  }
+
+  @Override
+  public void save(String id, byte[] state) {
+    states.put(id, state);
+  }
+
+  @Override
+  public void delete(String id) {
+    states.invalidate(id);
+  }
+
+  @Override
+  public boolean touch(String id) {
+    return states.getIfPresent(id) != null;
+  }
+}
@@ -0,0 +1,33 @@
+package teams.session;
+
+import teams.domain.ExternalGroup;
+import teams.domain.Person;
+
+import java.util.List;
+
+/**
+ * The part of the HTTP session that has to survive a request being served by another node: the logged in person and
+ * the external groups of the person. Everything else in the session can be rebuilt.
+ */
+public class SessionState {
+
+  private final Person person;
+  private final List<ExternalGroup> externalGroups;
+
+  public SessionState(Person person, List<ExternalGroup> externalGroups) {
+    this.person = person;
+    this.externalGroups = externalGroups;
+  }
+
+  public Person getPerson() {
+    return person;
+  }
+
+  public List<ExternalGroup> getExternalGroups() {
+    return externalGroups;
+  }
+
+  public boolean isEmpty() {
+    return person == null && externalGroups == null;
+  }
+}
@@ -0,0 +1,176 @@
+package teams.session;
+
+import teams.domain.ExternalGroup;
+import teams.domain.ExternalGroupProvider;
+import teams.domain.Person;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Binary encoding of the {@link SessionState}: a version byte, a flag telling whether the payload is deflated and the
+ * fields as length prefixed UTF-8 strings. Payloads above the deflate threshold, typically long lists of external
+ * groups, are deflated. This is a fraction of the size of Java serialization, which writes the class descriptors of
+ * every object.
+ */
+public class SessionStateCodec {
+
+  //version 1 included the CSRF token, which is stateless since version 2
+  private static final byte VERSION = 2;
+  private static final byte RAW = 0;
+  private static final byte DEFLATED = 1;
+  private static final int DEFLATE_THRESHOLD = 512;
+
+  public byte[] encode(SessionState state) {
+    try {
+      ByteArrayOutputStream payload = new ByteArrayOutputStream(256);
+      writePayload(new DataOutputStream(payload), state);
+
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.size() + 2);
+      bytes.write(VERSION);
+      if (payload.size() > DEFLATE_THRESHOLD) {
+        bytes.write(DEFLATED);
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(bytes)) {
+          payload.writeTo(deflater);
+        }
+      } else {
+        bytes.write(RAW);
+        payload.writeTo(bytes);
+      }
+      return bytes.toByteArray();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public SessionState decode(byte[] bytes) {
+    if (bytes.length < 2 || bytes[0] != VERSION) {
+      throw new IllegalArgumentException("Unsupported session state version");
+    }
+    InputStream payload = new ByteArrayInputStream(bytes, 2, bytes.length - 2);
+    try (DataInputStream in = new DataInputStream(bytes[1] == DEFLATED ? new InflaterInputStream(payload) : payload)) {
+      return readPayload(in);
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Corrupt session state", e);
+    }
+  }
+
+  private void writePayload(DataOutputStream out, SessionState state) throws IOException {
+    Person person = state.getPerson();
+    out.writeBoolean(person != null);
+    if (person != null) {
+      writeString(out, person.getId());
+      writeString(out, person.getName());
+      writeString(out, person.getEmail());
+      writeString(out, person.getSchacHomeOrganization());
+      writeString(out, person.getVootMembershipRole());
+      writeString(out, person.getDisplayName());
+    }
+
+    List<ExternalGroup> externalGroups = state.getExternalGroups();
+    writeVarInt(out, externalGroups == null ? 0 : externalGroups.size() + 1);
+    if (externalGroups != null) {
+      for (ExternalGroup group : externalGroups) {
+        out.writeBoolean(group.getId() != null);
+        if (group.getId() != null) {
+          out.writeLong(group.getId());
+        }
+        writeString(out, group.getIdentifier());
+        writeString(out, group.getName());
+        writeString(out, group.getDescription());
+        writeString(out, group.getGroupProviderIdentifier());
+        ExternalGroupProvider provider = group.getGroupProvider();
+        out.writeBoolean(provider != null);
+        if (provider != null) {
+          writeString(out, provider.getIdentifier());
+          writeString(out, provider.getName());
+        }
+      }
+    }
+
+    out.flush();
+  }
+
+  private SessionState readPayload(DataInputStream in) throws IOException {
+    Person person = null;
+    if (in.readBoolean()) {
+      person = new Person(readString(in), readString(in), readString(in), readString(in), readString(in), readString(in));
+    }
+
+    List<ExternalGroup> externalGroups = null;
+    int size = readVarInt(in) - 1;
+    if (size >= 0) {
+      externalGroups = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        ExternalGroup group = new ExternalGroup();
+        if (in.readBoolean()) {
+          group.setId(in.readLong());
+        }
+        group.setIdentifier(readString(in));
+        group.setName(readString(in));
+        group.setDescription(readString(in));
+        group.setGroupProviderIdentifier(readString(in));
+        if (in.readBoolean()) {
+          group.setGroupProvider(new ExternalGroupProvider(readString(in), readString(in)));
+        }
+        externalGroups.add(group);
+      }
+    }
+
+    return new SessionState(person, externalGroups);
+  }
+
+  /*
+   * The length is written plus one, so zero means null
+   */
+  private void writeString(DataOutputStream out, String value) throws IOException {
+    if (value == null) {
+      writeVarInt(out, 0);
+      return;
+    }
+    byte[] bytes = value.getBytes(UTF_8);
+    writeVarInt(out, bytes.length + 1);
+    out.write(bytes);
+  }
+
+  private String readString(DataInputStream in) throws IOException {
+    int length = readVarInt(in) - 1;
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  private void writeVarInt(DataOutputStream out, int value) throws IOException {
+    while ((value & ~0x7F) != 0) {
+      out.writeByte((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte(value);
+  }
+
+  private int readVarInt(DataInputStream in) throws IOException {
+    int value = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      int b = in.readUnsignedByte();
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed varint");
+  }
+}
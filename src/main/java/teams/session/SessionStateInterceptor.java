@@ -0,0 +1,197 @@
+package teams.session;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+import teams.domain.ExternalGroup;
+import teams.domain.Person;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static teams.interceptor.LoginInterceptor.EXTERNAL_GROUPS_SESSION_KEY;
+import static teams.interceptor.LoginInterceptor.PERSON_SESSION_KEY;
+import static teams.interceptor.LoginInterceptor.STATUS_GUEST;
+import static teams.interceptor.LoginInterceptor.STATUS_MEMBER;
+import static teams.interceptor.LoginInterceptor.USER_STATUS_SESSION_KEY;
+
+/**
+ * Makes the session state independent of the node that serves the request. The state is identified by a cookie of its
+ * own and the HTTP session only holds that id. The decoded state is cached per node by state id and exposed to the
+ * handler and the views as request attributes. When the local HTTP session doesn't hold the id of the cookie, for
+ * example because the previous request was served by another node, the state is restored from the
+ * {@link SessionStateStore}. After the handler the state is written back to the store when it has changed, deleted
+ * from it when it was cleared or the session was invalidated, and otherwise touched a few times per session timeout so
+ * the store doesn't expire it while the user stays on one node. Must be registered before the login interceptor.
+ */
+public class SessionStateInterceptor extends HandlerInterceptorAdapter {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SessionStateInterceptor.class);
+
+  public static final String SESSION_STATE_COOKIE = "SURFconextTeamsSession";
+  private static final String STATE_ID_SESSION_KEY = "sessionStateId";
+  private static final String STATE_REQUEST_ATTRIBUTE = SessionStateInterceptor.class.getName() + ".state";
+
+  private final SessionStateStore sessionStateStore;
+  private final long touchIntervalMillis;
+  private final Cache<String, CachedState> states;
+  private final SessionStateCodec codec = new SessionStateCodec();
+  private final SecureRandom random = new SecureRandom();
+
+  public SessionStateInterceptor(SessionStateStore sessionStateStore, long timeoutSeconds, long maximumSize) {
+    this.sessionStateStore = sessionStateStore;
+    this.touchIntervalMillis = TimeUnit.SECONDS.toMillis(timeoutSeconds) / 4;
+    this.states = CacheBuilder.newBuilder()
+      .maximumSize(maximumSize)
+      .expireAfterAccess(timeoutSeconds, TimeUnit.SECONDS)
+      .build();
+  }
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+    String id = stateId(request).orElseGet(() -> {
+      String newId = newStateId();
+      Cookie cookie = new Cookie(SESSION_STATE_COOKIE, newId);
+      cookie.setPath("/");
+      cookie.setHttpOnly(true);
+      cookie.setSecure(request.isSecure());
+      response.addCookie(cookie);
+      return newId;
+    });
+
+    HttpSession session = request.getSession();
+    CachedState cached = id.equals(session.getAttribute(STATE_ID_SESSION_KEY)) ? states.getIfPresent(id) : null;
+    if (cached == null) {
+      cached = restore(id);
+      states.put(id, cached);
+      session.setAttribute(STATE_ID_SESSION_KEY, id);
+    }
+    request.setAttribute(STATE_REQUEST_ATTRIBUTE, cached);
+
+    Person person = cached.state.getPerson();
+    if (person != null) {
+      request.setAttribute(PERSON_SESSION_KEY, person);
+      request.setAttribute(USER_STATUS_SESSION_KEY, person.isGuest() ? STATUS_GUEST : STATUS_MEMBER);
+    }
+    if (cached.state.getExternalGroups() != null) {
+      request.setAttribute(EXTERNAL_GROUPS_SESSION_KEY, cached.state.getExternalGroups());
+    }
+    return true;
+  }
+
+  /*
+   * The state is stored before the view is rendered and the response is committed, so a next request that the client
+   * fires as soon as it has the response finds the state on any node. Not called when the handler fails.
+   */
+  @Override
+  public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler, ModelAndView modelAndView) throws Exception {
+    CachedState cached = (CachedState) request.getAttribute(STATE_REQUEST_ATTRIBUTE);
+    if (cached == null) {
+      return;
+    }
+    String id = cached.id;
+    try {
+      HttpSession session = request.getSession(false);
+      if (session == null || !id.equals(session.getAttribute(STATE_ID_SESSION_KEY))) {
+        //the session was invalidated while handling the request, e.g. on logout
+        states.invalidate(id);
+        sessionStateStore.delete(id);
+        return;
+      }
+      @SuppressWarnings("unchecked")
+      SessionState state = new SessionState(
+        (Person) request.getAttribute(PERSON_SESSION_KEY),
+        (List<ExternalGroup>) request.getAttribute(EXTERNAL_GROUPS_SESSION_KEY));
+      if (state.isEmpty()) {
+        if (cached.hash != null) {
+          sessionStateStore.delete(id);
+          states.put(id, new CachedState(id, state, null));
+        }
+        return;
+      }
+      byte[] bytes = codec.encode(state);
+      String hash = hash(bytes);
+      if (!hash.equals(cached.hash)) {
+        sessionStateStore.save(id, bytes);
+        states.put(id, new CachedState(id, state, hash));
+      } else if (System.currentTimeMillis() - cached.touched >= touchIntervalMillis) {
+        if (!sessionStateStore.touch(id)) {
+          sessionStateStore.save(id, bytes);
+        }
+        cached.touched = System.currentTimeMillis();
+      }
+    } catch (RuntimeException e) {
+      //the request itself succeeded, the next request served by another node will have to log in again
+      LOG.error("Failed to store session state", e);
+    }
+  }
+
+  /**
+   * @return the id of the shared state of the session, which unlike the id of the HTTP session is the same on all nodes
+   */
+  public static Optional<String> sessionStateId(HttpSession session) {
+    return Optional.ofNullable((String) session.getAttribute(STATE_ID_SESSION_KEY));
+  }
+
+  private CachedState restore(String id) {
+    CachedState empty = new CachedState(id, new SessionState(null, null), null);
+    Optional<byte[]> bytes = sessionStateStore.load(id);
+    if (!bytes.isPresent()) {
+      return empty;
+    }
+    try {
+      return new CachedState(id, codec.decode(bytes.get()), hash(bytes.get()));
+    } catch (IllegalArgumentException e) {
+      LOG.warn("Ignoring unreadable session state: {}", e.getMessage());
+      return empty;
+    }
+  }
+
+  private Optional<String> stateId(HttpServletRequest request) {
+    return Optional.ofNullable(request.getCookies()).flatMap(cookies -> Arrays.stream(cookies)
+      .filter(cookie -> cookie.getName().equals(SESSION_STATE_COOKIE))
+      .map(Cookie::getValue)
+      .filter(value -> value.matches("^[A-Za-z0-9_-]{27}$"))
+      .findFirst());
+  }
+
+  private String newStateId() {
+    byte[] bytes = new byte[20];
+    random.nextBytes(bytes);
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+  }
+
+  private String hash(byte[] bytes) {
+    return Hashing.murmur3_128().hashBytes(bytes).toString();
+  }
+
+  /*
+   * The decoded state of a session with the hash of its stored form, null when nothing is stored, and the last time
+   * this node loaded, saved or touched it in the store
+   */
+  private static class CachedState {
+
+    private final String id;
+    private final SessionState state;
+    private final String hash;
+    private volatile long touched = System.currentTimeMillis();
+
+    private CachedState(String id, SessionState state, String hash) {
+      this.id = id;
+      this.state = state;
+      this.hash = hash;
+    }
+  }
+}
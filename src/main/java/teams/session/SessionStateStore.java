@@ -0,0 +1,24 @@
+package teams.session;
+
+import java.util.Optional;
+
+/**
+ * Backend for the encoded session state, shared by all nodes that can serve a request. Entries that are not read or
+ * written for longer than the session timeout may be dropped.
+ */
+public interface SessionStateStore {
+
+  Optional<byte[]> load(String id);
+
+  void save(String id, byte[] state);
+
+  void delete(String id);
+
+  /**
+   * Marks the state as accessed, so it doesn't expire while its session is in use without changing it.
+   *
+   * @return false when the state is no longer stored, it has to be saved again
+   */
+  boolean touch(String id);
+
+}
@@ -18,7 +18,6 @@ package teams.util;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Strings.isNullOrEmpty;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -42,19 +41,17 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.MessageSource;
 import org.springframework.mail.javamail.MimeMessagePreparator;
 import org.springframework.stereotype.Component;
-import org.springframework.ui.freemarker.FreeMarkerTemplateUtils;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
-import freemarker.template.Configuration;
-import freemarker.template.Template;
-import freemarker.template.TemplateException;
 import teams.domain.Invitation;
 import teams.domain.Member;
 import teams.domain.Person;
 import teams.domain.Role;
 import teams.domain.Team;
 import teams.service.GrouperTeamService;
+import teams.service.mail.MailBodyRenderer;
+import teams.service.mail.MailBodyRenderer.MailBody;
 import teams.service.mail.MailService;
 
 /**
@@ -71,7 +68,7 @@ public class ControllerUtilImpl implements ControllerUtil {
   private GrouperTeamService grouperTeamService;
 
   @Autowired
-  private Configuration freemarkerConfiguration;
+  private MailBodyRenderer mailBodyRenderer;
 
   @Autowired
   private MailService mailService;
@@ -111,22 +108,19 @@ public class ControllerUtilImpl implements ControllerUtil {
 
   @Override
   public boolean hasUserAdministrativePrivileges(Person person, Team team) {
-    // Check if the requester is member of the team AND
-    // Check if the requester has the role admin or manager, so he is allowed to invite new members.
-    Member member = grouperTeamService.findMember(team, person.getId());
-    return member != null && (member.getRoles().contains(Role.Admin) || member.getRoles().contains(Role.Manager));
+    // Check if the requester is member of the team with the role admin or manager, so he is allowed to invite new members.
+    // An admin also has the manager role.
+    return grouperTeamService.hasRole(team.getId(), person.getId(), Role.Manager);
   }
 
   @Override
   public boolean hasUserAdminPrivileges(Person person, Team team) {
-    // Check if the requester is member of the team AND
-    // Check if the requester has the role admin or manager, so he is allowed to invite new members.
-    Member member = grouperTeamService.findMember(team, person.getId());
-    return member != null && (member.getRoles().contains(Role.Admin));
+    // Check if the requester is member of the team with the role admin
+    return grouperTeamService.hasRole(team.getId(), person.getId(), Role.Admin);
   }
 
   public boolean isPersonMemberOfTeam(Person person, Team team) {
-    return team.getMembers().stream().anyMatch(m -> m.getId().equals(person.getId()));
+    return team.getMember(person.getId()).isPresent();
   }
 
   private MimeMultipart getMimeMultipartMessageBody(String plainText, String html) throws MessagingException {
@@ -144,8 +138,14 @@ public class ControllerUtilImpl implements ControllerUtil {
 
   @Override
   public void sendInvitationMail(Team team, Invitation invitation, String subject, Person inviter) {
-    String html = composeInvitationMailMessage(team, invitation, inviter, "html");
-    String plainText = composeInvitationMailMessage(team, invitation, inviter, "plaintext");
+    Map<String, Object> templateVars = new HashMap<>();
+    templateVars.put("invitation", invitation);
+    templateVars.put("inviter", inviter);
+    templateVars.put("team", team);
+    templateVars.put("teamsURL", teamsUrl);
+    templateVars.put("messages", messageSource);
+    templateVars.put("locale", invitation.getLanguage().locale());
+    MailBody body = mailBodyRenderer.render("invitationmail", invitation.getLanguage().locale(), templateVars);
 
     MimeMessagePreparator preparator = mimeMessage -> {
       mimeMessage.addHeader("Precedence", "bulk");
@@ -153,36 +153,16 @@ public class ControllerUtilImpl implements ControllerUtil {
       mimeMessage.setFrom(new InternetAddress(systemEmail));
       mimeMessage.setSubject(subject);
 
-      MimeMultipart rootMixedMultipart = getMimeMultipartMessageBody(plainText, html);
+      MimeMultipart rootMixedMultipart = getMimeMultipartMessageBody(body.getPlainText(), body.getHtml());
       mimeMessage.setContent(rootMixedMultipart);
     };
     mailService.sendAsync(preparator);
   }
 
-  private String composeInvitationMailMessage(Team team, Invitation invitation, Person inviter, String variant) {
-    String templateName = "plaintext".equals(variant) ? "invitationmail-plaintext.ftl" : "invitationmail.ftl";
-
-    Map<String, Object> templateVars = new HashMap<>();
-    templateVars.put("invitation", invitation);
-    templateVars.put("inviter", inviter);
-    templateVars.put("team", team);
-    templateVars.put("teamsURL", teamsUrl);
-    templateVars.put("messages", messageSource);
-    templateVars.put("locale", invitation.getLanguage().locale());
-
-    try {
-      Template template = freemarkerConfiguration.getTemplate(templateName, invitation.getLanguage().locale());
-      return FreeMarkerTemplateUtils.processTemplateIntoString(template, templateVars);
-    } catch (IOException | TemplateException e) {
-      throw new RuntimeException("Failed to create invitation mail", e);
-    }
-  }
-
   @Override
   public void sendAcceptMail(Person memberToAdd, Team team, Locale locale) {
     String subject = messageSource.getMessage("request.mail.accepted.subject", null, locale);
-    String html = composeAcceptMailMessage(team, locale, "html");
-    String plainText = composeAcceptMailMessage(team, locale, "plaintext");
+    MailBody body = mailBodyRenderer.renderForTeam("joinrequest-acceptmail", locale, team);
 
     MimeMessagePreparator preparator = mimeMessage -> {
       mimeMessage.addHeader("Precedence", "bulk");
@@ -191,34 +171,19 @@ public class ControllerUtilImpl implements ControllerUtil {
       mimeMessage.setRecipients(Message.RecipientType.TO, new Address[]{new InternetAddress(memberToAdd.getEmail())});
       mimeMessage.setSubject(subject);
 
-      MimeMultipart rootMixedMultipart = getMimeMultipartMessageBody(plainText, html);
+      MimeMultipart rootMixedMultipart = getMimeMultipartMessageBody(body.getPlainText(), body.getHtml());
       mimeMessage.setContent(rootMixedMultipart);
     };
 
     mailService.sendAsync(preparator);
   }
 
-  private String composeAcceptMailMessage(Team team, Locale locale, String variant) {
-    String templateName = "plaintext".equals(variant) ? "joinrequest-acceptmail-plaintext.ftl" : "joinrequest-acceptmail.ftl";
-    Map<String, Object> templateVars = new HashMap<>();
-    templateVars.put("team", team);
-
-    try {
-      return FreeMarkerTemplateUtils.processTemplateIntoString(freemarkerConfiguration.getTemplate(templateName, locale), templateVars);
-    } catch (IOException e) {
-      throw new RuntimeException("Failed to create accept join request mail", e);
-    } catch (TemplateException e) {
-      throw new RuntimeException("Failed to create accept join request mail", e);
-    }
-  }
-
   @Override
   public void sendDeclineMail(Person memberToAdd, Team team, Locale locale) {
     checkArgument(!isNullOrEmpty(memberToAdd.getEmail()));
 
     String subject = messageSource.getMessage("request.mail.declined.subject", null, locale);
-    String html = composeDeclineMailMessage(team, locale, "html");
-    String plainText = composeDeclineMailMessage(team, locale, "plaintext");
+    MailBody body = mailBodyRenderer.renderForTeam("joinrequest-declinemail", locale, team);
 
     MimeMessagePreparator preparator = mimeMessage -> {
         mimeMessage.addHeader("Precedence", "bulk");
@@ -227,27 +192,13 @@ public class ControllerUtilImpl implements ControllerUtil {
         mimeMessage.setRecipients(Message.RecipientType.TO, new Address[] { new InternetAddress(memberToAdd.getEmail()) } );
         mimeMessage.setSubject(subject);
 
-        MimeMultipart rootMixedMultipart = getMimeMultipartMessageBody(plainText, html);
+        MimeMultipart rootMixedMultipart = getMimeMultipartMessageBody(body.getPlainText(), body.getHtml());
         mimeMessage.setContent(rootMixedMultipart);
     };
 
     mailService.sendAsync(preparator);
   }
 
-  private String composeDeclineMailMessage(Team team, Locale locale, String variant) {
-    String templateName = "plaintext".equals(variant) ? "joinrequest-declinemail-plaintext.ftl" : "joinrequest-declinemail.ftl";
-    Map<String, Object> templateVars = new HashMap<>();
-    templateVars.put("team", team);
-
-    try {
-      return FreeMarkerTemplateUtils.processTemplateIntoString(freemarkerConfiguration.getTemplate(templateName, locale), templateVars);
-    } catch (IOException e) {
-      throw new RuntimeException("Failed to create decline join request mail", e);
-    } catch (TemplateException e) {
-      throw new RuntimeException("Failed to create decline join request mail", e);
-    }
-  }
-
   @Override
   public void sendJoinTeamMail(Team team, Person person, String message, Locale locale) {
     Object[] subjectValues = {team.getName()};
@@ -258,8 +209,14 @@ public class ControllerUtilImpl implements ControllerUtil {
       throw new RuntimeException("Team '" + team.getName() + "' has no admins to mail invites");
     }
 
-    String html = composeJoinRequestMailMessage(team, person, message, locale, "html");
-    String plainText = composeJoinRequestMailMessage(team, person, message, locale, "plaintext");
+    Map<String, Object> templateVars = new HashMap<>();
+    templateVars.put("requesterName", person.getDisplayName());
+    // for unknown reasons Freemarker cannot call person.getEmail()
+    templateVars.put("requesterEmail", person.getEmail());
+    templateVars.put("team", team);
+    templateVars.put("teamsURL", teamsUrl);
+    templateVars.put("message", message);
+    MailBody body = mailBodyRenderer.render("joinrequestmail", locale, templateVars);
 
     List<InternetAddress> bcc = new ArrayList<>();
     for (Member admin : admins) {
@@ -280,29 +237,10 @@ public class ControllerUtilImpl implements ControllerUtil {
       mimeMessage.setRecipients(Message.RecipientType.BCC, bcc.toArray(new InternetAddress[bcc.size()]));
       mimeMessage.setSubject(subject);
 
-      MimeMultipart rootMixedMultipart = getMimeMultipartMessageBody(plainText, html);
+      MimeMultipart rootMixedMultipart = getMimeMultipartMessageBody(body.getPlainText(), body.getHtml());
       mimeMessage.setContent(rootMixedMultipart);
     };
 
     mailService.sendAsync(preparator);
   }
-
-  private String composeJoinRequestMailMessage(Team team, Person person, String message, Locale locale, String variant) {
-    String templateName = "plaintext".equals(variant) ? "joinrequestmail-plaintext.ftl" : "joinrequestmail.ftl";
-    Map<String, Object> templateVars = new HashMap<>();
-    templateVars.put("requesterName", person.getDisplayName());
-    // for unknown reasons Freemarker cannot call person.getEmail()
-    templateVars.put("requesterEmail", person.getEmail());
-    templateVars.put("team", team);
-    templateVars.put("teamsURL", teamsUrl);
-    templateVars.put("message", message);
-
-    try {
-      return FreeMarkerTemplateUtils.processTemplateIntoString(freemarkerConfiguration.getTemplate(templateName, locale), templateVars);
-    } catch (IOException e) {
-      throw new RuntimeException("Failed to create invitation mail", e);
-    } catch (TemplateException e) {
-      throw new RuntimeException("Failed to create invitation mail", e);
-    }
-  }
 }
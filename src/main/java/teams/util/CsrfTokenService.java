@@ -0,0 +1,123 @@
+package teams.util;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+import teams.session.SessionStateInterceptor;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.servlet.http.HttpServletRequest;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Signed CSRF tokens. A token is the expiry time, a random nonce and a HMAC over the session id, the expiry and the
+ * nonce, so nothing has to be kept in the session and every node with the same secret can check every token. The
+ * session id is the id of the shared session state when there is one, as the HTTP session differs per node. Unlike the
+ * session stored tokens a token can be used more than once, by the same session and within its validity, which is kept
+ * short for that reason. There is no default secret, the application does not start without one.
+ */
+@Component
+public class CsrfTokenService {
+
+  /**
+   * Name of the model attribute the views render the token from
+   */
+  public static final String TOKENCHECK = "tokencheck";
+
+  private static final String ALGORITHM = "HmacSHA256";
+  private static final int EXPIRY_LENGTH = 4;
+  private static final int NONCE_LENGTH = 12;
+  private static final int MAC_LENGTH = 16;
+  private static final int TOKEN_LENGTH = EXPIRY_LENGTH + NONCE_LENGTH + MAC_LENGTH;
+
+  private final SecretKeySpec key;
+  private final long validitySeconds;
+
+  private final ThreadLocal<SecureRandom> random = ThreadLocal.withInitial(SecureRandom::new);
+  private final ThreadLocal<Mac> mac = ThreadLocal.withInitial(this::newMac);
+
+  @Autowired
+  public CsrfTokenService(@Value("${csrf.secret}") String secret,
+                          @Value("${csrf.tokenValiditySeconds}") long validitySeconds) {
+    Assert.hasText(secret, "csrf.secret must be set, to the same secret value on all nodes");
+    this.key = new SecretKeySpec(secret.getBytes(UTF_8), ALGORITHM);
+    this.validitySeconds = validitySeconds;
+  }
+
+  public String generateToken(HttpServletRequest request) {
+    byte[] nonce = new byte[NONCE_LENGTH];
+    random.get().nextBytes(nonce);
+    byte[] token = new byte[TOKEN_LENGTH];
+    ByteBuffer.wrap(token).putInt((int) (now() + validitySeconds)).put(nonce);
+    System.arraycopy(sign(sessionId(request), token), 0, token, EXPIRY_LENGTH + NONCE_LENGTH, MAC_LENGTH);
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(token);
+  }
+
+  public void checkToken(HttpServletRequest request, String token) {
+    if (!isValid(request, token)) {
+      throw new SecurityException("Token does not match");
+    }
+  }
+
+  private boolean isValid(HttpServletRequest request, String token) {
+    if (token == null) {
+      return false;
+    }
+    byte[] bytes;
+    try {
+      bytes = Base64.getUrlDecoder().decode(token);
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+    if (bytes.length != TOKEN_LENGTH) {
+      return false;
+    }
+    long expiry = Integer.toUnsignedLong(ByteBuffer.wrap(bytes).getInt());
+    if (expiry < now()) {
+      return false;
+    }
+    byte[] expected = sign(sessionId(request), bytes);
+    byte[] actual = new byte[MAC_LENGTH];
+    System.arraycopy(bytes, EXPIRY_LENGTH + NONCE_LENGTH, actual, 0, MAC_LENGTH);
+    return MessageDigest.isEqual(expected, actual);
+  }
+
+  /*
+   * The truncated HMAC over the session id followed by the expiry and the nonce of the token
+   */
+  private byte[] sign(String sessionId, byte[] token) {
+    Mac mac = this.mac.get();
+    mac.update(sessionId.getBytes(UTF_8));
+    mac.update(token, 0, EXPIRY_LENGTH + NONCE_LENGTH);
+    byte[] signature = mac.doFinal();
+    byte[] truncated = new byte[MAC_LENGTH];
+    System.arraycopy(signature, 0, truncated, 0, MAC_LENGTH);
+    return truncated;
+  }
+
+  private String sessionId(HttpServletRequest request) {
+    return SessionStateInterceptor.sessionStateId(request.getSession()).orElseGet(() -> request.getSession().getId());
+  }
+
+  private Mac newMac() {
+    try {
+      Mac mac = Mac.getInstance(ALGORITHM);
+      mac.init(key);
+      return mac;
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private long now() {
+    return System.currentTimeMillis() / 1000;
+  }
+}
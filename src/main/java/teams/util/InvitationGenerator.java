@@ -16,23 +16,33 @@
 
 package teams.util;
 
-import org.apache.commons.lang.RandomStringUtils;
+import java.security.SecureRandom;
+import java.util.Base64;
 
 /**
  * Utility class to generate hash code for the invitations
  */
 public final class InvitationGenerator {
 
-  private static final int INVITATION_HASH_LENGTH = 255;
+  /*
+   * 192 random bits, which encode to 32 URL safe characters. The invitation_uiid index covers the first 32 characters,
+   * so new ids are indexed completely and the 255 character ids of older invitations through their prefix.
+   */
+  private static final int INVITATION_HASH_BYTES = 24;
+
+  private static final SecureRandom RANDOM = new SecureRandom();
+
   private InvitationGenerator() {
   }
 
   /**
    * Generates (unique) ramdom string for invitations
    *
-   * @return random {@link String}
+   * @return random URL safe {@link String}
    */
   public static String generateHash() {
-    return RandomStringUtils.randomAlphanumeric(INVITATION_HASH_LENGTH);
+    byte[] bytes = new byte[INVITATION_HASH_BYTES];
+    RANDOM.nextBytes(bytes);
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
   }
 }
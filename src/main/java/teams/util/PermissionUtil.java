@@ -25,7 +25,7 @@ public final class PermissionUtil {
   }
 
   public static boolean isGuest(HttpServletRequest request) {
-    String userStatus = (String) request.getSession().getAttribute(USER_STATUS_SESSION_KEY);
+    String userStatus = (String) request.getAttribute(USER_STATUS_SESSION_KEY);
     return userStatus == null || "guest".equals(userStatus);
   }
 
@@ -1,29 +1,50 @@
 package teams.voot;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import teams.interceptor.LoginInterceptor;
+import teams.migration.MemberSummary;
 import teams.migration.Membership;
 import teams.migration.Team;
 import teams.repository.MembershipRepository;
 import teams.repository.TeamRepository;
 import teams.service.TeamExternalGroupDao;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.StreamSupport;
 
 import static java.util.stream.Collectors.toList;
 
 @RestController
 public class VootApiController {
 
+  private static final String ALL_GROUPS_QUERY = "SELECT urn, name, description FROM teams ORDER BY urn";
+  private static final int MAX_LIMIT = 1000;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  @Qualifier("teamsJdbcTemplate")
+  private JdbcTemplate jdbcTemplate;
+
   @Autowired
   private TeamRepository teamRepository;
 
@@ -55,23 +76,68 @@ public class VootApiController {
       .collect(toList());
   }
 
+  /**
+   * All members of the team with their person columns joined in one query
+   */
   @GetMapping("/" + LoginInterceptor.API_VOOT_URL+ "/members/{localGroupId}")
   public List<Member> getMembers(@PathVariable("localGroupId") String localGroupId) {
-    Team team = resolveOptionalOrThrow(teamRepository.findByUrn(localGroupId), localGroupId);
-    return team.getMemberships().stream().map(this::convertMembershipToMember).collect(toList());
+    return convertMemberSummaries(localGroupId, membershipRepository.findMemberSummaries(localGroupId));
+  }
+
+  /**
+   * Keyset paginated variant of the members ordered by urn. The id of the last member is the 'after' of the next page.
+   */
+  @GetMapping(value = "/" + LoginInterceptor.API_VOOT_URL+ "/members/{localGroupId}", params = "limit")
+  public List<Member> getMembers(@PathVariable("localGroupId") String localGroupId,
+                                 @RequestParam(value = "after", required = false, defaultValue = "") String after,
+                                 @RequestParam("limit") int limit) {
+    int pageSize = Math.max(1, Math.min(limit, MAX_LIMIT));
+    return convertMemberSummaries(localGroupId,
+      membershipRepository.findMemberSummariesAfter(localGroupId, after, new PageRequest(0, pageSize)));
   }
 
+  /**
+   * Streams all teams as a JSON array straight from a forward-only result set, so memory use does not depend on
+   * the number of teams
+   */
   @GetMapping("/" + LoginInterceptor.API_VOOT_URL + "/groups")
-  public List<Group> getAllGroups() {
-    return StreamSupport.stream(teamRepository.findAll().spliterator(), false).map(this::convertTeamToGroup).collect(toList());
+  public void getAllGroups(HttpServletResponse response) throws IOException {
+    response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+    try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+      generator.writeStartArray();
+      RowCallbackHandler writeGroup = rs -> {
+        try {
+          generator.writeObject(new Group(rs.getString("urn"), rs.getString("name"), rs.getString("description"), "member"));
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      };
+      jdbcTemplate.query(connection -> {
+        PreparedStatement statement = connection.prepareStatement(ALL_GROUPS_QUERY, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        //MySQL compatible hint to stream the rows instead of reading the whole result set into memory
+        statement.setFetchSize(Integer.MIN_VALUE);
+        return statement;
+      }, writeGroup);
+      generator.writeEndArray();
+    }
+  }
+
+  /**
+   * Keyset paginated variant of all teams ordered by urn. The id of the last group is the 'after' of the next page.
+   */
+  @GetMapping(value = "/" + LoginInterceptor.API_VOOT_URL + "/groups", params = "limit")
+  public List<Group> getAllGroups(@RequestParam(value = "after", required = false, defaultValue = "") String after,
+                                  @RequestParam("limit") int limit) {
+    int pageSize = Math.max(1, Math.min(limit, MAX_LIMIT));
+    return teamRepository.findByUrnGreaterThanOrderByUrnAsc(after, new PageRequest(0, pageSize)).stream()
+      .map(this::convertTeamToGroup)
+      .collect(toList());
   }
 
   @GetMapping("/" + LoginInterceptor.API_VOOT_URL + "/user/{uid}/groups")
   public List<Group> getGroupsForMember(@PathVariable("uid") String uid) {
-    return teamRepository.findByMembershipsUrnPersonOrderByNameAsc(uid, new PageRequest(0, Integer.MAX_VALUE))
-      .getContent()
-      .stream()
-      .map(this::convertTeamToGroup)
+    return teamRepository.findAllMyTeamSummaries(uid).stream()
+      .map(summary -> new Group(summary.getUrn(), summary.getName(), summary.getDescription(), "member"))
       .collect(toList());
   }
 
@@ -83,8 +149,16 @@ public class VootApiController {
     return this.convertTeamToGroup(membership.getTeam());
   }
 
-  private Member convertMembershipToMember(Membership membership) {
-    return new Member(membership.getUrnPerson(), membership.getPerson().getName(), membership.getPerson().getEmail());
+  /*
+   * Only an empty result needs the extra query to tell an unknown team apart from a team without (more) members
+   */
+  private List<Member> convertMemberSummaries(String localGroupId, List<MemberSummary> summaries) {
+    if (summaries.isEmpty()) {
+      resolveOptionalOrThrow(teamRepository.findTeamSummaryByUrn(localGroupId), localGroupId);
+    }
+    return summaries.stream()
+      .map(summary -> new Member(summary.getUrn(), summary.getName(), summary.getEmail()))
+      .collect(toList());
   }
 
   private <T> T resolveOptionalOrThrow(Optional<T> optional, String urn) {
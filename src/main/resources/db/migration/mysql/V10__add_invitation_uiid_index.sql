@@ -0,0 +1,3 @@
+ALTER TABLE invitations ENGINE=InnoDB;
+ALTER TABLE invitations
+  ADD INDEX invitations_uiid_index (invitation_uiid(32));
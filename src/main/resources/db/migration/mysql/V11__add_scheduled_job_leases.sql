@@ -0,0 +1,10 @@
+CREATE TABLE scheduled_job_leases (
+  job_name varchar(100) NOT NULL,
+  owner varchar(255) NOT NULL,
+  lease_until bigint(20) NOT NULL,
+  PRIMARY KEY (job_name)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
+ALTER TABLE invitations
+  ADD INDEX invitations_timestamp_index (timestamp);
+ALTER TABLE invitation_message
+  ADD INDEX invitation_message_invitation_id_index (invitation_id);
@@ -0,0 +1,9 @@
+ALTER TABLE scheduled_job_leases
+  ADD COLUMN last_run_owner varchar(255) DEFAULT NULL,
+  ADD COLUMN last_run_started bigint(20) DEFAULT NULL,
+  ADD COLUMN last_run_millis bigint(20) DEFAULT NULL,
+  ADD COLUMN last_run_succeeded tinyint(1) DEFAULT NULL,
+  ADD COLUMN last_success bigint(20) DEFAULT NULL;
+ALTER TABLE requests ENGINE=InnoDB;
+ALTER TABLE requests
+  ADD INDEX requests_timestamp_index (timestamp);
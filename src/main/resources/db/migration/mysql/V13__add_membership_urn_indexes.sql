@@ -0,0 +1,4 @@
+ALTER TABLE memberships
+  ADD INDEX memberships_urn_team_index (urn_team, urn_person, role, person_id);
+ALTER TABLE memberships
+  ADD INDEX memberships_urn_person_index (urn_person, urn_team, role, team_id);
@@ -0,0 +1,6 @@
+CREATE TABLE used_csrf_tokens (
+  nonce varchar(32) NOT NULL,
+  expires_at bigint(20) NOT NULL,
+  PRIMARY KEY (nonce),
+  INDEX used_csrf_tokens_expires_at_index (expires_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
@@ -0,0 +1,7 @@
+CREATE TABLE queued_invitation_mails (
+  invitation_id bigint(20) NOT NULL,
+  subject varchar(255) NOT NULL,
+  inviter_id varchar(255) NOT NULL,
+  inviter_name varchar(255) DEFAULT NULL,
+  PRIMARY KEY (invitation_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
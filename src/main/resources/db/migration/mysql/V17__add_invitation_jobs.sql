@@ -0,0 +1,13 @@
+CREATE TABLE invitation_jobs (
+  id varchar(36) NOT NULL,
+  team_id varchar(255) NOT NULL,
+  total int(11) NOT NULL,
+  failed int(11) NOT NULL DEFAULT 0,
+  created datetime NOT NULL,
+  PRIMARY KEY (id),
+  KEY invitation_jobs_created_index (created)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
+
+ALTER TABLE queued_invitation_mails
+  ADD COLUMN job_id varchar(36) DEFAULT NULL,
+  ADD INDEX queued_invitation_mails_job_id_index (job_id);
@@ -0,0 +1,4 @@
+ALTER TABLE teams
+  ADD COLUMN member_count INT NOT NULL DEFAULT 0 AFTER viewable;
+UPDATE teams t
+  SET t.member_count = (SELECT COUNT(*) FROM memberships m WHERE m.team_id = t.id);
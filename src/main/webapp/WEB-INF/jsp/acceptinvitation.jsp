@@ -27,16 +27,16 @@
     <table class="invitationDetails">
       <tr class="odd">
         <td class="width200"><spring:message code="jsp.acceptinvitation.DisplayName"/></td>
-        <td><c:out value="${sessionScope.person.displayName}"/></td>
+        <td><c:out value="${requestScope.person.displayName}"/></td>
       </tr>
       <tr class="even">
         <td><spring:message code="jsp.acceptinvitation.UserID"/></td>
-        <td><c:out value="${sessionScope.person.id}"/></td>
+        <td><c:out value="${requestScope.person.id}"/></td>
       </tr>
       <tr class="odd">
         <td><spring:message code="jsp.acceptinvitation.EmailAddress"/></td>
         <td>
-            <c:out value="${sessionScope.person.email}"/>&nbsp;
+            <c:out value="${requestScope.person.email}"/>&nbsp;
         </td>
       </tr>
     </table>
@@ -63,7 +63,7 @@
       </p>
       <p class="label-field-wrapper">
         <span class="label"><spring:message code="jsp.addteam.admin1"/></span>
-        <span class="input"><c:out value="${sessionScope.person.displayName} "/><spring:message code="jsp.addteam.admin1.you"/></span>
+        <span class="input"><c:out value="${requestScope.person.displayName} "/><spring:message code="jsp.addteam.admin1.you"/></span>
       </p>
       <%-- admin2 not managed through Team object --%>
       <p class="label-field-wrapper">
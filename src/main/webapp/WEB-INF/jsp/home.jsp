@@ -71,7 +71,7 @@
 </div>
 <%-- = Content --%>
 <div id="Content"<c:if test="${display eq 'externalGroups'}"> class="home-external-groups"</c:if>>
-  <c:if test='${sessionScope.userStatus ne "guest" and display ne "externalGroups"}'>
+  <c:if test='${requestScope.userStatus ne "guest" and display ne "externalGroups"}'>
     <c:url value="/addteam.shtml" var="addTeamUrl"></c:url>
     <p class="add"><a class="button" href="${addTeamUrl}"><spring:message code='jsp.home.AddTeam' /></a></p>
   </c:if>
@@ -144,7 +144,7 @@
         <c:when test="${fn:length(query) == 0 && fn:length(teams) == 0}">
           <tr><td colspan="4"><spring:message code="jsp.home.NoSearchQuery" /></td></tr>
         </c:when>
-        <c:when test="${sessionScope.userStatus eq 'guest'}">
+        <c:when test="${requestScope.userStatus eq 'guest'}">
           <tr><td colspan="4"><spring:message code="jsp.home.NoTeams.Guest" /></td></tr>
         </c:when>
         <c:otherwise>
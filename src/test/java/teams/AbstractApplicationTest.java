@@ -11,6 +11,7 @@ import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.context.jdbc.SqlConfig;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.transaction.annotation.Transactional;
+import teams.migration.EntityCache;
 import teams.repository.MembershipRepository;
 import teams.repository.PersonRepository;
 import teams.repository.TeamRepository;
@@ -19,7 +20,7 @@ import static org.springframework.test.context.jdbc.SqlConfig.ErrorMode.FAIL_ON_
 import static org.springframework.test.context.jdbc.SqlConfig.TransactionMode.ISOLATED;
 
 @RunWith(SpringRunner.class)
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, value = {"spring.profiles.active=dev"})
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, value = {"spring.profiles.active=dev", "csrf.secret=test-secret"})
 @Transactional
 @Sql(scripts = {"classpath:sql/clear.sql", "classpath:sql/seed.sql"},
   config = @SqlConfig(errorMode = FAIL_ON_ERROR, transactionMode = ISOLATED))
@@ -34,12 +35,17 @@ public abstract class AbstractApplicationTest {
   @Autowired
   protected PersonRepository personRepository;
 
+  @Autowired
+  protected EntityCache entityCache;
+
   @LocalServerPort
   private int serverPort;
 
   @Before
   public void before() throws Exception {
     RestAssured.port = serverPort;
+    //the seed is inserted with plain JDBC
+    entityCache.evictAll();
   }
 
 }
@@ -23,7 +23,6 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import javax.servlet.http.HttpServletRequest;
-import javax.servlet.http.HttpSession;
 
 import org.junit.Before;
 import org.mockito.internal.stubbing.answers.DoesNothing;
@@ -42,6 +41,7 @@ import teams.domain.Stem;
 import teams.domain.Team;
 import teams.domain.TeamResultWrapper;
 import teams.interceptor.LoginInterceptor;
+import teams.util.CsrfTokenService;
 
 /**
  * Base class for testing {@link Controller} instances
@@ -50,6 +50,7 @@ public abstract class AbstractControllerTest {
 
   private MockHttpServletRequest request;
   private ModelMap modelMap;
+  protected final CsrfTokenService csrfTokenService = new CsrfTokenService("secret", 3600);
 
   /**
    * Autowire all dependencies with a annotation autowired with a mock that does
@@ -187,16 +188,14 @@ public abstract class AbstractControllerTest {
   }
 
   /**
-   * Put the Groups and Person in the session
+   * Put the Person on the request, as the session state interceptor does
    *
    * @param request the HttpServletRequest
    */
   private void setUpSession(HttpServletRequest request) {
-    HttpSession session = request.getSession(true);
-
     Person person = getPerson1();
-    session.setAttribute(LoginInterceptor.PERSON_SESSION_KEY, person);
-    session.setAttribute(LoginInterceptor.USER_STATUS_SESSION_KEY, "member");
+    request.setAttribute(LoginInterceptor.PERSON_SESSION_KEY, person);
+    request.setAttribute(LoginInterceptor.USER_STATUS_SESSION_KEY, "member");
 
   }
 
@@ -61,7 +61,7 @@ public class AddExternalGroupControllerTest {
 
     mockMvc.perform(get("/addexternalgroup.shtml")
         .param("teamId", "team::id")
-        .sessionAttr(PERSON_SESSION_KEY, person))
+        .requestAttr(PERSON_SESSION_KEY, person))
       .andExpect(model().attribute("teamId", "team::id"))
       .andExpect(view().name("addexternalgroup"));
   }
@@ -83,7 +83,7 @@ public class AddExternalGroupControllerTest {
 
     mockMvc.perform(get("/addexternalgroup.shtml")
         .param("teamId", "team::id")
-        .sessionAttr(PERSON_SESSION_KEY, person))
+        .requestAttr(PERSON_SESSION_KEY, person))
       .andExpect(request().sessionAttribute(EXTERNAL_GROUPS_SESSION_KEY, contains(externalGroupTwo)));
   }
 
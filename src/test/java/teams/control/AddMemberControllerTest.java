@@ -3,22 +3,30 @@ package teams.control;
 import static org.hamcrest.Matchers.hasProperty;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.joining;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
 import static org.springframework.test.web.servlet.setup.MockMvcBuilders.standaloneSetup;
 import static teams.control.AddMemberController.INVITATION_FORM_PARAM;
 import static teams.control.AddMemberController.INVITE_SEND_INVITE_SUBJECT;
 import static teams.interceptor.LoginInterceptor.PERSON_SESSION_KEY;
-import static teams.util.TokenUtil.TOKENCHECK;
+import static teams.util.CsrfTokenService.TOKENCHECK;
 
 import java.util.Locale;
 import java.util.Optional;
+import java.util.stream.IntStream;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -26,17 +34,22 @@ import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.springframework.context.MessageSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpSession;
 import org.springframework.test.web.servlet.MockMvc;
 
 import teams.domain.Invitation;
+import teams.domain.InvitationJob;
 import teams.domain.Language;
 import teams.domain.Person;
 import teams.domain.Team;
+import teams.service.InvitationJobService;
 import teams.service.TeamInviteService;
 import teams.util.ControllerUtil;
-import teams.util.TokenUtil;
+import teams.util.CsrfTokenService;
 
 @RunWith(MockitoJUnitRunner.class)
 public class AddMemberControllerTest {
@@ -44,21 +57,29 @@ public class AddMemberControllerTest {
   @InjectMocks
   private AddMemberController subject;
 
+  @Spy
+  private CsrfTokenService csrfTokenService = new CsrfTokenService("secret", 3600);
+
+  private final MockHttpSession session = new MockHttpSession();
+
   @Mock
   private ControllerUtil controllerUtilMock;
   @Mock
   private MessageSource messageSourceMock;
   @Mock
   private TeamInviteService teamInviteServiceMock;
+  @Mock
+  private InvitationJobService invitationJobServiceMock;
 
   private MockMvc mockMvc;
 
   private final Person person = new Person("id", "name", "email", "organization", "voot_role", "displayName");
-  private final String dummyToken = TokenUtil.generateSessionToken();
+  private String dummyToken;
 
   @Before
   public void setup() {
     mockMvc = standaloneSetup(subject).build();
+    dummyToken = csrfToken();
   }
 
   @Test
@@ -69,7 +90,7 @@ public class AddMemberControllerTest {
     when(controllerUtilMock.hasUserAdministrativePrivileges(person, team)).thenReturn(true);
 
     mockMvc.perform(get("/addmember.shtml")
-        .sessionAttr(PERSON_SESSION_KEY, person))
+        .requestAttr(PERSON_SESSION_KEY, person))
       .andExpect(model().attributeExists("languages"))
       .andExpect(model().attribute(INVITATION_FORM_PARAM, hasProperty("language", is(Language.English))))
       .andExpect(view().name("addmember"));
@@ -83,8 +104,8 @@ public class AddMemberControllerTest {
     when(controllerUtilMock.hasUserAdministrativePrivileges(person, team)).thenReturn(true);
 
     mockMvc.perform(post("/doaddmember.shtml")
-        .sessionAttr(PERSON_SESSION_KEY, person)
-        .sessionAttr(TOKENCHECK, dummyToken)
+        .requestAttr(PERSON_SESSION_KEY, person)
+        .session(session)
         .param("teamId", team.getId())
         .param("token", dummyToken))
       .andExpect(model().attributeHasFieldErrors(INVITATION_FORM_PARAM, "emails"))
@@ -98,11 +119,11 @@ public class AddMemberControllerTest {
     when(controllerUtilMock.hasUserAdministrativePrivileges(person, team)).thenReturn(true);
     when(controllerUtilMock.getTeamById(team.getId())).thenReturn(team);
     when(messageSourceMock.getMessage(eq(INVITE_SEND_INVITE_SUBJECT), any(), eq(Locale.forLanguageTag("nl")))).thenReturn("subject");
-    when(teamInviteServiceMock.findOpenInvitation("john@example.com", team)).thenReturn(Optional.empty());
+    when(teamInviteServiceMock.findOpenInvitations(singletonList("john@example.com"), team)).thenReturn(emptyMap());
 
     mockMvc.perform(post("/doaddmember.shtml")
-        .sessionAttr(PERSON_SESSION_KEY, person)
-        .sessionAttr(TOKENCHECK, dummyToken)
+        .requestAttr(PERSON_SESSION_KEY, person)
+        .session(session)
         .param("teamId", team.getId())
         .param("emails", "john@example.com")
         .param("language", "Dutch")
@@ -115,6 +136,69 @@ public class AddMemberControllerTest {
     assertThat(invitationCaptor.getValue().getEmail(), is("john@example.com"));
   }
 
+  @Test
+  public void inviteAddressesDifferingInCaseOnce() throws Exception {
+    Team team = new Team("teamId", "teamName", "teamDescription");
+
+    when(controllerUtilMock.hasUserAdministrativePrivileges(person, team)).thenReturn(true);
+    when(controllerUtilMock.getTeamById(team.getId())).thenReturn(team);
+    when(messageSourceMock.getMessage(eq(INVITE_SEND_INVITE_SUBJECT), any(), eq(Locale.forLanguageTag("nl")))).thenReturn("subject");
+    when(teamInviteServiceMock.findOpenInvitations(singletonList("john@example.com"), team)).thenReturn(emptyMap());
+
+    mockMvc.perform(post("/doaddmember.shtml")
+        .requestAttr(PERSON_SESSION_KEY, person)
+        .session(session)
+        .param("teamId", team.getId())
+        .param("emails", "John@Example.com, john@example.com")
+        .param("language", "Dutch")
+        .param("token", dummyToken))
+      .andExpect(view().name("redirect:detailteam.shtml?team=teamId"));
+
+    ArgumentCaptor<Invitation> invitationCaptor = ArgumentCaptor.forClass(Invitation.class);
+
+    verify(controllerUtilMock).sendInvitationMail(any(Team.class), invitationCaptor.capture(), eq("subject"), eq(person));
+    assertThat(invitationCaptor.getValue().getEmail(), is("john@example.com"));
+  }
+
+  @Test
+  public void addManyMembersToATeamInTheBackground() throws Exception {
+    Team team = new Team("teamId", "teamName", "teamDescription");
+    String emails = IntStream.rangeClosed(0, AddMemberController.MAX_INVITATION_MAILS_IN_REQUEST)
+      .mapToObj(i -> "john" + i + "@example.com")
+      .collect(joining(","));
+
+    when(controllerUtilMock.hasUserAdministrativePrivileges(person, team)).thenReturn(true);
+    when(controllerUtilMock.getTeamById(team.getId())).thenReturn(team);
+    when(messageSourceMock.getMessage(eq(INVITE_SEND_INVITE_SUBJECT), any(), eq(Locale.forLanguageTag("nl")))).thenReturn("subject");
+    when(invitationJobServiceMock.queueInvitationMails(eq(team), anyListOf(Invitation.class), eq("subject"), eq(person)))
+      .thenReturn(new InvitationJob("jobId", team.getId(), 11, 11, 0));
+
+    mockMvc.perform(post("/doaddmember.shtml")
+        .requestAttr(PERSON_SESSION_KEY, person)
+        .session(session)
+        .param("teamId", team.getId())
+        .param("emails", emails)
+        .param("language", "Dutch")
+        .param("token", dummyToken))
+      .andExpect(view().name("redirect:detailteam.shtml?team=teamId&invitationJob=jobId"));
+
+    verify(teamInviteServiceMock).saveOrUpdate(anyCollectionOf(Invitation.class));
+    verify(controllerUtilMock, never()).sendInvitationMail(any(Team.class), any(Invitation.class), any(), any());
+  }
+
+  @Test
+  public void invitationJobProgress() throws Exception {
+    when(invitationJobServiceMock.findJob("jobId")).thenReturn(Optional.of(new InvitationJob("jobId", "teamId", 10, 4, 1)));
+    when(controllerUtilMock.hasUserAdministrativePrivileges(person, new Team("teamId"))).thenReturn(true);
+
+    mockMvc.perform(get("/invitationjob.json")
+        .requestAttr(PERSON_SESSION_KEY, person)
+        .param("id", "jobId"))
+      .andExpect(jsonPath("$.sent").value(5))
+      .andExpect(jsonPath("$.failed").value(1))
+      .andExpect(jsonPath("$.finished").value(false));
+  }
+
   @Test
   public void resendAnInvitationForm() throws Exception {
     Invitation invitation = new Invitation("john@example.com", "teamId");
@@ -123,10 +207,17 @@ public class AddMemberControllerTest {
     when(controllerUtilMock.hasUserAdministrativePrivileges(person, new Team("teamId"))).thenReturn(true);
 
     mockMvc.perform(get("/resendInvitation.shtml")
-        .sessionAttr(PERSON_SESSION_KEY, person)
+        .requestAttr(PERSON_SESSION_KEY, person)
         .param("id", "invitationId"))
     .andExpect(model().attributeExists(AddMemberController.ROLES_PARAM))
     .andExpect(model().attributeExists(AddMemberController.RESEND_INVITATION_COMMAND_PARAM))
+    .andExpect(model().attributeExists(TOKENCHECK))
     .andExpect(view().name("resendinvitation"));
   }
+
+  private String csrfToken() {
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.setSession(session);
+    return csrfTokenService.generateToken(request);
+  }
 }
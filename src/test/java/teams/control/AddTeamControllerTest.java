@@ -19,7 +19,7 @@ import static org.springframework.test.web.servlet.setup.MockMvcBuilders.standal
 import static teams.control.AddMemberController.INVITE_SEND_INVITE_SUBJECT;
 import static teams.interceptor.LoginInterceptor.PERSON_SESSION_KEY;
 import static teams.interceptor.LoginInterceptor.USER_STATUS_SESSION_KEY;
-import static teams.util.TokenUtil.TOKENCHECK;
+import static teams.util.CsrfTokenService.TOKENCHECK;
 
 import java.util.Locale;
 
@@ -29,7 +29,11 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.hamcrest.Matchers.hasProperty;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -39,9 +43,12 @@ import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.springframework.context.MessageSource;
 import org.springframework.core.env.Environment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpSession;
 import org.springframework.test.web.servlet.MockMvc;
 
 import teams.Application;
@@ -52,9 +59,9 @@ import teams.domain.Role;
 import teams.domain.Stem;
 import teams.domain.Team;
 import teams.service.GrouperTeamService;
-import teams.service.TeamInviteService;
 import teams.util.ControllerUtil;
-import teams.util.TokenUtil;
+import teams.util.CsrfTokenService;
+import teams.util.DuplicateTeamException;
 
 @RunWith(MockitoJUnitRunner.class)
 public class AddTeamControllerTest {
@@ -62,27 +69,32 @@ public class AddTeamControllerTest {
   @InjectMocks
   private AddTeamController subject;
 
+  @Spy
+  private CsrfTokenService csrfTokenService = new CsrfTokenService("secret", 3600);
+
+  private final MockHttpSession session = new MockHttpSession();
+
   @Mock private GrouperTeamService grouperTeamServiceMock;
   @Mock private Environment environment;
   @Mock private ControllerUtil controllerUtil;
-  @Mock private TeamInviteService teamInviteServiceMock;
   @Mock private MessageSource messageSourceMock;
 
   private MockMvc mockMvc;
 
   private final Person person = new Person("id", "name", "email", "organization", "voot_role", "displayName");
-  private final String dummyToken = TokenUtil.generateSessionToken();
+  private String dummyToken;
 
   @Before
   public void setup() {
     mockMvc = standaloneSetup(subject).build();
+    dummyToken = csrfToken();
   }
 
   @Test
   public void addTeamForm() throws Exception {
     mockMvc.perform(get("/addteam.shtml")
-        .sessionAttr(USER_STATUS_SESSION_KEY, "member")
-        .sessionAttr(PERSON_SESSION_KEY, person))
+        .requestAttr(USER_STATUS_SESSION_KEY, "member")
+        .requestAttr(PERSON_SESSION_KEY, person))
       .andExpect(model().attributeExists("languages"))
       .andExpect(model().attribute("addTeamCommand", hasProperty("admin2Language", is(Language.English))))
       .andExpect(view().name("addteam"));
@@ -93,57 +105,71 @@ public class AddTeamControllerTest {
     Team expectedTeam = new Team("teamid");
 
     when(environment.acceptsProfiles(Application.GROUPZY_PROFILE_NAME)).thenReturn(false);
-    when(grouperTeamServiceMock.addTeam("name", "name", "description", null)).thenReturn("teamid");
-    when(grouperTeamServiceMock.findTeamById(expectedTeam.getId())).thenReturn(expectedTeam);
+    when(grouperTeamServiceMock.createTeam(eq("name"), eq("name"), eq("description"), isNull(String.class), eq(true),
+      eq(person), isNull(Invitation.class))).thenReturn(expectedTeam);
 
     mockMvc.perform(post("/doaddteam.shtml")
-        .sessionAttr(PERSON_SESSION_KEY, person)
-        .sessionAttr(USER_STATUS_SESSION_KEY, "member")
-        .sessionAttr(TOKENCHECK, dummyToken)
+        .requestAttr(PERSON_SESSION_KEY, person)
+        .requestAttr(USER_STATUS_SESSION_KEY, "member")
+        .session(session)
         .param("token", dummyToken)
         .param("teamDescription", "description")
         .param("viewable", "true")
         .param("teamName", "name"))
       .andExpect(view().name("redirect:detailteam.shtml?team=teamid"));
 
-    verify(grouperTeamServiceMock).setVisibilityGroup("teamid", true);
-    verify(grouperTeamServiceMock).addMember(expectedTeam, person);
-    verify(grouperTeamServiceMock).addMemberRole(expectedTeam, person.getId(), Role.Admin, null);
+    verify(grouperTeamServiceMock).createTeam("name", "name", "description", null, true, person, null);
+  }
+
+  @Test
+  public void failToAddDuplicateTeam() throws Exception {
+    when(grouperTeamServiceMock.createTeam(eq("name"), eq("name"), eq("description"), isNull(String.class), eq(false),
+      eq(person), isNull(Invitation.class))).thenThrow(new DuplicateTeamException("Team name already exists"));
+
+    mockMvc.perform(post("/doaddteam.shtml")
+        .requestAttr(PERSON_SESSION_KEY, person)
+        .requestAttr(USER_STATUS_SESSION_KEY, "member")
+        .session(session)
+        .param("token", dummyToken)
+        .param("teamDescription", "description")
+        .param("teamName", "name"))
+      .andExpect(view().name("addteam"))
+      .andExpect(model().attributeHasFieldErrors("addTeamCommand", "teamName"))
+      .andExpect(model().attribute(TOKENCHECK, not(dummyToken)));
   }
 
   @Test
   public void failToAddTeamWithEmptyName() throws Exception {
     when(environment.acceptsProfiles(Application.GROUPZY_PROFILE_NAME)).thenReturn(false);
-    when(grouperTeamServiceMock.addTeam("name", "name", "description", null)).thenReturn("teamid");
 
     mockMvc.perform(post("/doaddteam.shtml")
-        .sessionAttr(PERSON_SESSION_KEY, person)
-        .sessionAttr(USER_STATUS_SESSION_KEY, "member")
-        .sessionAttr(TOKENCHECK, dummyToken)
+        .requestAttr(PERSON_SESSION_KEY, person)
+        .requestAttr(USER_STATUS_SESSION_KEY, "member")
+        .session(session)
         .param("token", dummyToken)
         .param("teamDescription", "description")
         .param("teamName", ""))
       .andExpect(view().name("addteam"))
-      .andExpect(model().attributeHasFieldErrors("addTeamCommand", "teamName"));
+      .andExpect(model().attributeHasFieldErrors("addTeamCommand", "teamName"))
+      .andExpect(model().attribute(TOKENCHECK, not(dummyToken)));
   }
 
   @Test
   public void addTeamWithStem() throws Exception {
-    Team team = new Team("teamId", "teamName", "teamDescription");
     Team teamStem = new Team("stemId:members", "", "");
     Stem stem = new Stem("stemId", "stemName", "stemDescription");
 
     when(grouperTeamServiceMock.findStemsByMember(person.getId())).thenReturn(ImmutableList.of(stem));
-    when(grouperTeamServiceMock.findTeamById("teamId")).thenReturn(team);
     when(grouperTeamServiceMock.findTeamById("stemId:members")).thenReturn(teamStem);
     when(controllerUtil.isPersonMemberOfTeam(person, teamStem)).thenReturn(true);
 
-    when(grouperTeamServiceMock.addTeam("name", "name", "description", "stemId")).thenReturn("created");
+    when(grouperTeamServiceMock.createTeam(eq("name"), eq("name"), eq("description"), eq("stemId"), eq(false),
+      eq(person), isNull(Invitation.class))).thenReturn(new Team("created"));
 
     mockMvc.perform(post("/doaddteam.shtml")
-        .sessionAttr(PERSON_SESSION_KEY, person)
-        .sessionAttr(USER_STATUS_SESSION_KEY, "member")
-        .sessionAttr(TOKENCHECK, dummyToken)
+        .requestAttr(PERSON_SESSION_KEY, person)
+        .requestAttr(USER_STATUS_SESSION_KEY, "member")
+        .session(session)
         .param("token", dummyToken)
         .param("teamDescription", "description")
         .param("teamName", "name")
@@ -154,12 +180,13 @@ public class AddTeamControllerTest {
   @Test
   public void ampersandInTeamIdShouldGetUrlEscaped() throws Exception {
     when(environment.acceptsProfiles(Application.GROUPZY_PROFILE_NAME)).thenReturn(false);
-    when(grouperTeamServiceMock.addTeam("name", "name", "description", null)).thenReturn("Henk & Truus");
+    when(grouperTeamServiceMock.createTeam(eq("name"), eq("name"), eq("description"), isNull(String.class), eq(false),
+      eq(person), isNull(Invitation.class))).thenReturn(new Team("Henk & Truus"));
 
     mockMvc.perform(post("/doaddteam.shtml")
-        .sessionAttr(PERSON_SESSION_KEY, person)
-        .sessionAttr(USER_STATUS_SESSION_KEY, "member")
-        .sessionAttr(TOKENCHECK, dummyToken)
+        .requestAttr(PERSON_SESSION_KEY, person)
+        .requestAttr(USER_STATUS_SESSION_KEY, "member")
+        .session(session)
         .param("token", dummyToken)
         .param("teamDescription", "description")
         .param("teamName", "name"))
@@ -170,15 +197,15 @@ public class AddTeamControllerTest {
   @Test
   public void addTeamWithSecondAdminShouldSendAnEmailWithCorrectLocale() throws Exception {
     when(environment.acceptsProfiles(Application.GROUPZY_PROFILE_NAME)).thenReturn(false);
-    when(grouperTeamServiceMock.addTeam("name", "name", "description", null)).thenReturn("created");
-    when(grouperTeamServiceMock.findTeamById("created")).thenReturn(new Team("created"));
+    when(grouperTeamServiceMock.createTeam(eq("name"), eq("name"), eq("description"), isNull(String.class), eq(false),
+      eq(person), any(Invitation.class))).thenReturn(new Team("created"));
 
     when(messageSourceMock.getMessage(INVITE_SEND_INVITE_SUBJECT, new Object[] {"name"}, Locale.forLanguageTag("nl"))).thenReturn("subject");
 
     mockMvc.perform(post("/doaddteam.shtml")
-        .sessionAttr(PERSON_SESSION_KEY, person)
-        .sessionAttr(USER_STATUS_SESSION_KEY, "member")
-        .sessionAttr(TOKENCHECK, dummyToken)
+        .requestAttr(PERSON_SESSION_KEY, person)
+        .requestAttr(USER_STATUS_SESSION_KEY, "member")
+        .session(session)
         .param("token", dummyToken)
         .param("teamDescription", "description")
         .param("teamName", "name")
@@ -188,10 +215,18 @@ public class AddTeamControllerTest {
       .andExpect(view().name("redirect:detailteam.shtml?team=created"));
 
     ArgumentCaptor<Invitation> invitationCaptor = ArgumentCaptor.forClass(Invitation.class);
-    verify(teamInviteServiceMock).saveOrUpdate(invitationCaptor.capture());
+    verify(grouperTeamServiceMock).createTeam(eq("name"), eq("name"), eq("description"), isNull(String.class), eq(false),
+      eq(person), invitationCaptor.capture());
     verify(controllerUtil).sendInvitationMail(new Team("created"), invitationCaptor.getValue(), "subject", person);
 
     assertThat(invitationCaptor.getValue().getEmail(), is("henk@example.com"));
     assertThat(invitationCaptor.getValue().getLanguage(), is(Language.Dutch));
+    assertThat(invitationCaptor.getValue().getIntendedRole(), is(Role.Admin));
+  }
+
+  private String csrfToken() {
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.setSession(session);
+    return csrfTokenService.generateToken(request);
   }
 }
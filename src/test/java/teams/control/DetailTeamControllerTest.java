@@ -33,7 +33,6 @@ import static teams.control.DetailTeamController.MEMBER_PARAM;
 import static teams.control.DetailTeamController.PENDING_REQUESTS_PARAM;
 import static teams.control.DetailTeamController.ROLE_PARAM;
 import static teams.interceptor.LoginInterceptor.PERSON_SESSION_KEY;
-import static teams.util.TokenUtil.TOKENCHECK;
 
 import java.util.Locale;
 
@@ -47,9 +46,12 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.springframework.context.MessageSource;
 import org.springframework.core.env.Environment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpSession;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.web.servlet.LocaleResolver;
 
@@ -57,6 +59,7 @@ import teams.Application;
 import teams.domain.Invitation;
 import teams.domain.JoinTeamRequest;
 import teams.domain.Member;
+import teams.domain.MemberResultWrapper;
 import teams.domain.Person;
 import teams.domain.Role;
 import teams.domain.Team;
@@ -66,7 +69,7 @@ import teams.service.JoinTeamRequestService;
 import teams.service.TeamExternalGroupDao;
 import teams.service.TeamInviteService;
 import teams.util.ControllerUtil;
-import teams.util.TokenUtil;
+import teams.util.CsrfTokenService;
 
 @RunWith(MockitoJUnitRunner.class)
 public class DetailTeamControllerTest {
@@ -74,6 +77,11 @@ public class DetailTeamControllerTest {
   @InjectMocks
   private DetailTeamController subject;
 
+  @Spy
+  private CsrfTokenService csrfTokenService = new CsrfTokenService("secret", 3600);
+
+  private final MockHttpSession session = new MockHttpSession();
+
   @Mock
   private GrouperTeamService grouperTeamServiceMock;
   @Mock
@@ -110,17 +118,20 @@ public class DetailTeamControllerTest {
     JoinTeamRequest joinRequest = new JoinTeamRequest("id", "groupId", "email", "displayName");
 
     when(environmentMock.acceptsProfiles(Application.GROUPZY_PROFILE_NAME)).thenReturn(true);
-    when(grouperTeamServiceMock.findTeamById("teamId")).thenReturn(team);
+    when(grouperTeamServiceMock.findTeamSummaryById("teamId")).thenReturn(team);
     when(grouperTeamServiceMock.findAdmins(team)).thenReturn(ImmutableSet.of(member));
+    when(grouperTeamServiceMock.findMembers("teamId", ImmutableSet.of("id"))).thenReturn(ImmutableList.of(member));
+    when(grouperTeamServiceMock.findMembers("teamId", null, 0, 10)).thenReturn(new MemberResultWrapper(ImmutableList.of(member), 1, 0, 10));
     when(teamInviteServiceMock.findInvitationsForTeamExcludeAccepted(team)).thenReturn(ImmutableList.of(invitation));
     when(joinTeamRequestServiceMock.findPendingRequests("teamId")).thenReturn(ImmutableList.of(joinRequest));
     when(teamExternalGroupDaoMock.getByTeamIdentifier("teamId")).thenReturn(ImmutableList.of());
 
     mockMvc.perform(get("/detailteam.shtml")
         .param("team", "teamId")
-        .sessionAttr(PERSON_SESSION_KEY, person))
+        .requestAttr(PERSON_SESSION_KEY, person))
       .andExpect(view().name("detailteam"))
       .andExpect(model().attribute("team", is(team)))
+      .andExpect(model().attribute("members", contains(member)))
       .andExpect(model().attribute("onlyAdmin", is(true)))
       .andExpect(model().attribute(ROLE_PARAM, is(Role.Admin)))
       .andExpect(model().attribute(PENDING_REQUESTS_PARAM, contains(person)))
@@ -136,15 +147,17 @@ public class DetailTeamControllerTest {
     Invitation invitation = new Invitation("john@example.com", "teamId");
     JoinTeamRequest joinRequest = new JoinTeamRequest("id", "groupId", "email", "displayName");
 
-    when(grouperTeamServiceMock.findTeamById("teamId")).thenReturn(team);
+    when(grouperTeamServiceMock.findTeamSummaryById("teamId")).thenReturn(team);
     when(grouperTeamServiceMock.findAdmins(team)).thenReturn(ImmutableSet.of(member));
+    when(grouperTeamServiceMock.findMembers("teamId", ImmutableSet.of("id"))).thenReturn(ImmutableList.of(member));
+    when(grouperTeamServiceMock.findMembers("teamId", null, 0, 10)).thenReturn(new MemberResultWrapper(ImmutableList.of(member), 1, 0, 10));
     when(teamInviteServiceMock.findInvitationsForTeamExcludeAccepted(team)).thenReturn(ImmutableList.of(invitation));
     when(joinTeamRequestServiceMock.findPendingRequests("teamId")).thenReturn(ImmutableList.of(joinRequest));
     when(teamExternalGroupDaoMock.getByTeamIdentifier("teamId")).thenReturn(ImmutableList.of());
 
     mockMvc.perform(get("/detailteam.shtml")
         .param("team", "teamId")
-        .sessionAttr(PERSON_SESSION_KEY, person))
+        .requestAttr(PERSON_SESSION_KEY, person))
       .andExpect(view().name("detailteam"))
       .andExpect(model().attribute("team", is(team)))
       .andExpect(model().attribute("onlyAdmin", is(true)))
@@ -159,22 +172,47 @@ public class DetailTeamControllerTest {
     Member member = new Member(ImmutableSet.of(Role.Member), person);
     Team team = new Team("teamId", "Team 1", "team description", ImmutableList.of(member));
 
-    when(grouperTeamServiceMock.findTeamById("teamId")).thenReturn(team);
+    when(grouperTeamServiceMock.findTeamSummaryById("teamId")).thenReturn(team);
     when(grouperTeamServiceMock.findAdmins(team)).thenReturn(ImmutableSet.of(member));
+    when(grouperTeamServiceMock.findMembers("teamId", ImmutableSet.of("id"))).thenReturn(ImmutableList.of(member));
+    when(grouperTeamServiceMock.findMembers("teamId", null, 0, 10)).thenReturn(new MemberResultWrapper(ImmutableList.of(member), 1, 0, 10));
     when(teamInviteServiceMock.findInvitationsForTeamExcludeAccepted(team)).thenReturn(ImmutableList.of());
     when(messageSourceMock.getMessage(eq("IAmAMessage"), eq(new Object[] {}), any(Locale.class))).thenReturn("message");
 
     mockMvc.perform(get("/detailteam.shtml")
         .param("team", "teamId")
         .param("mes", "IAmAMessage")
-        .sessionAttr(PERSON_SESSION_KEY, person))
+        .requestAttr(PERSON_SESSION_KEY, person))
       .andExpect(view().name("detailteam"))
       .andExpect(model().attribute("message", is("IAmAMessage")));
     }
 
+  @Test
+  public void testDetailTeamMemberSearch() throws Exception {
+    Person person = new Person("id", "name", "email", "organization", "voot_role", "displayName");
+    Member member = new Member(ImmutableSet.of(Role.Member), person);
+    Team team = new Team("teamId", "Team 1", "team description", ImmutableList.of(), true, 25);
+
+    when(grouperTeamServiceMock.findTeamSummaryById("teamId")).thenReturn(team);
+    when(grouperTeamServiceMock.findAdmins(team)).thenReturn(ImmutableSet.of());
+    when(teamInviteServiceMock.findInvitationsForTeamExcludeAccepted(team)).thenReturn(ImmutableList.of());
+    when(grouperTeamServiceMock.findMembers("teamId", ImmutableSet.of("id"))).thenReturn(ImmutableList.of(member));
+    when(grouperTeamServiceMock.findMembers("teamId", "nam", 10, 10)).thenReturn(new MemberResultWrapper(ImmutableList.of(member), 11, 10, 10));
+
+    mockMvc.perform(get("/detailteam.shtml")
+        .param("team", "teamId")
+        .param("memberSearch", "nam")
+        .param("offset", "10")
+        .requestAttr(PERSON_SESSION_KEY, person))
+      .andExpect(view().name("detailteam"))
+      .andExpect(model().attribute("members", contains(member)))
+      .andExpect(model().attribute("memberQuery", is("nam")))
+      .andExpect(model().attribute(ROLE_PARAM, is(Role.Member)));
+  }
+
   @Test
   public void testLeaveTeamHappyFlow() throws Exception {
-    String dummyToken = TokenUtil.generateSessionToken();
+    String dummyToken = csrfToken();
     Person person = new Person("id", "name", "email", "organization", "voot_role", "displayName");
     Person otherAdminPerson = new Person("i", "n", "e", "o", "v", "d");
     Member member = new Member(ImmutableSet.of(Role.Admin), person);
@@ -187,8 +225,8 @@ public class DetailTeamControllerTest {
     mockMvc.perform(post("/doleaveteam.shtml")
         .param("token", dummyToken)
         .param("team", "teamId")
-        .sessionAttr(TOKENCHECK, dummyToken)
-        .sessionAttr(PERSON_SESSION_KEY, person))
+        .session(session)
+        .requestAttr(PERSON_SESSION_KEY, person))
       .andExpect(redirectedUrl("home.shtml?teams=my"));
 
     verify(grouperTeamServiceMock).deleteMember(team, "id");
@@ -196,7 +234,7 @@ public class DetailTeamControllerTest {
 
   @Test
   public void testLeaveTeam() throws Exception {
-    String dummyToken = TokenUtil.generateSessionToken();
+    String dummyToken = csrfToken();
     Person person = new Person("id", "name", "email", "organization", "voot_role", "displayName");
     Member member = new Member(ImmutableSet.of(Role.Admin), person);
     Team team = new Team("teamId", "Team 1", "team description", ImmutableList.of(member));
@@ -207,8 +245,8 @@ public class DetailTeamControllerTest {
     mockMvc.perform(post("/doleaveteam.shtml")
         .param("token", dummyToken)
         .param("team", "teamId")
-        .sessionAttr(TOKENCHECK, dummyToken)
-        .sessionAttr(PERSON_SESSION_KEY, person))
+        .session(session)
+        .requestAttr(PERSON_SESSION_KEY, person))
       .andExpect(redirectedUrl("detailteam.shtml?team=teamId&mes=error.AdminCannotLeaveTeam"));
 
     verify(grouperTeamServiceMock, never()).deleteMember(team, "id");
@@ -216,23 +254,23 @@ public class DetailTeamControllerTest {
 
   @Test
   public void testDeleteTeamHappyFlow() throws Exception {
-    String dummyToken = TokenUtil.generateSessionToken();
+    String dummyToken = csrfToken();
     Person person = new Person("id", "name", "email", "organization", "voot_role", "displayName");
     Member member = new Member(ImmutableSet.of(Role.Admin), person);
     Team team = new Team("teamId", "Team 1", "team description", ImmutableList.of(member));
     Invitation invitation = new Invitation("john@example.com", "teamId");
     TeamExternalGroup externalGroup= new TeamExternalGroup();
 
-    when(grouperTeamServiceMock.findTeamById("teamId")).thenReturn(team);
-    when(grouperTeamServiceMock.findMember(team, "id")).thenReturn(member);
+    when(grouperTeamServiceMock.findTeamSummaryById("teamId")).thenReturn(team);
+    when(grouperTeamServiceMock.hasRole("teamId", "id", Role.Admin)).thenReturn(true);
     when(teamInviteServiceMock.findAllInvitationsForTeam(team)).thenReturn(ImmutableList.of(invitation));
     when(teamExternalGroupDaoMock.getByTeamIdentifier("teamId")).thenReturn(ImmutableList.of(externalGroup));
 
     mockMvc.perform(post("/dodeleteteam.shtml")
         .param("token", dummyToken)
         .param("team", "teamId")
-        .sessionAttr(TOKENCHECK, dummyToken)
-        .sessionAttr(PERSON_SESSION_KEY, person))
+        .session(session)
+        .requestAttr(PERSON_SESSION_KEY, person))
       .andExpect(redirectedUrl("home.shtml?teams=my"));
 
     verify(teamInviteServiceMock).delete(invitation);
@@ -242,19 +280,19 @@ public class DetailTeamControllerTest {
 
   @Test
   public void testDeleteTeam() throws Exception {
-    String dummyToken = TokenUtil.generateSessionToken();
+    String dummyToken = csrfToken();
     Person person = new Person("id", "name", "email", "organization", "voot_role", "displayName");
     Member member = new Member(ImmutableSet.of(Role.Member), person);
     Team team = new Team("teamId", "Team 1", "team description", ImmutableList.of(member));
 
-    when(grouperTeamServiceMock.findTeamById("teamId")).thenReturn(team);
-    when(grouperTeamServiceMock.findMember(team, "id")).thenReturn(member);
+    when(grouperTeamServiceMock.findTeamSummaryById("teamId")).thenReturn(team);
+    when(grouperTeamServiceMock.hasRole("teamId", "id", Role.Admin)).thenReturn(false);
 
     mockMvc.perform(post("/dodeleteteam.shtml")
         .param("token", dummyToken)
         .param("team", "teamId")
-        .sessionAttr(TOKENCHECK, dummyToken)
-        .sessionAttr(PERSON_SESSION_KEY, person))
+        .session(session)
+        .requestAttr(PERSON_SESSION_KEY, person))
       .andExpect(redirectedUrl("detailteam.shtml?team=teamId"));
 
     verify(grouperTeamServiceMock, never()).deleteTeam("teamId");
@@ -262,7 +300,7 @@ public class DetailTeamControllerTest {
 
   @Test
   public void testDeleteMemberHappyFlow() throws Exception {
-    String dummyToken = TokenUtil.generateSessionToken();
+    String dummyToken = csrfToken();
     Person person = new Person("id", "name", "email", "organization", "voot_role", "displayName");
     Member member = new Member(ImmutableSet.of(Role.Admin), person);
     Person person2 = new Person("id", "name", "email", "organization", "voot_role", "displayName");
@@ -276,8 +314,8 @@ public class DetailTeamControllerTest {
         .param("token", dummyToken)
         .param("team", "teamId")
         .param(MEMBER_PARAM, "memberId")
-        .sessionAttr(TOKENCHECK, dummyToken)
-        .sessionAttr(PERSON_SESSION_KEY, person))
+        .session(session)
+        .requestAttr(PERSON_SESSION_KEY, person))
       .andExpect(redirectedUrl("detailteam.shtml?team=teamId"));
 
     verify(grouperTeamServiceMock).deleteMember(team, "memberId");
@@ -285,7 +323,7 @@ public class DetailTeamControllerTest {
 
   @Test
   public void aMemberShouldNotBeAbleToDeleteAMember() throws Exception {
-    String dummyToken = TokenUtil.generateSessionToken();
+    String dummyToken = csrfToken();
     Person person = new Person("id", "name", "email", "organization", "voot_role", "displayName");
     Member member = new Member(ImmutableSet.of(Role.Member), person);
     Person person2 = new Person("id", "name", "email", "organization", "voot_role", "displayName");
@@ -299,8 +337,8 @@ public class DetailTeamControllerTest {
         .param("token", dummyToken)
         .param("team", "teamId")
         .param(MEMBER_PARAM, "memberId")
-        .sessionAttr(TOKENCHECK, dummyToken)
-        .sessionAttr(PERSON_SESSION_KEY, person))
+        .session(session)
+        .requestAttr(PERSON_SESSION_KEY, person))
       .andExpect(redirectedUrl("detailteam.shtml?team=teamId&mes=error.NotAuthorizedToDeleteMember"));
 
     verify(grouperTeamServiceMock, never()).deleteMember(team, "memberId");
@@ -308,7 +346,7 @@ public class DetailTeamControllerTest {
 
   @Test
   public void aManagerCanNotDeleteAnAdmin() throws Exception {
-    String dummyToken = TokenUtil.generateSessionToken();
+    String dummyToken = csrfToken();
     Person person = new Person("id", "name", "email", "organization", "voot_role", "displayName");
     Member member = new Member(ImmutableSet.of(Role.Manager), person);
     Person person2 = new Person("id", "name", "email", "organization", "voot_role", "displayName");
@@ -322,8 +360,8 @@ public class DetailTeamControllerTest {
         .param("token", dummyToken)
         .param("team", "teamId")
         .param(MEMBER_PARAM, "memberId")
-        .sessionAttr(TOKENCHECK, dummyToken)
-        .sessionAttr(PERSON_SESSION_KEY, person))
+        .session(session)
+        .requestAttr(PERSON_SESSION_KEY, person))
       .andExpect(redirectedUrl("detailteam.shtml?team=teamId&mes=error.NotAuthorizedToDeleteMember"));
 
     verify(grouperTeamServiceMock, never()).deleteMember(team, "memberId");
@@ -331,7 +369,7 @@ public class DetailTeamControllerTest {
 
   @Test
   public void testAddRoleHappyFlow() throws Exception {
-    String dummyToken = TokenUtil.generateSessionToken();
+    String dummyToken = csrfToken();
     Person person = new Person("id", "name", "email", "organization", "voot_role", "displayName");
     Person personToAddRole = new Person("personId", "name", "email", "organization", "voot_role", "displayName");
     Member memberToAddRole = new Member(ImmutableSet.of(Role.Member), personToAddRole);
@@ -346,14 +384,14 @@ public class DetailTeamControllerTest {
         .param("memberId", "personId")
         .param("roleId", Role.Manager.name())
         .param("doAction", "add")
-        .sessionAttr(TOKENCHECK, dummyToken)
-        .sessionAttr(PERSON_SESSION_KEY, person))
+        .session(session)
+        .requestAttr(PERSON_SESSION_KEY, person))
       .andExpect(redirectedUrl("detailteam.shtml?team=teamId&mes=role.added&offset=0"));
   }
 
   @Test
   public void testAddRoleNotAuthorized() throws Exception {
-    String dummyToken = TokenUtil.generateSessionToken();
+    String dummyToken = csrfToken();
     Person person = new Person("id", "name", "email", "organization", "voot_role", "displayName");
     Person personToAddRole = new Person("personId", "name", "email", "organization", "voot_role", "displayName");
     Member memberToAddRole = new Member(ImmutableSet.of(Role.Member), personToAddRole);
@@ -368,14 +406,14 @@ public class DetailTeamControllerTest {
         .param("memberId", "personId")
         .param("roleId", Role.Manager.name())
         .param("doAction", "add")
-        .sessionAttr(TOKENCHECK, dummyToken)
-        .sessionAttr(PERSON_SESSION_KEY, person))
+        .session(session)
+        .requestAttr(PERSON_SESSION_KEY, person))
       .andExpect(redirectedUrl("detailteam.shtml?team=teamId&mes=no.role.added&offset=0"));
   }
 
   @Test
   public void testRemoveRoleHappyFlow() throws Exception {
-    String dummyToken = TokenUtil.generateSessionToken();
+    String dummyToken = csrfToken();
     Person person = new Person("id", "name", "email", "organization", "voot_role", "displayName");
     Member member = new Member(ImmutableSet.of(Role.Manager), person);
     Team team = new Team("teamId", "Team 1", "team description", ImmutableList.of(member));
@@ -389,14 +427,14 @@ public class DetailTeamControllerTest {
         .param("memberId", "personId")
         .param("roleId", "1")
         .param("doAction", "remove")
-        .sessionAttr(TOKENCHECK, dummyToken)
-        .sessionAttr(PERSON_SESSION_KEY, person))
+        .session(session)
+        .requestAttr(PERSON_SESSION_KEY, person))
       .andExpect(redirectedUrl("detailteam.shtml?team=teamId&mes=role.removed&offset=0"));
   }
 
   @Test
   public void testRemoveRoleOneAdmin() throws Exception {
-    String dummyToken = TokenUtil.generateSessionToken();
+    String dummyToken = csrfToken();
     Person person = new Person("id", "name", "email", "organization", "voot_role", "displayName");
     Member member = new Member(ImmutableSet.of(Role.Admin), person);
     Team team = new Team("teamId", "Team 1", "team description", ImmutableList.of(member));
@@ -411,27 +449,27 @@ public class DetailTeamControllerTest {
         .param("memberId", "personId")
         .param("roleId", "0")
         .param("doAction", "remove")
-        .sessionAttr(TOKENCHECK, dummyToken)
-        .sessionAttr(PERSON_SESSION_KEY, person))
+        .session(session)
+        .requestAttr(PERSON_SESSION_KEY, person))
       .andExpect(redirectedUrl("detailteam.shtml?team=teamId&mes=no.role.added.admin.status&offset=0"));
   }
 
   @Test
   public void testRemoveRoleException() throws Exception {
-    String dummyToken = TokenUtil.generateSessionToken();
+    String dummyToken = csrfToken();
     Person person = new Person("id", "name", "email", "organization", "voot_role", "displayName");
 
     mockMvc.perform(post("/doaddremoverole.shtml")
         .param("token", dummyToken)
         .param("doAction", "remove")
-        .sessionAttr(TOKENCHECK, dummyToken)
-        .sessionAttr(PERSON_SESSION_KEY, person))
+        .session(session)
+        .requestAttr(PERSON_SESSION_KEY, person))
       .andExpect(redirectedUrl("home.shtml?teams=my"));
   }
 
   @Test
   public void removeJoinRequestWithEmail() throws Exception {
-    String dummyToken = TokenUtil.generateSessionToken();
+    String dummyToken = csrfToken();
     Person person = new Person("id", "name", "email", "organization", "voot_role", "displayName");
     Member member = new Member(ImmutableSet.of(Role.Admin), person);
     Team team = new Team("teamId", "Team 1", "team description", ImmutableList.of(member));
@@ -446,8 +484,8 @@ public class DetailTeamControllerTest {
         .param("token", dummyToken)
         .param("team", "teamId")
         .param(MEMBER_PARAM, "member")
-        .sessionAttr(TOKENCHECK, dummyToken)
-        .sessionAttr(PERSON_SESSION_KEY, person))
+        .session(session)
+        .requestAttr(PERSON_SESSION_KEY, person))
       .andExpect(redirectedUrl("detailteam.shtml?team=teamId"));
 
     verify(controllerUtilMock).sendDeclineMail(new Person("member", "", "email", "", "", ""), team, Locale.ENGLISH);
@@ -455,7 +493,7 @@ public class DetailTeamControllerTest {
 
   @Test
   public void removeJoinRequestWithNoEmail() throws Exception {
-    String dummyToken = TokenUtil.generateSessionToken();
+    String dummyToken = csrfToken();
     Person person = new Person("id", "name", "email", "organization", "voot_role", "displayName");
     Member member = new Member(ImmutableSet.of(Role.Admin), person);
     Team team = new Team("teamId", "Team 1", "team description", ImmutableList.of(member));
@@ -470,10 +508,16 @@ public class DetailTeamControllerTest {
         .param("token", dummyToken)
         .param("team", "teamId")
         .param(MEMBER_PARAM, "member")
-        .sessionAttr(TOKENCHECK, dummyToken)
-        .sessionAttr(PERSON_SESSION_KEY, person))
+        .session(session)
+        .requestAttr(PERSON_SESSION_KEY, person))
       .andExpect(redirectedUrl("detailteam.shtml?team=teamId"));
 
     verify(controllerUtilMock, never()).sendDeclineMail(person, team, Locale.ENGLISH);
   }
+
+  private String csrfToken() {
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.setSession(session);
+    return csrfTokenService.generateToken(request);
+  }
 }
@@ -27,14 +27,13 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.internal.stubbing.answers.Returns;
 import org.springframework.mock.web.MockHttpServletRequest;
-import org.springframework.web.bind.support.SimpleSessionStatus;
 import org.springframework.web.servlet.view.RedirectView;
 
 import teams.domain.Member;
 import teams.domain.Team;
 import teams.service.GrouperTeamService;
 import teams.util.ControllerUtil;
-import teams.util.TokenUtil;
+import teams.util.CsrfTokenService;
 
 /**
  * @author steinwelberg
@@ -47,7 +46,8 @@ public class EditTeamControllerTest extends AbstractControllerTest {
   private Member mockMember;
 
   @Before
-  public void prepareData() {
+  public void prepareData() throws Exception {
+    autoWireMock(editTeamController, csrfTokenService, CsrfTokenService.class);
     mockTeam = getTeam1();
     mockAdminMember = getAdministrativeMember();
     mockMember = getMember();
@@ -86,7 +86,7 @@ public class EditTeamControllerTest extends AbstractControllerTest {
   public void testEditTeamHappyFlow() throws Exception {
 
     MockHttpServletRequest request = getRequest();
-    String token = TokenUtil.generateSessionToken();
+    String token = csrfTokenService.generateToken(request);
     // Add the teamId, team name, description & token
     request.addParameter("teamName", "Another name");
     request.addParameter("team", "team-1");
@@ -101,7 +101,7 @@ public class EditTeamControllerTest extends AbstractControllerTest {
     autoWireMock(editTeamController, new Returns(true), ControllerUtil.class);
     autoWireRemainingResources(editTeamController);
 
-    RedirectView result = editTeamController.editTeam(getModelMap(), request, token, token, new SimpleSessionStatus());
+    RedirectView result = editTeamController.editTeam(getModelMap(), request, token);
 
     assertEquals("detailteam.shtml?team=team-1", result.getUrl());
 
@@ -110,7 +110,7 @@ public class EditTeamControllerTest extends AbstractControllerTest {
   @Test(expected = RuntimeException.class)
   public void testEditTeamNoPrivileges() throws Exception {
     MockHttpServletRequest request = getRequest();
-    String token = TokenUtil.generateSessionToken();
+    String token = csrfTokenService.generateToken(request);
     // Add the teamId, team name, description & token
     request.addParameter("teamName", "Team 1");
     request.addParameter("team", "team-1");
@@ -125,13 +125,13 @@ public class EditTeamControllerTest extends AbstractControllerTest {
     autoWireMock(editTeamController, new Returns(false), ControllerUtil.class);
     autoWireRemainingResources(editTeamController);
 
-    editTeamController.editTeam(getModelMap(), request, token, token, new SimpleSessionStatus());
+    editTeamController.editTeam(getModelMap(), request, token);
   }
 
   @Test(expected = RuntimeException.class)
   public void testEditTeamNoMember() throws Exception {
     MockHttpServletRequest request = getRequest();
-    String token = TokenUtil.generateSessionToken();
+    String token = csrfTokenService.generateToken(request);
     // Add the teamId, team name, description & token
     request.addParameter("teamName", "Team 1");
     request.addParameter("team", "team-1");
@@ -146,13 +146,13 @@ public class EditTeamControllerTest extends AbstractControllerTest {
     autoWireMock(editTeamController, new Returns(true), ControllerUtil.class);
     autoWireRemainingResources(editTeamController);
 
-    editTeamController.editTeam(getModelMap(), request, token, token, new SimpleSessionStatus());
+    editTeamController.editTeam(getModelMap(), request, token);
   }
 
   @Test(expected = SecurityException.class)
   public void testEditTeamWrongToken() throws Exception {
     MockHttpServletRequest request = getRequest();
-    String token = TokenUtil.generateSessionToken();
+    String token = csrfTokenService.generateToken(request);
 
     // do NOT add the team id, but do add the team name, team description & token
     request.addParameter("team", "Team 1");
@@ -163,7 +163,7 @@ public class EditTeamControllerTest extends AbstractControllerTest {
     autoWireMock(editTeamController, new Returns(true), ControllerUtil.class);
     autoWireRemainingResources(editTeamController);
 
-    editTeamController.editTeam(getModelMap(), request, token, "asfjkhsdjkfhsd", new SimpleSessionStatus());
+    editTeamController.editTeam(getModelMap(), request, "asfjkhsdjkfhsd");
   }
 
 }
@@ -47,7 +47,7 @@ public class ExternalGroupControllerTest {
 
     mockMvc.perform(get("/externalgroups/groupdetail.shtml")
         .param("groupId", "groupId")
-        .sessionAttr(LoginInterceptor.EXTERNAL_GROUPS_SESSION_KEY, ImmutableList.of(externalGroup)))
+        .requestAttr(LoginInterceptor.EXTERNAL_GROUPS_SESSION_KEY, ImmutableList.of(externalGroup)))
       .andExpect(view().name("external-groupdetail"))
       .andExpect(model().attribute("groupProvider", is(externalGroupProvider)))
       .andExpect(model().attribute("externalGroup", is(externalGroup)));
@@ -63,7 +63,7 @@ public class ExternalGroupControllerTest {
 
     mockMvc.perform(get("/externalgroups/groupdetail.shtml")
         .param("groupId", "groupId")
-        .sessionAttr(PERSON_SESSION_KEY, person))
+        .requestAttr(PERSON_SESSION_KEY, person))
       .andExpect(view().name("external-groupdetail"))
       .andExpect(model().attribute("groupProvider", is(externalGroupProvider)))
       .andExpect(model().attribute("externalGroup", is(externalGroup)));
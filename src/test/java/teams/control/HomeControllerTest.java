@@ -81,7 +81,7 @@ public class HomeControllerTest {
 
     mockMvc.perform(get("/")
         .param("team", "teamId")
-        .sessionAttr(PERSON_SESSION_KEY, person))
+        .requestAttr(PERSON_SESSION_KEY, person))
       .andExpect(view().name("home"))
       .andExpect(model().attribute("groupProviders", contains(externalGroupProvider)));
   }
@@ -106,7 +106,7 @@ public class HomeControllerTest {
         .param("team", "teamId")
         .param("groupProviderId", "externalGroupProviderId")
         .param("offset", "" + offset)
-        .sessionAttr(PERSON_SESSION_KEY, person))
+        .requestAttr(PERSON_SESSION_KEY, person))
       .andExpect(view().name("home"))
       .andExpect(model().attribute("pager", is(new Pager(11, offset, 10))))
       .andExpect(model().attribute("externalGroups", hasSize(10)));
@@ -132,7 +132,7 @@ public class HomeControllerTest {
         .param("team", "teamId")
         .param("groupProviderId", "externalGroupProviderId")
         .param("offset", "" + offset)
-        .sessionAttr(PERSON_SESSION_KEY, person))
+        .requestAttr(PERSON_SESSION_KEY, person))
       .andExpect(view().name("home"))
       .andExpect(model().attribute("pager", is(new Pager(15, offset, 10))))
       .andExpect(model().attribute("externalGroups", hasSize(5)));
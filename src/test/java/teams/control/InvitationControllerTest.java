@@ -39,7 +39,7 @@ import teams.domain.Role;
 import teams.domain.Team;
 import teams.service.TeamInviteService;
 import teams.util.ControllerUtil;
-import teams.util.TokenUtil;
+import teams.util.CsrfTokenService;
 
 /**
  * Test for {@link InvitationController}
@@ -63,7 +63,7 @@ public class InvitationControllerTest extends AbstractControllerTest {
     String invitationHash = invitation.getInvitationHash();
 
     getRequest().setParameter("id", invitationHash);
-    getRequest().getSession().setAttribute(PERSON_SESSION_KEY, person);
+    getRequest().setAttribute(PERSON_SESSION_KEY, person);
 
     Team mockTeam = mock(Team.class);
     when(mockTeam.getId()).thenReturn("team-1");
@@ -78,6 +78,7 @@ public class InvitationControllerTest extends AbstractControllerTest {
     when(controllerUtil.getTeamById("team-1")).thenReturn(mockTeam);
 
     autoWireMock(controller, controllerUtil, ControllerUtil.class);
+    autoWireMock(controller, csrfTokenService, CsrfTokenService.class);
     autoWireRemainingResources(controller);
   }
 
@@ -123,7 +124,7 @@ public class InvitationControllerTest extends AbstractControllerTest {
     Person fromSession = getPersonFromSession();
     Person person = new Person(fromSession.getId(),fromSession.getName(),fromSession.getEmail(),fromSession.getSchacHomeOrganization(),"guest", fromSession.getDisplayName());
 
-    getRequest().getSession().setAttribute(PERSON_SESSION_KEY, person);
+    getRequest().setAttribute(PERSON_SESSION_KEY, person);
 
     invitation.setIntendedRole(Role.Admin);
 
@@ -149,9 +150,9 @@ public class InvitationControllerTest extends AbstractControllerTest {
     when(controllerUtil.getTeamById(team.getId())).thenReturn(team);
     when(controllerUtil.hasUserAdministrativePrivileges(getPersonFromSession(), team)).thenReturn(true);
 
-    String token = TokenUtil.generateSessionToken();
+    String token = csrfTokenService.generateToken(getRequest());
 
-    RedirectView view = controller.deleteInvitation(getRequest(), token, token, invitation.getInvitationHash(), new SimpleSessionStatus(), getModelMap());
+    RedirectView view = controller.deleteInvitation(getRequest(), token, invitation.getInvitationHash(), new SimpleSessionStatus(), getModelMap());
 
     String redirectUrl = "detailteam.shtml?team=team-1";
 
@@ -162,8 +163,8 @@ public class InvitationControllerTest extends AbstractControllerTest {
   public void testCannotDeleteWhenNoAdminPrivileges() throws Exception {
     when(controllerUtil.hasUserAdministrativePrivileges(getPersonFromSession(), team)).thenReturn(false);
 
-    String token = TokenUtil.generateSessionToken();
-    controller.deleteInvitation(getRequest(), token, token, invitation.getInvitationHash(), new SimpleSessionStatus(), getModelMap());
+    String token = csrfTokenService.generateToken(getRequest());
+    controller.deleteInvitation(getRequest(), token, invitation.getInvitationHash(), new SimpleSessionStatus(), getModelMap());
   }
 
   @Test
@@ -176,7 +177,7 @@ public class InvitationControllerTest extends AbstractControllerTest {
 
 
   private Person getPersonFromSession() {
-    return (Person) getRequest().getSession().getAttribute(PERSON_SESSION_KEY);
+    return (Person) getRequest().getAttribute(PERSON_SESSION_KEY);
   }
 
 }
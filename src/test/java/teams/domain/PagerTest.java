@@ -17,6 +17,7 @@
 package teams.domain;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 
 import java.util.ArrayList;
@@ -133,5 +134,17 @@ public class PagerTest {
     assertEquals(new Page(10, 90, true), visiblePages.get(4));
   }
 
+  @Test
+  public void testNextPageCarriesCursor() {
+    String cursor = new TeamCursor("riders", "nl:surfnet:diensten:riders").encode();
+    Pager pager = new Pager(15, 0, PAGESIZE, cursor);
+    assertEquals(new Page(2, 10, false, cursor), pager.getNextPage());
+    assertNull(pager.getLastPage().getAfter());
+
+    TeamCursor decoded = TeamCursor.decode(pager.getNextPage().getAfter()).get();
+    assertEquals("riders", decoded.getName());
+    assertEquals("nl:surfnet:diensten:riders", decoded.getUrn());
+    assertFalse(TeamCursor.decode("not a cursor").isPresent());
+  }
 
 }
@@ -1,6 +1,8 @@
 package teams.domain;
 
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 
@@ -26,4 +28,22 @@ public class TeamTest {
 
     assertThat(team.getMembers(), contains(member3));
   }
+
+  @Test
+  public void shouldLookUpMembersByIdAndRole() {
+    Member admin = new Member(ImmutableSet.of(Role.Admin, Role.Manager, Role.Member), "name", "id1", "email");
+    Member member = new Member(ImmutableSet.of(Role.Member), "name", "id2", "email");
+
+    Team team = new Team("id", "name", "description", Arrays.asList(admin, member));
+
+    assertThat(team.getMember("id2").get(), is(member));
+    assertThat(team.getMember("id3").isPresent(), is(false));
+    assertThat(team.getMembersWithRole(Role.Admin), contains(admin));
+    assertThat(team.getMembersWithRole(Role.Member), containsInAnyOrder(admin, member));
+
+    team.removeMembers(admin);
+
+    assertThat(team.getMember("id1").isPresent(), is(false));
+    assertThat(team.getMembersWithRole(Role.Admin), empty());
+  }
 }
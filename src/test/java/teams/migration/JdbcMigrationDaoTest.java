@@ -0,0 +1,66 @@
+package teams.migration;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.jdbc.SqlConfig;
+import teams.AbstractApplicationTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.context.jdbc.SqlConfig.ErrorMode.FAIL_ON_ERROR;
+import static org.springframework.test.context.jdbc.SqlConfig.TransactionMode.ISOLATED;
+
+@Sql(scripts = {"classpath:sql/clear.sql", "classpath:sql/seed.sql", "classpath:sql/grouper.sql"},
+  config = @SqlConfig(errorMode = FAIL_ON_ERROR, transactionMode = ISOLATED))
+public class JdbcMigrationDaoTest extends AbstractApplicationTest {
+
+  @Autowired
+  private JdbcMigrationDao migrationDao;
+
+  @Test
+  public void findAllTeamsAndMembershipsInChunks() throws Exception {
+    List<List<Team>> chunks = new ArrayList<>();
+    migrationDao.findAllTeamsAndMemberships(2, chunks::add);
+
+    assertEquals(asList(
+      asList("nl:surfnet:diensten:alpha", "nl:surfnet:diensten:beta"),
+      asList("nl:surfnet:diensten:gamma")),
+      chunks.stream().map(chunk -> chunk.stream().map(Team::getUrn).collect(toList())).collect(toList()));
+  }
+
+  @Test
+  public void findAllTeamsAndMemberships() throws Exception {
+    List<Team> teams = new ArrayList<>();
+    migrationDao.findAllTeamsAndMemberships(10, teams::addAll);
+
+    assertEquals(3, teams.size());
+
+    Team alpha = teams.get(0);
+    assertEquals("alpha", alpha.getName());
+    assertEquals("we are alpha", alpha.getDescription());
+    assertTrue(alpha.isViewable());
+    Map<String, Role> alphaRoles = roles(alpha);
+    assertEquals(2, alphaRoles.size());
+    assertEquals(Role.ADMIN, alphaRoles.get("urn:collab:person:example.org:john"));
+    assertEquals(Role.MEMBER, alphaRoles.get("urn:collab:person:example.org:mary"));
+
+    Team beta = teams.get(1);
+    assertFalse(beta.isViewable());
+    Map<String, Role> betaRoles = roles(beta);
+    assertEquals(1, betaRoles.size());
+    assertEquals(Role.MANAGER, betaRoles.get("urn:collab:person:example.org:mary"));
+  }
+
+  private Map<String, Role> roles(Team team) {
+    return team.getMemberships().stream().collect(toMap(Membership::getUrnPerson, Membership::getRole));
+  }
+}
@@ -0,0 +1,134 @@
+package teams.migration;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.jdbc.SqlConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import teams.AbstractApplicationTest;
+import teams.provision.UserDetailsManager;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.context.jdbc.SqlConfig.ErrorMode.FAIL_ON_ERROR;
+import static org.springframework.test.context.jdbc.SqlConfig.TransactionMode.ISOLATED;
+
+/*
+ * Not transactional, as the migration commits every chunk in its own transaction
+ */
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Sql(scripts = {"classpath:sql/clear.sql", "classpath:sql/seed.sql", "classpath:sql/grouper.sql"},
+  config = @SqlConfig(errorMode = FAIL_ON_ERROR, transactionMode = ISOLATED))
+public class MigrationServiceTest extends AbstractApplicationTest {
+
+  private static final String TEAMS = "('nl:surfnet:diensten:alpha', 'nl:surfnet:diensten:beta', 'nl:surfnet:diensten:gamma')";
+
+  @Autowired
+  private JdbcMigrationDao migrationDao;
+
+  @Autowired
+  @Qualifier("teamsDataSource")
+  private DataSource teamsDataSource;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @Autowired
+  @Qualifier("teamsJdbcTemplate")
+  private JdbcTemplate jdbcTemplate;
+
+  private UserDetailsManager userDetailsManager = mock(UserDetailsManager.class);
+
+  private MigrationService subject;
+
+  private final Map<String, Person> details = Collections.singletonMap("urn:collab:person:example.org:john",
+    new Person("urn:collab:person:example.org:john", "John Doe", "john@example.org", false, Instant.now()));
+
+  @Before
+  public void before() throws Exception {
+    super.before();
+    subject = new MigrationService(migrationDao, userDetailsManager, entityCache, "secret", 2, teamsDataSource,
+      transactionManager);
+    when(userDetailsManager.findPersonsById(anyCollectionOf(String.class))).thenReturn(details);
+  }
+
+  @Test
+  public void migrate() throws Exception {
+    Map<String, Object> report = migrate(false);
+
+    assertEquals(3, report.get("teams"));
+    assertEquals(3, report.get("persons"));
+    assertEquals(5, report.get("memberships"));
+    assertMigrated();
+
+    assertEquals("ADMIN", jdbcTemplate.queryForObject("SELECT role FROM memberships WHERE urn_team = ? AND urn_person = ?",
+      String.class, "nl:surfnet:diensten:alpha", "urn:collab:person:example.org:john"));
+    assertEquals(Integer.valueOf(2), jdbcTemplate.queryForObject("SELECT member_count FROM teams WHERE urn = ?",
+      Integer.class, "nl:surfnet:diensten:alpha"));
+    assertEquals("John Doe", jdbcTemplate.queryForObject("SELECT name FROM persons WHERE urn = ?",
+      String.class, "urn:collab:person:example.org:john"));
+    assertEquals(MigrationService.UNKNOWN, jdbcTemplate.queryForObject("SELECT name FROM persons WHERE urn = ?",
+      String.class, "urn:collab:person:example.org:mary"));
+  }
+
+  @Test
+  public void resumeAfterFailedChunk() throws Exception {
+    when(userDetailsManager.findPersonsById(anyCollectionOf(String.class)))
+      .thenReturn(details)
+      .thenThrow(new IllegalStateException("LDAP is down"));
+    try {
+      migrate(false);
+      fail();
+    } catch (IllegalStateException e) {
+      //the first chunk is committed, the second one is not
+      assertEquals(2, count("SELECT count(*) FROM teams WHERE urn IN " + TEAMS));
+    }
+
+    when(userDetailsManager.findPersonsById(anyCollectionOf(String.class))).thenReturn(details);
+    Map<String, Object> report = migrate(true);
+
+    assertEquals(1, report.get("teams"));
+    assertEquals(1, report.get("persons"));
+    assertEquals(2, report.get("memberships"));
+    assertMigrated();
+  }
+
+  @Test
+  public void migrateTwice() throws Exception {
+    migrate(false);
+    migrate(false);
+    assertMigrated();
+
+    Map<String, Object> report = migrate(true);
+    assertEquals(0, report.get("teams"));
+    assertMigrated();
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<String, Object> migrate(boolean resume) {
+    return (Map<String, Object>) subject.migrate("secret", resume).getBody();
+  }
+
+  private void assertMigrated() {
+    assertEquals(3, count("SELECT count(*) FROM teams WHERE urn IN " + TEAMS));
+    assertEquals(3, count("SELECT count(*) FROM persons WHERE urn LIKE 'urn:collab:person:example.org:%'"));
+    assertEquals(5, count("SELECT count(*) FROM memberships WHERE urn_team IN " + TEAMS));
+  }
+
+  private int count(String sql) {
+    return jdbcTemplate.queryForObject(sql, Integer.class);
+  }
+}
@@ -0,0 +1,94 @@
+package teams.migration;
+
+import org.hibernate.Session;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import teams.AbstractApplicationTest;
+import teams.service.GrouperTeamService;
+import teams.service.impl.TeamSearchIndex;
+
+import javax.persistence.EntityManager;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TeamServiceTest extends AbstractApplicationTest {
+
+  private static final String TEAM = "nl:surfnet:diensten:giants";
+
+  @Autowired
+  private GrouperTeamService teamService;
+
+  @Autowired
+  private EntityManager entityManager;
+
+  @Autowired
+  private TeamSearchIndex teamSearchIndex;
+
+  @Autowired
+  @Qualifier("teamsJdbcTemplate")
+  private JdbcTemplate jdbcTemplate;
+
+  @Test
+  public void updateTeamKeepsConcurrentMembershipCount() throws Exception {
+    //the team is loaded before a member is added elsewhere, like a stale copy from the entity cache
+    Team team = teamRepository.findByUrn(TEAM).get();
+    teamRepository.updateMembershipCount(team.getId(), 1);
+
+    teamService.updateTeam(TEAM, "giants", "changed", null);
+    entityManager.flush();
+
+    assertEquals(5, memberCount());
+  }
+
+  @Test
+  public void findTeamByIdReadsTheMembersOnce() throws Exception {
+    entityManager.clear();
+
+    teams.domain.Team team = teamService.findTeamById(TEAM);
+
+    assertEquals(4, team.getMembers().size());
+    //nothing is loaded as entity, so the memberships aren't read a second time through the team
+    assertEquals(0, entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+  }
+
+  @Test
+  public void updateTeamDoesNotWriteBackACachedTeam() throws Exception {
+    teamRepository.findByUrn(TEAM);
+    entityManager.clear();
+    //made private on another node, the second-level cache of this node still has the team as viewable
+    jdbcTemplate.update("UPDATE teams SET viewable = 0 WHERE urn = ?", TEAM);
+
+    teamService.updateTeam(TEAM, "giants", "changed", null);
+    entityManager.flush();
+
+    assertFalse(jdbcTemplate.queryForObject("SELECT viewable FROM teams WHERE urn = ?", Boolean.class, TEAM));
+  }
+
+  @Test
+  public void findPublicTeamsChecksTheHitsAgainstTheDatabase() throws Exception {
+    teamSearchIndex.rebuild();
+    //made private on another node, the index of this node still has the team as viewable
+    jdbcTemplate.update("UPDATE teams SET viewable = 0 WHERE urn = ?", TEAM);
+
+    assertTrue(teamService.findPublicTeams("urn:collab:person:surfnet.nl:rdoe", "giants").isEmpty());
+    assertEquals(1, teamService.findPublicTeams("urn:collab:person:surfnet.nl:jdoe", "giants").size());
+  }
+
+  @Test
+  public void indexChangesWaitForTheCommit() throws Exception {
+    teamSearchIndex.rebuild();
+
+    teamService.updateTeam(TEAM, "titans", "we are titans", null);
+
+    assertTrue(teamSearchIndex.search("titans", Collections::emptySet).isEmpty());
+  }
+
+  private int memberCount() {
+    return jdbcTemplate.queryForObject("SELECT member_count FROM teams WHERE urn = ?", Integer.class, TEAM);
+  }
+}
@@ -4,12 +4,21 @@ import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.springframework.ldap.core.AttributesMapper;
+import org.springframework.ldap.core.ContextExecutor;
 import org.springframework.ldap.core.LdapOperations;
 import teams.domain.Person;
 
+import javax.naming.NamingEnumeration;
 import javax.naming.directory.Attributes;
+import javax.naming.directory.BasicAttributes;
+import javax.naming.directory.SearchControls;
+import javax.naming.directory.SearchResult;
+import javax.naming.ldap.LdapContext;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
@@ -17,7 +26,11 @@ import static org.junit.Assert.*;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyObject;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.contains;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class LdapUserDetailsManagerTest {
@@ -28,7 +41,71 @@ public class LdapUserDetailsManagerTest {
   @Before
   public void before() throws Exception {
     this.ldapOperations = mock(LdapOperations.class);
-    this.subject = new LdapUserDetailsManager(ldapOperations);
+    this.subject = new LdapUserDetailsManager(ldapOperations, 2, 10, 2);
+  }
+
+  @Test
+  public void testFindPersonsById() throws Exception {
+    LdapContext context = mock(LdapContext.class);
+    when(ldapOperations.executeReadOnly(any(ContextExecutor.class)))
+      .thenAnswer(invocation -> ((ContextExecutor) invocation.getArguments()[0]).executeWithContext(context));
+    when(context.search(eq(""), anyString(), any(SearchControls.class))).thenAnswer(invocation -> {
+      String filter = (String) invocation.getArguments()[1];
+      return filter.contains("urn:collab:person:example.com:john.doe")
+        ? new SearchResults(searchResult("URN:collab:person:example.com:john.doe", "John Doe"))
+        : new SearchResults();
+    });
+
+    Map<String, teams.migration.Person> persons = subject.findPersonsById(Arrays.asList(
+      "urn:collab:person:example.com:john.doe", "urn:collab:person:example.com:mary.doe", "urn:collab:person:example.com:unknown"));
+
+    assertEquals(1, persons.size());
+    teams.migration.Person person = persons.get("urn:collab:person:example.com:john.doe");
+    assertEquals("John Doe", person.getName());
+    assertEquals("urn:collab:person:example.com:john.doe", person.getUrn());
+    //three urns in batches of two
+    verify(context, times(2)).search(eq(""), contains("(objectclass=collabPerson)"), any(SearchControls.class));
+  }
+
+  private SearchResult searchResult(String urn, String name) {
+    BasicAttributes attributes = new BasicAttributes(true);
+    attributes.put("collabpersonid", urn);
+    attributes.put("cn", name);
+    attributes.put("mail", "john.doe@example.com");
+    return new SearchResult(urn, null, attributes);
+  }
+
+  private static class SearchResults implements NamingEnumeration<SearchResult> {
+
+    private final Iterator<SearchResult> results;
+
+    private SearchResults(SearchResult... results) {
+      this.results = Arrays.asList(results).iterator();
+    }
+
+    @Override
+    public SearchResult next() {
+      return results.next();
+    }
+
+    @Override
+    public boolean hasMore() {
+      return results.hasNext();
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public boolean hasMoreElements() {
+      return hasMore();
+    }
+
+    @Override
+    public SearchResult nextElement() {
+      return next();
+    }
   }
 
 //  @Test
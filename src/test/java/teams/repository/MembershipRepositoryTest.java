@@ -1,17 +1,38 @@
 package teams.repository;
 
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import teams.AbstractApplicationTest;
+import teams.migration.MemberSummary;
 import teams.migration.Membership;
+import teams.migration.Person;
 import teams.migration.Role;
 import teams.migration.Team;
 
+import javax.persistence.EntityManager;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
 import static org.junit.Assert.*;
 
 public class MembershipRepositoryTest extends AbstractApplicationTest {
 
+  @Autowired
+  private EntityManager entityManager;
+
+  @Autowired
+  @Qualifier("teamsJdbcTemplate")
+  private JdbcTemplate jdbcTemplate;
+
   @Test
   public void findByTeamUrnAndPersonUrn() throws Exception {
     Optional<Membership> membershipOptional = membershipRepository.findByUrnTeamAndUrnPerson("nl:surfnet:diensten:riders", "urn:collab:person:surfnet.nl:jdoe");
@@ -25,4 +46,94 @@ public class MembershipRepositoryTest extends AbstractApplicationTest {
     assertFalse(membershipOptional.isPresent());
   }
 
+  @Test
+  public void findByTeamUrnAndPersonUrnReadsTheCurrentRole() throws Exception {
+    membershipRepository.findByUrnTeamAndUrnPerson("nl:surfnet:diensten:giants", "urn:collab:person:surfnet.nl:jdoe");
+    entityManager.clear();
+    //promoted on another node
+    jdbcTemplate.update("UPDATE memberships SET role = 'ADMIN' WHERE id = 2");
+
+    Membership membership = membershipRepository.findByUrnTeamAndUrnPerson("nl:surfnet:diensten:giants", "urn:collab:person:surfnet.nl:jdoe").get();
+    assertEquals(Role.ADMIN, membership.getRole());
+  }
+
+  @Test
+  public void existsByUrnTeamAndUrnPersonAndRoleIn() throws Exception {
+    assertTrue(membershipRepository.existsByUrnTeamAndUrnPersonAndRoleIn("nl:surfnet:diensten:giants",
+      "urn:collab:person:surfnet.nl:jdoe", asList(Role.ADMIN, Role.MANAGER)));
+    assertFalse(membershipRepository.existsByUrnTeamAndUrnPersonAndRoleIn("nl:surfnet:diensten:giants",
+      "urn:collab:person:surfnet.nl:jdoe", asList(Role.ADMIN)));
+    assertFalse(membershipRepository.existsByUrnTeamAndUrnPersonAndRoleIn("nl:surfnet:diensten:riders",
+      "urn:collab:person:surfnet.nl:mdoe", asList(Role.ADMIN, Role.MANAGER)));
+  }
+
+  @Test
+  public void findUrnTeamByUrnPerson() throws Exception {
+    assertEquals(
+      new HashSet<>(asList("nl:surfnet:diensten:giants", "nl:surfnet:diensten:gliders")),
+      membershipRepository.findUrnTeamByUrnPerson("urn:collab:person:surfnet.nl:tdoe"));
+    assertTrue(membershipRepository.findUrnTeamByUrnPerson("urn:collab:person:surfnet.nl:nope").isEmpty());
+  }
+
+  @Test
+  public void findMemberSummaries() throws Exception {
+    List<MemberSummary> summaries = membershipRepository.findMemberSummaries("nl:surfnet:diensten:giants");
+    assertEquals(
+      asList("urn:collab:person:surfnet.nl:jdoe", "urn:collab:person:surfnet.nl:mdoe",
+        "urn:collab:person:surfnet.nl:tdoe", "urn:collab:person:surfnet.nl:wdoe"),
+      summaries.stream().map(MemberSummary::getUrn).collect(toList()));
+    assertEquals(Role.MANAGER, summaries.get(0).getRole());
+    assertEquals("Mary Doe", summaries.get(1).getName());
+    assertTrue(summaries.get(1).isGuest());
+
+    summaries = membershipRepository.findMemberSummariesAfter("nl:surfnet:diensten:giants",
+      "urn:collab:person:surfnet.nl:mdoe", new PageRequest(0, 1));
+    assertEquals(1, summaries.size());
+    assertEquals("urn:collab:person:surfnet.nl:tdoe", summaries.get(0).getUrn());
+  }
+
+  @Test
+  public void findMemberSummariesOrderByName() throws Exception {
+    List<MemberSummary> summaries = membershipRepository.findMemberSummariesOrderByName("nl:surfnet:diensten:giants", new PageRequest(1, 2));
+    assertEquals(asList("Tracey Doe", "William Doe"), summaries.stream().map(MemberSummary::getName).collect(toList()));
+    assertEquals(4, membershipRepository.countByUrnTeam("nl:surfnet:diensten:giants"));
+
+    summaries = membershipRepository.findMemberSummariesByNameOrderByName("nl:surfnet:diensten:giants", "MAR", new PageRequest(0, 2));
+    assertEquals(asList("Mary Doe"), summaries.stream().map(MemberSummary::getName).collect(toList()));
+    assertEquals(1, membershipRepository.countByUrnTeamAndName("nl:surfnet:diensten:giants", "MAR"));
+  }
+
+  @Test
+  public void findMemberSummariesByNameMatchesWildcardsLiterally() throws Exception {
+    assertEquals(0, membershipRepository.findMemberSummariesByNameOrderByName("nl:surfnet:diensten:giants",
+      MembershipRepository.escapeLike("%"), new PageRequest(0, 10)).size());
+    assertEquals(0, membershipRepository.countByUrnTeamAndName("nl:surfnet:diensten:giants", MembershipRepository.escapeLike("_")));
+    assertEquals(1, membershipRepository.countByUrnTeamAndName("nl:surfnet:diensten:giants", MembershipRepository.escapeLike("mary")));
+  }
+
+  @Test
+  public void findMemberSummariesStatementCountDoesNotDependOnTeamSize() throws Exception {
+    long statementsForFourMembers = statementsToFindMemberSummaries("nl:surfnet:diensten:giants");
+
+    Team team = teamRepository.findByUrn("nl:surfnet:diensten:giants").get();
+    for (int i = 0; i < 50; i++) {
+      Person person = personRepository.save(new Person("urn:collab:person:example.org:" + i, "Person " + i,
+        "person" + i + "@example.org", false, Instant.now()));
+      membershipRepository.save(new Membership(Role.MEMBER, team, person, Instant.now()));
+    }
+
+    assertEquals(statementsForFourMembers, statementsToFindMemberSummaries("nl:surfnet:diensten:giants"));
+  }
+
+  private long statementsToFindMemberSummaries(String teamUrn) {
+    entityManager.flush();
+    entityManager.clear();
+    entityCache.evictAll();
+
+    Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    long before = statistics.getPrepareStatementCount();
+    membershipRepository.findMemberSummaries(teamUrn);
+    return statistics.getPrepareStatementCount() - before;
+  }
+
 }
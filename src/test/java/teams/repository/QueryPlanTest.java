@@ -0,0 +1,255 @@
+package teams.repository;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import teams.AbstractApplicationTest;
+import teams.migration.Role;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs EXPLAIN on the SQL of every query method of the repositories and fails when a table is read with a full scan.
+ * The tables are padded first, so the optimizer doesn't prefer a scan because the seed is tiny. A new query method
+ * fails the test until it is added here.
+ */
+public class QueryPlanTest extends AbstractApplicationTest {
+
+  private static final String TEAM = "nl:surfnet:diensten:giants";
+  private static final String PERSON = "urn:collab:person:surfnet.nl:jdoe";
+
+  //a substring search on the name and description can't use an index
+  private static final Map<String, Set<String>> ALLOWED_FULL_SCANS = ImmutableMap.of(
+    "findPublicTeams", ImmutableSet.of("teams"));
+
+  private static final Pattern TABLE_ALIAS = Pattern.compile("(?:from|join)\\s+(\\w+)\\s+(\\w+)", Pattern.CASE_INSENSITIVE);
+
+  private static final Set<String> FULL_SCAN_TYPES = ImmutableSet.of("ALL", "index");
+
+  @Autowired
+  @Qualifier("teamsJdbcTemplate")
+  private JdbcTemplate jdbcTemplate;
+
+  private final List<String> violations = new ArrayList<>();
+  private final Set<String> explained = new HashSet<>();
+
+  @Before
+  public void padTables() throws Exception {
+    jdbcTemplate.batchUpdate("INSERT INTO teams (id, urn, name, description, viewable, member_count) VALUES (?, ?, ?, ?, 1, 10)",
+      IntStream.range(1000, 1200).mapToObj(i -> new Object[]{i, "nl:example:team" + i, "team " + i, "description"})
+        .collect(Collectors.toList()));
+    jdbcTemplate.batchUpdate("INSERT INTO persons (id, urn, name, email, guest) VALUES (?, ?, ?, ?, 0)",
+      IntStream.range(1000, 3000).mapToObj(i -> new Object[]{i, "urn:collab:person:example.org:" + i, "person " + i, i + "@example.org"})
+        .collect(Collectors.toList()));
+    jdbcTemplate.batchUpdate("INSERT INTO memberships (role, team_id, urn_team, person_id, urn_person) VALUES ('MEMBER', ?, ?, ?, ?)",
+      IntStream.range(1000, 3000).mapToObj(i -> new Object[]{1000 + i % 200, "nl:example:team" + (1000 + i % 200), i, "urn:collab:person:example.org:" + i})
+        .collect(Collectors.toList()));
+  }
+
+  @Test
+  public void queriesDoNotScanTables() throws Exception {
+    explain("findByUrnIn", () -> teamRepository.findByUrnIn(asList(TEAM)));
+    explain("findByUrn", () -> teamRepository.findByUrn(TEAM));
+    explain("findUncachedByUrn", () -> teamRepository.findUncachedByUrn(TEAM));
+    explain("findTeamSummaryByUrn", () -> teamRepository.findTeamSummaryByUrn(TEAM));
+    explain("findTeamSummariesByUrnIn", () -> teamRepository.findTeamSummariesByUrnIn(asList(TEAM)));
+    explain("findByUrnGreaterThanOrderByUrnAsc", () -> teamRepository.findByUrnGreaterThanOrderByUrnAsc(TEAM, new PageRequest(0, 10)));
+    explain("findPublicTeams", () -> teamRepository.findPublicTeams("gia", PERSON));
+    explain("findMyTeamSummaries", () -> teamRepository.findMyTeamSummaries(PERSON, new PageRequest(0, 10)));
+    explain("findAllMyTeamSummaries", () -> teamRepository.findAllMyTeamSummaries(PERSON));
+    explain("findMyTeamSummariesAfter", () -> teamRepository.findMyTeamSummariesAfter(PERSON, "gia", TEAM, new PageRequest(0, 10)));
+    explain("findMyTeamSummariesByName", () -> teamRepository.findMyTeamSummariesByName("gia", PERSON, new PageRequest(0, 10)));
+    explain("findMyTeamSummariesByNameAfter", () -> teamRepository.findMyTeamSummariesByNameAfter("gia", PERSON, "gia", TEAM, new PageRequest(0, 10)));
+    explain("countMyTeams", () -> teamRepository.countMyTeams(PERSON));
+    explain("countMyTeamsByName", () -> teamRepository.countMyTeamsByName("gia", PERSON));
+
+    explain("findByUrnTeamAndUrnPerson", () -> membershipRepository.findByUrnTeamAndUrnPerson(TEAM, PERSON));
+    explain("existsByUrnTeamAndUrnPersonAndRoleIn", () -> membershipRepository.existsByUrnTeamAndUrnPersonAndRoleIn(TEAM, PERSON, asList(Role.ADMIN, Role.MANAGER)));
+    explain("findUrnTeamByUrnPerson", () -> membershipRepository.findUrnTeamByUrnPerson(PERSON));
+    explain("findMemberSummaries", () -> membershipRepository.findMemberSummaries(TEAM));
+    explain("findMemberSummariesAfter", () -> membershipRepository.findMemberSummariesAfter(TEAM, PERSON, new PageRequest(0, 10)));
+    explain("findMemberSummariesOrderByName", () -> membershipRepository.findMemberSummariesOrderByName(TEAM, new PageRequest(0, 10)));
+    explain("findMemberSummariesByNameOrderByName", () -> membershipRepository.findMemberSummariesByNameOrderByName(TEAM, "doe", new PageRequest(0, 10)));
+    explain("findMemberSummariesByUrnPersonIn", () -> membershipRepository.findMemberSummariesByUrnPersonIn(TEAM, asList(PERSON)));
+    explain("findMemberSummariesByRole", () -> membershipRepository.findMemberSummariesByRole(TEAM, Role.ADMIN));
+    explain("countByUrnTeam", () -> membershipRepository.countByUrnTeam(TEAM));
+    explain("countByUrnTeamAndName", () -> membershipRepository.countByUrnTeamAndName(TEAM, "doe"));
+
+    explain("findByUrn", () -> personRepository.findByUrn(PERSON));
+    explain("findByUrnIn", () -> personRepository.findByUrnIn(asList(PERSON)));
+
+    assertEquals("Query methods without a query plan check", Collections.emptySet(), unexplainedQueryMethods());
+    assertTrue(String.join("\n", violations), violations.isEmpty());
+  }
+
+  private void explain(String method, Runnable query) {
+    entityCache.evictAll();
+    List<RecordedStatement> statements = StatementRecorder.record(query);
+    if (statements.isEmpty()) {
+      fail(method + " did not query the database");
+    }
+    explained.add(method);
+    Set<String> allowed = ALLOWED_FULL_SCANS.getOrDefault(method, Collections.emptySet());
+    statements.forEach(statement ->
+      jdbcTemplate.queryForList("EXPLAIN " + statement.sql, statement.parameters()).forEach(row -> {
+        //EXPLAIN shows the aliases Hibernate gives the tables
+        String alias = String.valueOf(row.get("table"));
+        String table = tablesByAlias(statement.sql).getOrDefault(alias, alias);
+        if (FULL_SCAN_TYPES.contains(String.valueOf(row.get("type"))) && !allowed.contains(table)) {
+          violations.add(String.format("%s scans %s: %s %s", method, table, statement.sql, row));
+        }
+      }));
+  }
+
+  private Map<String, String> tablesByAlias(String sql) {
+    Map<String, String> tables = new HashMap<>();
+    Matcher matcher = TABLE_ALIAS.matcher(sql);
+    while (matcher.find()) {
+      tables.put(matcher.group(2), matcher.group(1));
+    }
+    return tables;
+  }
+
+  private Set<String> unexplainedQueryMethods() {
+    return asList(TeamRepository.class, MembershipRepository.class, PersonRepository.class).stream()
+      .flatMap(repository -> Arrays.stream(repository.getDeclaredMethods()))
+      .filter(method -> !method.isAnnotationPresent(Modifying.class))
+      .map(Method::getName)
+      .filter(name -> !explained.contains(name))
+      .collect(Collectors.toSet());
+  }
+
+  @TestConfiguration
+  static class StatementRecorderConfiguration {
+
+    @Bean
+    public static BeanPostProcessor statementRecorder() {
+      return new BeanPostProcessor() {
+        @Override
+        public Object postProcessBeforeInitialization(Object bean, String beanName) {
+          return bean;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+          return bean instanceof DataSource && beanName.equals("teamsDataSource") ?
+            new StatementRecorder((DataSource) bean) : bean;
+        }
+      };
+    }
+  }
+
+  /*
+   * Records the SQL and the parameters of the SELECT statements prepared by the current thread while recording
+   */
+  static class StatementRecorder extends DelegatingDataSource {
+
+    private static final ThreadLocal<List<RecordedStatement>> RECORDING = new ThreadLocal<>();
+
+    StatementRecorder(DataSource dataSource) {
+      super(dataSource);
+    }
+
+    static List<RecordedStatement> record(Runnable runnable) {
+      List<RecordedStatement> statements = new ArrayList<>();
+      RECORDING.set(statements);
+      try {
+        runnable.run();
+      } finally {
+        RECORDING.remove();
+      }
+      return statements;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+      return recordingConnection(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+      return recordingConnection(super.getConnection(username, password));
+    }
+
+    private Connection recordingConnection(Connection connection) {
+      return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+        (proxy, method, args) -> {
+          Object result = invoke(connection, method, args);
+          List<RecordedStatement> statements = RECORDING.get();
+          if (statements != null && method.getName().equals("prepareStatement") &&
+            ((String) args[0]).trim().toLowerCase().startsWith("select")) {
+            RecordedStatement statement = new RecordedStatement((String) args[0]);
+            statements.add(statement);
+            return recordingStatement((PreparedStatement) result, statement);
+          }
+          return result;
+        });
+    }
+
+    private PreparedStatement recordingStatement(PreparedStatement preparedStatement, RecordedStatement statement) {
+      return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{PreparedStatement.class},
+        (proxy, method, args) -> {
+          if (method.getName().startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+            statement.parameters.put((Integer) args[0], method.getName().equals("setNull") ? null : args[1]);
+          }
+          return invoke(preparedStatement, method, args);
+        });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+      try {
+        return method.invoke(target, args);
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+    }
+  }
+
+  static class RecordedStatement {
+
+    private final String sql;
+    private final Map<Integer, Object> parameters = new TreeMap<>();
+
+    RecordedStatement(String sql) {
+      this.sql = sql;
+    }
+
+    Object[] parameters() {
+      return parameters.values().toArray();
+    }
+  }
+}
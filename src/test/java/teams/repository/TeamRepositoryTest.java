@@ -4,22 +4,19 @@ import org.junit.Test;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.PageRequest;
 import teams.AbstractApplicationTest;
+import teams.migration.MyTeamSummary;
+import teams.migration.Role;
 import teams.migration.Team;
+import teams.migration.TeamSummary;
 
 import java.util.List;
 import java.util.Optional;
 
+import static java.util.Arrays.asList;
 import static org.junit.Assert.assertEquals;
 
 public class TeamRepositoryTest extends AbstractApplicationTest {
 
-  @Test
-  public void findByNameContainingIgnoreCaseOrderByNameAsc() throws Exception {
-    List<Team> teams = teamRepository.findByNameContainingIgnoreCaseOrderByNameAsc("ER");
-    assertEquals("gliders", teams.get(0).getName());
-    assertEquals("riders", teams.get(1).getName());
-  }
-
   @Test
   public void findByUrn() throws Exception {
     Optional<Team> teamOptional = teamRepository.findByUrn("nl:surfnet:diensten:giants");
@@ -27,17 +24,80 @@ public class TeamRepositoryTest extends AbstractApplicationTest {
   }
 
   @Test
-  public void findByMembershipsPersonUrn() throws Exception {
-    List<Team> teams = teamRepository.findByMembershipsUrnPersonOrderByNameAsc(
-      "urn:collab:person:surfnet.nl:jdoe", new PageRequest(0, 10)).getContent();
-    assertEquals(3, teams.size());
+  public void findTeamSummaryByUrn() throws Exception {
+    TeamSummary summary = teamRepository.findTeamSummaryByUrn("nl:surfnet:diensten:giants").get();
+    assertEquals("giants", summary.getName());
+    assertEquals(4, summary.getMembershipCount());
+  }
+
+  @Test
+  public void findTeamSummariesByUrnIn() throws Exception {
+    List<TeamSummary> summaries = teamRepository.findTeamSummariesByUrnIn(asList("nl:surfnet:diensten:giants", "nl:surfnet:diensten:nope"));
+    assertEquals(1, summaries.size());
+    assertEquals("giants", summaries.get(0).getName());
+  }
+
+  @Test
+  public void findByUrnIsCached() throws Exception {
+    teamRepository.findByUrn("nl:surfnet:diensten:giants");
+    long hits = queryCacheHits();
+
+    teamRepository.findByUrn("nl:surfnet:diensten:giants");
+    assertEquals(hits + 1, queryCacheHits());
+  }
+
+  @Test
+  public void findPublicTeams() throws Exception {
+    Team riders = teamRepository.findByUrn("nl:surfnet:diensten:riders").get();
+    riders.setViewable(false);
+    teamRepository.save(riders);
+
+    assertEquals(1, teamRepository.findPublicTeams("ERS", "urn:collab:person:surfnet.nl:mdoe").size());
+    assertEquals(2, teamRepository.findPublicTeams("ERS", "urn:collab:person:surfnet.nl:jdoe").size());
+    assertEquals(3, teamRepository.findPublicTeams("WE ARE", "urn:collab:person:surfnet.nl:jdoe").size());
+    assertEquals(0, teamRepository.findPublicTeams(MembershipRepository.escapeLike("%"), "urn:collab:person:surfnet.nl:jdoe").size());
+  }
+
+  @Test
+  public void findMyTeamSummaries() throws Exception {
+    List<MyTeamSummary> summaries = teamRepository.findMyTeamSummaries("urn:collab:person:surfnet.nl:jdoe", new PageRequest(0, 2));
+    assertEquals(2, summaries.size());
+    assertEquals(3, teamRepository.countMyTeams("urn:collab:person:surfnet.nl:jdoe"));
+
+    MyTeamSummary giants = summaries.get(0);
+    assertEquals("nl:surfnet:diensten:giants", giants.getUrn());
+    assertEquals(4, giants.getMembershipCount());
+    assertEquals(Role.MANAGER, giants.getRole());
+    assertEquals("gliders", summaries.get(1).getName());
+  }
+
+  @Test
+  public void findMyTeamSummariesAfter() throws Exception {
+    List<MyTeamSummary> summaries = teamRepository.findMyTeamSummariesAfter("urn:collab:person:surfnet.nl:jdoe",
+      "gliders", "nl:surfnet:diensten:gliders", new PageRequest(0, 2));
+    assertEquals(1, summaries.size());
+    assertEquals("riders", summaries.get(0).getName());
   }
 
   @Test
-  public void findByNameContainingIgnoreCaseAndMembershipsPersonUrnOrderByNameAsc() throws Exception {
-    List<Team> teams = teamRepository.findByNameContainingIgnoreCaseAndMembershipsUrnPersonOrderByNameAsc(
-      "ERS", "urn:collab:person:surfnet.nl:jdoe", new PageRequest(0, 10)).getContent();
-    assertEquals(2, teams.size());
+  public void findMyTeamSummariesByName() throws Exception {
+    List<MyTeamSummary> summaries = teamRepository.findMyTeamSummariesByName("ERS", "urn:collab:person:surfnet.nl:jdoe", new PageRequest(0, 10));
+    assertEquals(2, summaries.size());
+    assertEquals(2, teamRepository.countMyTeamsByName("ERS", "urn:collab:person:surfnet.nl:jdoe"));
+    assertEquals(Role.ADMIN, summaries.get(1).getRole());
+
+    summaries = teamRepository.findMyTeamSummariesByNameAfter("ERS", "urn:collab:person:surfnet.nl:jdoe",
+      "gliders", "nl:surfnet:diensten:gliders", new PageRequest(0, 10));
+    assertEquals(1, summaries.size());
+  }
+
+  @Test
+  public void reconcileMembershipCounts() throws Exception {
+    Team team = teamRepository.findByUrn("nl:surfnet:diensten:riders").get();
+    teamRepository.updateMembershipCount(team.getId(), 5);
+
+    assertEquals(1, teamRepository.reconcileMembershipCounts());
+    assertEquals(0, teamRepository.reconcileMembershipCounts());
   }
 
   @Test(expected = DataIntegrityViolationException.class)
@@ -45,4 +105,11 @@ public class TeamRepositoryTest extends AbstractApplicationTest {
     teamRepository.save(new Team("nl:surfnet:diensten:riders","riders", "we are riders"));
   }
 
+  private long queryCacheHits() {
+    return entityCache.metrics().stream()
+      .filter(metric -> metric.getName().equals("hibernate.cache.query.hits"))
+      .mapToLong(metric -> metric.getValue().longValue())
+      .sum();
+  }
+
 }
@@ -0,0 +1,46 @@
+package teams.scheduling;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import teams.AbstractApplicationTest;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JobLeaseTest extends AbstractApplicationTest {
+
+  private static final String JOB = "jobLeaseTest";
+
+  @Autowired
+  @Qualifier("teamsJdbcTemplate")
+  private JdbcTemplate jdbcTemplate;
+
+  @Test
+  public void leaseIsHeldByOneNodeUntilItExpires() throws Exception {
+    JobLease node1 = new JobLease(jdbcTemplate);
+    JobLease node2 = new JobLease(jdbcTemplate);
+
+    assertTrue(node1.acquire(JOB, 60000));
+    assertTrue(node1.acquire(JOB, 60000));
+    assertFalse(node2.acquire(JOB, 60000));
+
+    //expired by the clock of the database, whatever the clock of this node says
+    jdbcTemplate.update("UPDATE scheduled_job_leases SET lease_until = ROUND(UNIX_TIMESTAMP(NOW(3)) * 1000) - 1 " +
+      "WHERE job_name = ?", JOB);
+    assertTrue(node2.acquire(JOB, 60000));
+    assertFalse(node1.acquire(JOB, 60000));
+  }
+
+  @Test
+  public void releasedLeaseIsAvailable() throws Exception {
+    JobLease node1 = new JobLease(jdbcTemplate);
+    JobLease node2 = new JobLease(jdbcTemplate);
+
+    assertTrue(node1.acquire(JOB, 60000));
+    node1.release(JOB);
+
+    assertTrue(node2.acquire(JOB, 60000));
+  }
+}
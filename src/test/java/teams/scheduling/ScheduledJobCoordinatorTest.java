@@ -0,0 +1,105 @@
+package teams.scheduling;
+
+import org.junit.Test;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.support.PeriodicTrigger;
+
+import java.util.List;
+
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ScheduledJobCoordinatorTest {
+
+  private JobLease jobLease = mock(JobLease.class);
+
+  @Test
+  public void jobRunsWhenTheLeaseIsAcquired() {
+    CountingJob job = new CountingJob(null);
+    ScheduledJobCoordinator subject = coordinator(job);
+    when(jobLease.acquire("counting", 1000)).thenReturn(true);
+
+    assertTrue(subject.run(job));
+
+    assertEquals(1, job.runs);
+    List<JobRun> runs = subject.getHistory().get("counting");
+    assertEquals(1, runs.size());
+    assertTrue(runs.get(0).isSucceeded());
+    verify(jobLease).recordRun(eq("counting"), any(JobRun.class));
+    verify(jobLease).release("counting");
+  }
+
+  @Test
+  public void jobDoesNotRunWithoutTheLease() {
+    CountingJob job = new CountingJob(null);
+    ScheduledJobCoordinator subject = coordinator(job);
+    when(jobLease.acquire("counting", 1000)).thenReturn(false);
+
+    assertFalse(subject.run(job));
+
+    assertEquals(0, job.runs);
+    assertTrue(subject.getHistory().get("counting").isEmpty());
+    verify(jobLease, never()).release("counting");
+  }
+
+  @Test
+  public void failuresAreRecorded() {
+    CountingJob job = new CountingJob(new IllegalStateException("database is down"));
+    ScheduledJobCoordinator subject = coordinator(job);
+    when(jobLease.acquire("counting", 1000)).thenReturn(true);
+
+    subject.run(job);
+
+    JobRun run = subject.getHistory().get("counting").get(0);
+    assertFalse(run.isSucceeded());
+    assertEquals("java.lang.IllegalStateException: database is down", run.getError());
+    verify(jobLease).release("counting");
+  }
+
+  private ScheduledJobCoordinator coordinator(ScheduledJob job) {
+    return new ScheduledJobCoordinator(singletonList(job), jobLease, mock(GaugeService.class), mock(CounterService.class), 0);
+  }
+
+  private static class CountingJob implements ScheduledJob {
+
+    private final RuntimeException failure;
+    private int runs;
+
+    private CountingJob(RuntimeException failure) {
+      this.failure = failure;
+    }
+
+    @Override
+    public String getName() {
+      return "counting";
+    }
+
+    @Override
+    public Trigger getTrigger() {
+      return new PeriodicTrigger(1000);
+    }
+
+    @Override
+    public long getLeaseMillis() {
+      return 1000;
+    }
+
+    @Override
+    public void run(Lease lease) {
+      runs++;
+      if (failure != null) {
+        throw failure;
+      }
+    }
+  }
+}
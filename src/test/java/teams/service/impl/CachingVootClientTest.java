@@ -0,0 +1,52 @@
+package teams.service.impl;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import org.junit.Test;
+import teams.domain.ExternalGroup;
+import teams.service.VootClient;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CachingVootClientTest {
+
+  private VootClient delegate = spy(new VootClientMock());
+
+  private CachingVootClient subject = new CachingVootClient(delegate, 10, 60, 900, MoreExecutors.directExecutor());
+
+  @Test
+  public void groupsAreLoadedOncePerUser() {
+    List<ExternalGroup> groups = subject.groups("id");
+    assertEquals(11, groups.size());
+    assertEquals(groups, subject.groups("id"));
+    subject.groups("other");
+
+    verify(delegate, times(1)).groups("id");
+    verify(delegate, times(1)).groups("other");
+    assertEquals(1, subject.stats().hitCount());
+  }
+
+  @Test
+  public void evictReloads() {
+    subject.groups("id");
+    subject.evict("id");
+    subject.groups("id");
+
+    verify(delegate, times(2)).groups("id");
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void failuresArePropagated() {
+    VootClient failing = mock(VootClient.class);
+    when(failing.groups("id")).thenThrow(new IllegalStateException("VOOT is down"));
+
+    new CachingVootClient(failing, 10, 60, 900, MoreExecutors.directExecutor()).groups("id");
+  }
+
+}
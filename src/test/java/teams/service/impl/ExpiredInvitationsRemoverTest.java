@@ -0,0 +1,37 @@
+package teams.service.impl;
+
+import org.junit.Test;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import teams.service.TeamInviteService;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ExpiredInvitationsRemoverTest {
+
+  private TeamInviteService teamInviteService = mock(TeamInviteService.class);
+
+  private ExpiredInvitationsRemover subject = new ExpiredInvitationsRemover(teamInviteService,
+    mock(GaugeService.class), mock(CounterService.class), 10, 0, 60000, 60000);
+
+  @Test
+  public void purgesInChunksUntilTheBacklogIsGone() {
+    when(teamInviteService.deleteExpiredInvitations(10)).thenReturn(10, 10, 3);
+
+    subject.run(() -> true);
+
+    verify(teamInviteService, times(3)).deleteExpiredInvitations(10);
+  }
+
+  @Test
+  public void stopsWhenTheLeaseIsLost() {
+    when(teamInviteService.deleteExpiredInvitations(10)).thenReturn(10);
+
+    subject.run(() -> false);
+
+    verify(teamInviteService, times(1)).deleteExpiredInvitations(10);
+  }
+}
@@ -0,0 +1,57 @@
+package teams.service.impl;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import teams.AbstractApplicationTest;
+import teams.domain.Invitation;
+import teams.domain.InvitationJob;
+import teams.domain.Person;
+import teams.domain.Role;
+import teams.domain.Team;
+import teams.service.InvitationJobService;
+import teams.service.TeamInviteService;
+
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class InvitationJobServiceImplTest extends AbstractApplicationTest {
+
+  private final Team team = new Team("nl:surfnet:diensten:invitations", "invitations", "invitations");
+  private final Person inviter = new Person("urn:collab:person:example.org:admin", "Admin", "admin@example.org",
+    "example.org", "admin", "Admin");
+
+  @Autowired
+  private TeamInviteService teamInviteService;
+
+  @Autowired
+  private InvitationJobService invitationJobService;
+
+  @Test
+  public void progressOfAQueuedJob() throws Exception {
+    List<Invitation> invitations = asList(invitation("john@example.org"), invitation("mary@example.org"));
+    teamInviteService.saveOrUpdate(invitations);
+
+    InvitationJob queued = invitationJobService.queueInvitationMails(team, invitations, "subject", inviter);
+    invitationJobService.deleteFinishedJobs();
+
+    InvitationJob job = invitationJobService.findJob(queued.getId()).get();
+    assertEquals(team.getId(), job.getTeamId());
+    assertEquals(2, job.getTotal());
+    assertEquals(0, job.getSent());
+    assertFalse(job.isFinished());
+  }
+
+  @Test
+  public void unknownJob() throws Exception {
+    assertFalse(invitationJobService.findJob("nope").isPresent());
+  }
+
+  private Invitation invitation(String email) {
+    Invitation invitation = new Invitation(email, team.getId());
+    invitation.setIntendedRole(Role.Member);
+    return invitation;
+  }
+}
@@ -0,0 +1,60 @@
+package teams.service.impl;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import teams.AbstractApplicationTest;
+import teams.domain.Invitation;
+import teams.domain.InvitationMessage;
+import teams.domain.Role;
+import teams.domain.Team;
+import teams.service.TeamInviteService;
+
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+public class TeamInviteServiceHibernateImplTest extends AbstractApplicationTest {
+
+  private final Team team = new Team("nl:surfnet:diensten:invitations", "invitations", "invitations");
+
+  @Autowired
+  private TeamInviteService teamInviteService;
+
+  @Test
+  public void saveOrUpdateInsertsNewInvitationsWithTheirMessages() throws Exception {
+    Invitation john = invitation("john@example.org");
+    john.addInvitationMessage(new InvitationMessage("welcome", "urn:collab:person:example.org:admin"));
+    Invitation mary = invitation("mary@example.org");
+
+    teamInviteService.saveOrUpdate(asList(john, mary));
+
+    assertNotNull(john.getId());
+    assertNotNull(mary.getId());
+    Invitation saved = teamInviteService.findInvitationByInviteId(john.getInvitationHash()).get();
+    assertEquals("welcome", saved.getLatestInvitationMessage().get().getMessage());
+  }
+
+  @Test
+  public void findOpenInvitationsIgnoresCase() throws Exception {
+    Invitation accepted = invitation("kate@example.org");
+    accepted.setAccepted(true);
+    teamInviteService.saveOrUpdate(asList(invitation("john@example.org"), invitation("Mary@Example.org"), accepted));
+
+    Map<String, Invitation> invitations = teamInviteService.findOpenInvitations(
+      asList("John@Example.org", "mary@example.org", "kate@example.org", "nobody@example.org"), team);
+
+    assertEquals(2, invitations.size());
+    assertEquals("john@example.org", invitations.get("john@example.org").getEmail());
+    assertEquals("Mary@Example.org", invitations.get("mary@example.org").getEmail());
+    assertFalse(invitations.containsKey("kate@example.org"));
+  }
+
+  private Invitation invitation(String email) {
+    Invitation invitation = new Invitation(email, team.getId());
+    invitation.setIntendedRole(Role.Member);
+    return invitation;
+  }
+}
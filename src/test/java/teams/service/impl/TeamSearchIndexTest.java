@@ -0,0 +1,84 @@
+package teams.service.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import teams.service.impl.TeamSearchIndex.IndexedTeam;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TeamSearchIndexTest {
+
+  private static final Supplier<Set<String>> NO_TEAMS = Collections::emptySet;
+
+  private TeamSearchIndex subject;
+
+  @Before
+  public void before() {
+    subject = new TeamSearchIndex(null);
+    subject.rebuild(asList(
+      new IndexedTeam("urn:riders", "riders", "we are riders", true),
+      new IndexedTeam("urn:easy-riders", "Easy Riders", "born to be wild", true),
+      new IndexedTeam("urn:gliders", "gliders", "we glide past the riders", true),
+      new IndexedTeam("urn:secret-riders", "secret riders", "nobody knows", false)));
+  }
+
+  @Test
+  public void searchRanksNameMatchesBeforeDescriptionMatches() {
+    assertEquals(asList("urn:riders", "urn:easy-riders", "urn:gliders"), urns(subject.search("RIDERS", NO_TEAMS)));
+  }
+
+  @Test
+  public void searchShortQuery() {
+    assertEquals(asList("urn:easy-riders", "urn:gliders", "urn:riders"), urns(subject.search("e", NO_TEAMS)));
+  }
+
+  @Test
+  public void searchPrivateTeamsOnlyForMembers() {
+    Set<String> memberOf = Collections.singleton("urn:secret-riders");
+    assertEquals(asList("urn:riders", "urn:easy-riders", "urn:secret-riders", "urn:gliders"),
+      urns(subject.search("riders", () -> memberOf)));
+  }
+
+  @Test
+  public void searchDoesNotFetchMembershipsWithoutPrivateMatches() {
+    assertEquals(1, subject.search("wild", () -> {
+      throw new IllegalStateException("memberships are not needed");
+    }).size());
+  }
+
+  @Test
+  public void indexAndRemove() {
+    subject.index(new IndexedTeam("urn:riders", "cyclists", "we are cyclists", true));
+    assertEquals(asList("urn:easy-riders", "urn:gliders"), urns(subject.search("riders", NO_TEAMS)));
+    assertEquals(asList("urn:riders"), urns(subject.search("cycl", NO_TEAMS)));
+
+    subject.remove("urn:gliders");
+    assertEquals(asList("urn:easy-riders"), urns(subject.search("riders", NO_TEAMS)));
+  }
+
+  @Test
+  public void searchBeforeTheIndexIsBuilt() {
+    TeamSearchIndex empty = new TeamSearchIndex(null);
+
+    assertFalse(empty.isBuilt());
+    assertTrue(empty.search("riders", NO_TEAMS).isEmpty());
+  }
+
+  @Test
+  public void searchWithoutQuery() {
+    assertTrue(subject.search(" ", NO_TEAMS).isEmpty());
+  }
+
+  private List<String> urns(List<IndexedTeam> teams) {
+    return teams.stream().map(IndexedTeam::getUrn).collect(Collectors.toList());
+  }
+}
@@ -24,6 +24,7 @@ import org.springframework.mock.web.MockHttpServletResponse;
 import teams.domain.MemberAttribute;
 import teams.domain.Person;
 import teams.interceptor.LoginInterceptor;
+import teams.interceptor.PersonProfileCache;
 import teams.provision.MockUserDetailsManager;
 import teams.repository.PersonRepository;
 import teams.service.MemberAttributeService;
@@ -50,6 +51,7 @@ public class LoginInterceptorTest {
   private MockHttpServletResponse response;
   private LoginInterceptor interceptor;
   private PersonRepository personRepository;
+  private PersonProfileCache personProfileCache;
 
   @Before
   public void before() throws Exception {
@@ -57,7 +59,8 @@ public class LoginInterceptorTest {
     response = new MockHttpServletResponse();
     personRepository = mock(PersonRepository.class);
     when(personRepository.findByUrn(anyString())).thenReturn(Optional.empty());
-    interceptor = new LoginInterceptor("foo", personRepository);
+    personProfileCache = new PersonProfileCache(personRepository, 100, 3600, 60000, 10);
+    interceptor = new LoginInterceptor("foo", personProfileCache);
   }
 
   @Test
@@ -71,7 +74,7 @@ public class LoginInterceptorTest {
 
     boolean loggedIn = interceptor.preHandle(request, response, null);
     assertTrue(loggedIn);
-    Person person = (Person) request.getSession().getAttribute("person");
+    Person person = (Person) request.getAttribute("person");
     assertNotNull(person);
     assertFalse(person.isGuest());
   }
@@ -94,30 +97,50 @@ public class LoginInterceptorTest {
 
   @Test
   public void reProvisionWhenAttributesChanged() throws Exception {
-    request.addHeader("name-id", id);
-    request.addHeader("is-member-of", "urn:collab:org:surf.nl");
-    request.addHeader("Shib-InetOrgPerson-mail", "changed@example.com");
-    request.addHeader("displayName", "Changed Doe");
-    request.addHeader("schacHomeOrganization", "example.com");
-
-    Optional<teams.migration.Person> personOptional = Optional.of(new teams.migration.Person(id, "original", "original@org",true, Instant.now()));
-    when(personRepository.findByUrn(id)).thenReturn(personOptional);
+    addHeaders(request, "changed@example.com", "Changed Doe");
 
+    teams.migration.Person original = new teams.migration.Person(id, "original", "original@org", true, Instant.now());
+    when(personRepository.findByUrn(id)).thenReturn(Optional.of(original));
+    when(personRepository.findByUrnIn(anyCollectionOf(String.class))).thenReturn(singletonList(original));
 
     boolean loggedIn = interceptor.preHandle(request, response, null);
     assertTrue(loggedIn);
 
-    ArgumentCaptor<teams.migration.Person> argument = ArgumentCaptor.forClass(teams.migration.Person.class);
+    //the profile is written by the background writer
+    verify(personRepository, never()).save(any(teams.migration.Person.class));
+    personProfileCache.flush();
+
+    ArgumentCaptor<Iterable> argument = ArgumentCaptor.forClass(Iterable.class);
     verify(personRepository).save(argument.capture());
-    teams.migration.Person saved = argument.getValue();
+    teams.migration.Person saved = (teams.migration.Person) argument.getValue().iterator().next();
     assertEquals("Changed Doe", saved.getName());
     assertEquals("changed@example.com", saved.getEmail());
     assertEquals(false, saved.isGuest());
 
-    Person person = (Person) request.getSession().getAttribute("person");
+    Person person = (Person) request.getAttribute("person");
     assertNotNull(person);
     assertEquals("Changed Doe", person.getName());
   }
 
+  @Test
+  public void unchangedLoginSkipsTheDatabase() throws Exception {
+    addHeaders(request, "john@example.com", "John Doe");
+    interceptor.preHandle(request, response, null);
+
+    MockHttpServletRequest newSession = new MockHttpServletRequest();
+    addHeaders(newSession, "john@example.com", "John Doe");
+    interceptor.preHandle(newSession, new MockHttpServletResponse(), null);
+
+    verify(personRepository, times(1)).findByUrn(id);
+    verify(personRepository, times(1)).save(any(teams.migration.Person.class));
+  }
+
+  private void addHeaders(MockHttpServletRequest request, String email, String displayName) {
+    request.addHeader("name-id", id);
+    request.addHeader("is-member-of", "urn:collab:org:surf.nl");
+    request.addHeader("Shib-InetOrgPerson-mail", email);
+    request.addHeader("displayName", displayName);
+    request.addHeader("schacHomeOrganization", "example.com");
+  }
 
 }
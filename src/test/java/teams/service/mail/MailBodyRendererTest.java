@@ -0,0 +1,43 @@
+package teams.service.mail;
+
+import freemarker.template.Configuration;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.ui.freemarker.FreeMarkerConfigurationFactoryBean;
+import teams.domain.Team;
+import teams.service.mail.MailBodyRenderer.MailBody;
+
+import java.util.Locale;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class MailBodyRendererTest {
+
+  private MailBodyRenderer subject;
+
+  @Before
+  public void before() throws Exception {
+    FreeMarkerConfigurationFactoryBean factory = new FreeMarkerConfigurationFactoryBean();
+    factory.setTemplateLoaderPaths("classpath:/mailTemplates/");
+    Configuration configuration = factory.createConfiguration();
+    configuration.setIncompatibleImprovements(Configuration.VERSION_2_3_23);
+
+    subject = new MailBodyRenderer(configuration, mock(GaugeService.class));
+    subject.loadTemplates();
+  }
+
+  @Test
+  public void renderForTeamRendersBothVariantsOnce() {
+    MailBody body = subject.renderForTeam("joinrequest-acceptmail", Locale.ENGLISH, new Team("id", "riders", "description"));
+
+    assertTrue(body.getHtml().contains("<strong>accepted</strong>"));
+    assertTrue(body.getPlainText().contains("riders"));
+    assertSame(body, subject.renderForTeam("joinrequest-acceptmail", Locale.ENGLISH, new Team("id", "riders", "description")));
+    assertNotSame(body, subject.renderForTeam("joinrequest-acceptmail", Locale.ENGLISH, new Team("id", "gliders", "description")));
+  }
+
+}
@@ -0,0 +1,77 @@
+package teams.service.mail;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MailServiceImplTest {
+
+  private JavaMailSender mailSender = mock(JavaMailSender.class);
+  private CounterService counterService = mock(CounterService.class);
+
+  private MailServiceImpl subject;
+
+  @After
+  public void after() throws Exception {
+    subject.destroy();
+  }
+
+  @Test
+  public void retriesFailedMails() throws Exception {
+    when(mailSender.createMimeMessage()).thenAnswer(invocation -> new MimeMessage(Session.getInstance(new Properties())));
+    doThrow(new MailSendException("connection refused")).doNothing().when(mailSender).send(any(MimeMessage[].class));
+
+    subject = new MailServiceImpl(mailSender, mock(GaugeService.class), counterService, 10, 1, 5, 3, 10, 100);
+    subject.sendAsync(simpleMailMessage());
+
+    verify(mailSender, timeout(5000).times(2)).send(any(MimeMessage[].class));
+    verify(counterService, timeout(5000)).increment("mail.sent");
+    verify(counterService, times(1)).increment("mail.retried");
+  }
+
+  @Test(expected = MailSendException.class)
+  public void rejectsMailsWhenTheQueueIsFull() throws Exception {
+    CountDownLatch sending = new CountDownLatch(1);
+    CountDownLatch smtpServer = new CountDownLatch(1);
+    when(mailSender.createMimeMessage()).thenAnswer(invocation -> {
+      sending.countDown();
+      smtpServer.await();
+      return new MimeMessage(Session.getInstance(new Properties()));
+    });
+
+    subject = new MailServiceImpl(mailSender, mock(GaugeService.class), counterService, 1, 1, 5, 3, 10, 10);
+    try {
+      subject.sendAsync(simpleMailMessage());
+      sending.await();
+      subject.sendAsync(simpleMailMessage());
+      subject.sendAsync(simpleMailMessage());
+    } finally {
+      smtpServer.countDown();
+    }
+  }
+
+  private SimpleMailMessage simpleMailMessage() {
+    SimpleMailMessage message = new SimpleMailMessage();
+    message.setTo("john.doe@example.org");
+    message.setSubject("subject");
+    message.setText("text");
+    return message;
+  }
+}
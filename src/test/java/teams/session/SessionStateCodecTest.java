@@ -0,0 +1,86 @@
+package teams.session;
+
+import org.junit.Test;
+import teams.domain.ExternalGroup;
+import teams.domain.ExternalGroupProvider;
+import teams.domain.Person;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SessionStateCodecTest {
+
+  private SessionStateCodec subject = new SessionStateCodec();
+
+  @Test
+  public void roundTrip() {
+    Person person = new Person("urn:collab:person:example.com:john.doe", "John Doe", "john@example.com", "example.com",
+      "urn:collab:org:surf.nl", "John");
+    ExternalGroup group = externalGroup(1);
+    group.setId(42L);
+
+    SessionState state = subject.decode(subject.encode(new SessionState(person, singletonList(group))));
+
+    Person decodedPerson = state.getPerson();
+    assertEquals(person.getId(), decodedPerson.getId());
+    assertEquals(person.getName(), decodedPerson.getName());
+    assertEquals(person.getEmail(), decodedPerson.getEmail());
+    assertEquals(person.getSchacHomeOrganization(), decodedPerson.getSchacHomeOrganization());
+    assertEquals(person.getDisplayName(), decodedPerson.getDisplayName());
+    assertEquals(person.isGuest(), decodedPerson.isGuest());
+
+    ExternalGroup decodedGroup = state.getExternalGroups().get(0);
+    assertEquals(Long.valueOf(42L), decodedGroup.getId());
+    assertEquals(group.getIdentifier(), decodedGroup.getIdentifier());
+    assertEquals(group.getDescription(), decodedGroup.getDescription());
+    assertEquals(group.getGroupProvider(), decodedGroup.getGroupProvider());
+  }
+
+  @Test
+  public void emptyAndNullValues() {
+    SessionState state = subject.decode(subject.encode(new SessionState(null, emptyList())));
+
+    assertNull(state.getPerson());
+    assertTrue(state.getExternalGroups().isEmpty());
+    assertNull(subject.decode(subject.encode(new SessionState(null, null))).getExternalGroups());
+  }
+
+  @Test
+  public void manyGroupsAreSmallerThanSerialized() throws Exception {
+    List<ExternalGroup> groups = IntStream.range(0, 100).mapToObj(this::externalGroup).collect(Collectors.toList());
+    Person person = new Person("urn:collab:person:example.com:john.doe", "John Doe", "john@example.com", "example.com",
+      "urn:collab:org:surf.nl", "John");
+
+    byte[] encoded = subject.encode(new SessionState(person, groups));
+
+    ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(serialized)) {
+      out.writeObject(person);
+      //ExternalGroupProvider is not serializable
+      out.writeObject(groups.stream().map(group -> group.getIdentifier() + group.getName() + group.getDescription())
+        .collect(Collectors.toCollection(ArrayList::new)));
+    }
+    assertTrue(encoded.length < serialized.size());
+    assertEquals(100, subject.decode(encoded).getExternalGroups().size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unknownVersion() {
+    subject.decode(new byte[]{9, 0});
+  }
+
+  private ExternalGroup externalGroup(int i) {
+    return new ExternalGroup("urn:collab:group:example.org:group-" + i, "Group " + i, "Description of group " + i,
+      new ExternalGroupProvider("example.org", "Example"));
+  }
+}
@@ -0,0 +1,124 @@
+package teams.session;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import teams.domain.Person;
+
+import javax.servlet.http.Cookie;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static teams.interceptor.LoginInterceptor.PERSON_SESSION_KEY;
+import static teams.interceptor.LoginInterceptor.STATUS_MEMBER;
+import static teams.interceptor.LoginInterceptor.USER_STATUS_SESSION_KEY;
+import static teams.session.SessionStateInterceptor.SESSION_STATE_COOKIE;
+
+public class SessionStateInterceptorTest {
+
+  private SessionStateStore store = spy(new InMemorySessionStateStore(60));
+
+  @Test
+  public void stateIsRestoredOnAnotherNode() throws Exception {
+    SessionStateInterceptor node1 = new SessionStateInterceptor(store, 60, 100);
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    node1.preHandle(request, response, null);
+    Cookie cookie = response.getCookie(SESSION_STATE_COOKIE);
+    assertNotNull(cookie);
+    request.setAttribute(PERSON_SESSION_KEY, person());
+    node1.postHandle(request, response, null, null);
+
+    assertEquals(Collections.singletonList("sessionStateId"), Collections.list(request.getSession().getAttributeNames()));
+
+    SessionStateInterceptor node2 = new SessionStateInterceptor(store, 60, 100);
+    MockHttpServletRequest nextRequest = new MockHttpServletRequest();
+    nextRequest.setCookies(cookie);
+    node2.preHandle(nextRequest, new MockHttpServletResponse(), null);
+
+    Person person = (Person) nextRequest.getAttribute(PERSON_SESSION_KEY);
+    assertEquals("John Doe", person.getName());
+    assertEquals(STATUS_MEMBER, nextRequest.getAttribute(USER_STATUS_SESSION_KEY));
+  }
+
+  @Test
+  public void stateIsServedFromThisNodeAndTouched() throws Exception {
+    SessionStateInterceptor interceptor = new SessionStateInterceptor(store, 60, 100);
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    interceptor.preHandle(request, response, null);
+    request.setAttribute(PERSON_SESSION_KEY, person());
+    interceptor.postHandle(request, response, null, null);
+
+    MockHttpServletRequest nextRequest = new MockHttpServletRequest();
+    nextRequest.setSession(request.getSession());
+    nextRequest.setCookies(response.getCookie(SESSION_STATE_COOKIE));
+    interceptor.preHandle(nextRequest, new MockHttpServletResponse(), null);
+    interceptor.postHandle(nextRequest, new MockHttpServletResponse(), null, null);
+
+    assertNotNull(nextRequest.getAttribute(PERSON_SESSION_KEY));
+    //only the first request of the session looked in the store
+    verify(store).load(anyString());
+    verify(store, never()).touch(anyString());
+
+    //without a timeout every request is past the touch interval
+    SessionStateInterceptor untimed = new SessionStateInterceptor(store, 0, 100);
+    MockHttpServletRequest lastRequest = new MockHttpServletRequest();
+    lastRequest.setSession(request.getSession());
+    lastRequest.setCookies(response.getCookie(SESSION_STATE_COOKIE));
+    untimed.preHandle(lastRequest, new MockHttpServletResponse(), null);
+    untimed.postHandle(lastRequest, new MockHttpServletResponse(), null, null);
+
+    verify(store).touch(response.getCookie(SESSION_STATE_COOKIE).getValue());
+    verify(store).save(anyString(), any(byte[].class));
+  }
+
+  @Test
+  public void stateIsDeletedWhenTheSessionIsInvalidated() throws Exception {
+    SessionStateInterceptor interceptor = new SessionStateInterceptor(store, 60, 100);
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    interceptor.preHandle(request, response, null);
+    request.setAttribute(PERSON_SESSION_KEY, person());
+    interceptor.postHandle(request, response, null, null);
+    String id = response.getCookie(SESSION_STATE_COOKIE).getValue();
+    assertTrue(store.load(id).isPresent());
+
+    MockHttpServletRequest logoutRequest = new MockHttpServletRequest();
+    logoutRequest.setSession(request.getSession());
+    logoutRequest.setCookies(response.getCookie(SESSION_STATE_COOKIE));
+    interceptor.preHandle(logoutRequest, new MockHttpServletResponse(), null);
+    logoutRequest.getSession().invalidate();
+    interceptor.postHandle(logoutRequest, new MockHttpServletResponse(), null, null);
+
+    assertFalse(store.load(id).isPresent());
+  }
+
+  @Test
+  public void unknownStateStartsEmpty() throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.setCookies(new Cookie(SESSION_STATE_COOKIE, "AAAAAAAAAAAAAAAAAAAAAAAAAAA"));
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    new SessionStateInterceptor(store, 60, 100).preHandle(request, response, null);
+
+    assertNull(request.getAttribute(PERSON_SESSION_KEY));
+    assertNull(response.getCookie(SESSION_STATE_COOKIE));
+    assertFalse(store.load("AAAAAAAAAAAAAAAAAAAAAAAAAAA").isPresent());
+  }
+
+  private Person person() {
+    return new Person("urn:collab:person:example.com:john.doe",
+      "John Doe", "john@example.com", "example.com", "urn:collab:org:surf.nl", "John");
+  }
+}
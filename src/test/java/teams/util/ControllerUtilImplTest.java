@@ -29,6 +29,7 @@ import org.springframework.mock.web.MockHttpServletRequest;
 import teams.control.AbstractControllerTest;
 import teams.domain.Member;
 import teams.domain.Person;
+import teams.domain.Role;
 import teams.domain.Team;
 import teams.service.GrouperTeamService;
 
@@ -56,7 +57,7 @@ public class ControllerUtilImplTest extends AbstractControllerTest {
 
   @Test
   public void hasUserAdministrativePrivilegesTest() throws Exception {
-    when(grouperTeamServiceMock.findMember(getTeam1(), getPerson1().getId())).thenReturn(getAdministrativeMember());
+    when(grouperTeamServiceMock.hasRole(getTeam1().getId(), getPerson1().getId(), Role.Manager)).thenReturn(true);
 
     boolean hasPrivileges = controllerUtil.hasUserAdministrativePrivileges(getPerson1(), getTeam1());
 
@@ -65,13 +66,20 @@ public class ControllerUtilImplTest extends AbstractControllerTest {
 
   @Test
   public void hasUserAdministrativePrivilegesWithoutPrivilegesTest() throws Exception {
-    when(grouperTeamServiceMock.findMember(getTeam1(), getPerson1().getId())).thenReturn(getMember());
+    when(grouperTeamServiceMock.hasRole(getTeam1().getId(), getPerson1().getId(), Role.Manager)).thenReturn(false);
 
     boolean hasPrivileges = controllerUtil.hasUserAdministrativePrivileges(getPerson1(), getTeam1());
 
     assertFalse(hasPrivileges);
   }
 
+  @Test
+  public void hasUserAdminPrivilegesTest() throws Exception {
+    when(grouperTeamServiceMock.hasRole(getTeam1().getId(), getPerson1().getId(), Role.Admin)).thenReturn(true);
+
+    assertTrue(controllerUtil.hasUserAdminPrivileges(getPerson1(), getTeam1()));
+  }
+
   @Test
   public void isPersonMemberOfTeamIsMemberTest() {
     Member member = getMember();
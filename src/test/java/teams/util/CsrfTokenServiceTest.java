@@ -0,0 +1,69 @@
+package teams.util;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpSession;
+
+import java.util.Base64;
+
+public class CsrfTokenServiceTest {
+
+  private CsrfTokenService csrfTokenService = new CsrfTokenService("secret", 3600);
+
+  @Test
+  public void tokenIsValidForTheSameSession() {
+    MockHttpSession session = new MockHttpSession();
+
+    String token = csrfTokenService.generateToken(request(session));
+
+    csrfTokenService.checkToken(request(session), token);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void secretIsRequired() {
+    new CsrfTokenService(" ", 3600);
+  }
+
+  @Test(expected = SecurityException.class)
+  public void tokenIsNotValidForAnotherSession() {
+    String token = csrfTokenService.generateToken(request(new MockHttpSession()));
+
+    csrfTokenService.checkToken(request(new MockHttpSession()), token);
+  }
+
+  @Test(expected = SecurityException.class)
+  public void tokenIsNotValidWithAnotherSecret() {
+    MockHttpSession session = new MockHttpSession();
+    String token = new CsrfTokenService("other", 3600).generateToken(request(session));
+
+    csrfTokenService.checkToken(request(session), token);
+  }
+
+  @Test(expected = SecurityException.class)
+  public void tamperedTokenIsNotValid() {
+    MockHttpSession session = new MockHttpSession();
+    byte[] token = Base64.getUrlDecoder().decode(csrfTokenService.generateToken(request(session)));
+    token[0]++;
+
+    csrfTokenService.checkToken(request(session), Base64.getUrlEncoder().withoutPadding().encodeToString(token));
+  }
+
+  @Test(expected = SecurityException.class)
+  public void expiredTokenIsNotValid() {
+    MockHttpSession session = new MockHttpSession();
+    String token = new CsrfTokenService("secret", -1).generateToken(request(session));
+
+    csrfTokenService.checkToken(request(session), token);
+  }
+
+  @Test(expected = SecurityException.class)
+  public void malformedTokenIsNotValid() {
+    csrfTokenService.checkToken(request(new MockHttpSession()), "asfjkhsdjkfhsd");
+  }
+
+  private MockHttpServletRequest request(MockHttpSession session) {
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.setSession(session);
+    return request;
+  }
+}
@@ -52,6 +52,17 @@ public class VootApiControllerTest extends AbstractApplicationTest {
       .body("name", hasItems("Tracey Doe", "Mary Doe", "John Doe", "William Doe"));
   }
 
+  @Test
+  public void getMembersPaginated() throws Exception {
+    start("members/nl:surfnet:diensten:giants?limit=3")
+      .body("size()", equalTo(3))
+      .body("name", contains("John Doe", "Mary Doe", "Tracey Doe"));
+
+    start("members/nl:surfnet:diensten:giants?limit=3&after=urn:collab:person:surfnet.nl:tdoe")
+      .body("size()", equalTo(1))
+      .body("name", contains("William Doe"));
+  }
+
   @Test
   public void getAllGroups() throws Exception {
     start("groups")
@@ -59,6 +70,17 @@ public class VootApiControllerTest extends AbstractApplicationTest {
       .body("displayName", hasItems("riders", "giants", "gliders"));
   }
 
+  @Test
+  public void getAllGroupsPaginated() throws Exception {
+    start("groups?limit=2")
+      .body("size()", equalTo(2))
+      .body("displayName", contains("giants", "gliders"));
+
+    start("groups?limit=2&after=nl:surfnet:diensten:gliders")
+      .body("size()", equalTo(1))
+      .body("displayName", contains("riders"));
+  }
+
   @Test
   public void getGroupsForMember() throws Exception {
     start("/user/urn:collab:person:surfnet.nl:tdoe/groups")
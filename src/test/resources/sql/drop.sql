@@ -5,3 +5,8 @@ DROP TABLE IF EXISTS memberships;
 DROP TABLE IF EXISTS teams;
 DROP TABLE IF EXISTS persons;
 DROP TABLE IF EXISTS schema_version;
+DROP TABLE IF EXISTS grouper_memberships;
+DROP TABLE IF EXISTS grouper_groups;
+DROP TABLE IF EXISTS grouper_members;
+DROP TABLE IF EXISTS grouper_fields;
+DROP TABLE IF EXISTS grouper_stems;
@@ -0,0 +1,33 @@
+CREATE TABLE IF NOT EXISTS grouper_stems (id VARCHAR(40) NOT NULL PRIMARY KEY, name VARCHAR(255) NOT NULL);
+CREATE TABLE IF NOT EXISTS grouper_fields (id VARCHAR(40) NOT NULL PRIMARY KEY, name VARCHAR(32) NOT NULL);
+CREATE TABLE IF NOT EXISTS grouper_members (id VARCHAR(40) NOT NULL PRIMARY KEY, subject_id VARCHAR(255) NOT NULL);
+CREATE TABLE IF NOT EXISTS grouper_groups (id VARCHAR(40) NOT NULL PRIMARY KEY, name VARCHAR(255) NOT NULL, description VARCHAR(1024), display_extension VARCHAR(255), create_time BIGINT NOT NULL, parent_stem VARCHAR(40) NOT NULL);
+CREATE TABLE IF NOT EXISTS grouper_memberships (id VARCHAR(40) NOT NULL PRIMARY KEY, owner_group_id VARCHAR(40) NOT NULL, member_id VARCHAR(40) NOT NULL, field_id VARCHAR(40) NOT NULL, create_time BIGINT NOT NULL);
+
+DELETE FROM grouper_memberships;
+DELETE FROM grouper_groups;
+DELETE FROM grouper_members;
+DELETE FROM grouper_fields;
+DELETE FROM grouper_stems;
+
+INSERT INTO grouper_stems (id, name) VALUES ('s1', 'nl:surfnet:diensten'), ('s2', 'etc');
+INSERT INTO grouper_fields (id, name) VALUES ('f1', 'members'), ('f2', 'admins'), ('f3', 'updaters');
+INSERT INTO grouper_members (id, subject_id) VALUES ('m1', 'urn:collab:person:example.org:john'), ('m2', 'urn:collab:person:example.org:mary'), ('m3', 'GrouperAll'), ('m4', 'GrouperSystem'), ('m5', 'urn:collab:person:example.org:kate');
+
+INSERT INTO grouper_groups (id, name, description, display_extension, create_time, parent_stem) VALUES
+  ('g1', 'nl:surfnet:diensten:alpha', 'we are alpha', 'alpha', 1400000000000, 's1'),
+  ('g2', 'nl:surfnet:diensten:beta', 'we are beta', 'beta', 1400000000000, 's1'),
+  ('g3', 'nl:surfnet:diensten:gamma', 'we are gamma', 'gamma', 1400000000000, 's1'),
+  ('g4', 'etc:sysadmingroup', 'system', 'sysadmingroup', 1400000000000, 's2');
+
+INSERT INTO grouper_memberships (id, owner_group_id, member_id, field_id, create_time) VALUES
+  ('gm1', 'g1', 'm1', 'f1', 1400000000000),
+  ('gm2', 'g1', 'm1', 'f2', 1400000000000),
+  ('gm3', 'g1', 'm2', 'f1', 1400000000000),
+  ('gm4', 'g1', 'm3', 'f1', 1400000000000),
+  ('gm5', 'g2', 'm2', 'f1', 1400000000000),
+  ('gm6', 'g2', 'm2', 'f3', 1400000000000),
+  ('gm7', 'g2', 'm4', 'f2', 1400000000000),
+  ('gm8', 'g3', 'm1', 'f1', 1400000000000),
+  ('gm9', 'g4', 'm1', 'f1', 1400000000000),
+  ('gm10', 'g3', 'm5', 'f1', 1400000000000);
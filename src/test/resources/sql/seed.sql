@@ -1,6 +1,6 @@
-INSERT INTO `teams` (`id`, `urn`, `name`, `description`, `viewable`) VALUES (1, 'nl:surfnet:diensten:riders', 'riders', 'we are riders', 1);
-INSERT INTO `teams` (`id`, `urn`, `name`, `description`, `viewable`) VALUES (2, 'nl:surfnet:diensten:giants', 'giants', 'we are giants', 1);
-INSERT INTO `teams` (`id`, `urn`, `name`, `description`, `viewable`) VALUES (3, 'nl:surfnet:diensten:gliders', 'gliders', 'we are gliders', 1);
+INSERT INTO `teams` (`id`, `urn`, `name`, `description`, `viewable`, `member_count`) VALUES (1, 'nl:surfnet:diensten:riders', 'riders', 'we are riders', 1, 1);
+INSERT INTO `teams` (`id`, `urn`, `name`, `description`, `viewable`, `member_count`) VALUES (2, 'nl:surfnet:diensten:giants', 'giants', 'we are giants', 1, 4);
+INSERT INTO `teams` (`id`, `urn`, `name`, `description`, `viewable`, `member_count`) VALUES (3, 'nl:surfnet:diensten:gliders', 'gliders', 'we are gliders', 1, 3);
 
 INSERT INTO `persons` (`id`, `urn`, `name`, `email`, `guest`) VALUES (1, 'urn:collab:person:surfnet.nl:jdoe','John Doe', 'john.doe@example.org', 0);
 INSERT INTO `persons` (`id`, `urn`, `name`, `email`, `guest`) VALUES (2, 'urn:collab:person:surfnet.nl:mdoe','Mary Doe', 'mary.doe@example.org', 1);